@@ -0,0 +1,24 @@
+package cc.vipassana.common;
+
+/**
+ * 房间分配引擎常量
+ * 对应数据库 session.allocation_engine 字段的可选值
+ */
+public class AllocationEngine {
+
+    /** 顺序填充 - 按房间类型优先级填充（VBA宏移植），默认 */
+    public static final String GREEDY = "GREEDY";
+
+    /** 约束求解 - 在时间预算内搜索软目标最优解 */
+    public static final String SOLVER = "SOLVER";
+
+    /**
+     * 检查给定的分配引擎是否有效
+     *
+     * @param engine 分配引擎
+     * @return true 如果有效
+     */
+    public static boolean isValid(String engine) {
+        return GREEDY.equals(engine) || SOLVER.equals(engine);
+    }
+}
@@ -0,0 +1,39 @@
+package cc.vipassana.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 学员导入线程池配置
+ * 所有导入请求共用一个有界线程池做行校验与转换，由 Spring 管理生命周期
+ */
+@Configuration
+public class ImportExecutorConfig {
+
+    /**
+     * 学员导入校验线程池
+     * 队列满时由提交线程（Excel 读取线程）自行执行，起到背压作用
+     *
+     * @param workers 线程数，0 表示取CPU核数
+     * @param queueCapacity 等待执行的批次上限
+     */
+    @Bean(name = "studentImportExecutor")
+    public ThreadPoolTaskExecutor studentImportExecutor(
+            @Value("${student.import.workers:0}") int workers,
+            @Value("${student.import.queue-capacity:64}") int queueCapacity) {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("student-import-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -23,6 +23,8 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH", "HEAD")
                 .allowedHeaders("*")
+                // 学员列表游标分页的总数与续页令牌、导出文件名
+                .exposedHeaders("X-Total-Count", "X-Next-Cursor", "Content-Disposition")
                 .allowCredentials(false)
                 .maxAge(3600);
     }
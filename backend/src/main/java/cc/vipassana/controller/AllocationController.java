@@ -49,6 +49,80 @@ public class AllocationController {
         }
     }
 
+    /**
+     * 增量分配（迟到报名与退出），已确认的分配保持不动
+     *
+     * @param sessionId 会话ID
+     * @return 分配结果
+     */
+    @PostMapping("/auto/{sessionId}/incremental")
+    public ResponseResult<AllocationService.AllocationResult> allocateIncrementally(@PathVariable Long sessionId) {
+        log.info("执行增量分配，期次ID: {}", sessionId);
+        try {
+            AllocationService.AllocationResult result = allocationService.allocateIncrementally(sessionId);
+            log.info("增量分配完成，期次ID: {}", sessionId);
+            return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
+                    "增量分配成功", result);
+        } catch (Exception e) {
+            log.error("增量分配失败，期次ID: {}", sessionId, e);
+            return new ResponseResult<>(SystemErrorCode.BUSINESS_ERROR.getCode(),
+                    "增量分配失败: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * 预览自动分配（不写库）
+     *
+     * @param sessionId 会话ID
+     * @return 预览结果（含提交令牌）
+     */
+    @PostMapping("/auto/{sessionId}/preview")
+    public ResponseResult<AllocationService.AllocationPreview> previewAllocation(@PathVariable Long sessionId) {
+        log.info("预览自动分配，期次ID: {}", sessionId);
+        try {
+            if (sessionId == null) {
+                return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(),
+                        "会话ID为空", null);
+            }
+
+            AllocationService.AllocationPreview preview = allocationService.previewAllocation(sessionId);
+            return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
+                    "预览分配成功", preview);
+        } catch (Exception e) {
+            log.error("预览分配失败，期次ID: {}", sessionId, e);
+            return new ResponseResult<>(SystemErrorCode.BUSINESS_ERROR.getCode(),
+                    "预览分配失败: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * 提交预览过的分配计划
+     *
+     * @param sessionId 会话ID
+     * @param token 预览令牌
+     * @return 分配结果
+     */
+    @PostMapping("/auto/{sessionId}/commit")
+    public ResponseResult<AllocationService.AllocationResult> commitPreview(
+            @PathVariable Long sessionId,
+            @RequestParam(value = "token") String token) {
+        log.info("提交预览分配，期次ID: {}", sessionId);
+        try {
+            if (sessionId == null || token == null || token.isBlank()) {
+                return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(),
+                        "会话ID或令牌为空", null);
+            }
+
+            AllocationService.AllocationResult result = allocationService.commitPreview(sessionId, token);
+            return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
+                    "提交分配成功", result);
+        } catch (Exception e) {
+            log.error("提交分配失败，期次ID: {}", sessionId, e);
+            return new ResponseResult<>(SystemErrorCode.BUSINESS_ERROR.getCode(),
+                    "提交分配失败: " + e.getMessage(), null);
+        }
+    }
+
     /**
      * 获取分配结果
      *
@@ -100,22 +174,34 @@ public class AllocationController {
 
     /**
      * 确认分配
+     * 指定 roomId 时只确认该房间，指定 studentIds 时只确认这些学员，否则确认全部暂存分配
      *
      * @param sessionId 会话ID
-     * @return 确认结果
+     * @param roomId 房间ID（可选）
+     * @param studentIds 学员ID列表（可选）
+     * @return 确认的分配数
      */
     @PostMapping("/{sessionId}/confirm")
-    public ResponseResult<Void> confirmAllocations(@PathVariable Long sessionId) {
+    public ResponseResult<Integer> confirmAllocations(@PathVariable Long sessionId,
+                                                      @RequestParam(required = false) Long roomId,
+                                                      @RequestParam(required = false) List<Long> studentIds) {
         try {
             if (sessionId == null) {
                 return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(),
                         "会话ID为空", null);
             }
 
-            allocationService.confirmAllocations(sessionId);
-            log.info("分配已确认，期次ID: {}", sessionId);
+            int confirmed;
+            if (roomId != null) {
+                confirmed = allocationService.confirmAllocationsByRoom(sessionId, roomId);
+            } else if (studentIds != null) {
+                confirmed = allocationService.confirmAllocationsByStudents(sessionId, studentIds);
+            } else {
+                confirmed = allocationService.confirmAllocations(sessionId);
+            }
+            log.info("分配已确认，期次ID: {}，确认 {} 条", sessionId, confirmed);
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
-                    "分配已确认", null);
+                    "分配已确认", confirmed);
         } catch (Exception e) {
             log.error("确认分配失败", e);
             return new ResponseResult<>(SystemErrorCode.BUSINESS_ERROR.getCode(),
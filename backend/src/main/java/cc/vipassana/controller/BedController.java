@@ -7,6 +7,7 @@ import cc.vipassana.entity.Bed;
 import cc.vipassana.entity.Room;
 import cc.vipassana.mapper.AllocationMapper;
 import cc.vipassana.mapper.RoomMapper;
+import cc.vipassana.service.cache.SessionCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +27,7 @@ public class BedController {
 
     private final RoomMapper roomMapper;
     private final AllocationMapper allocationMapper;
+    private final SessionCache sessionCache;
 
     /**
      * 获取床位列表
@@ -90,7 +92,7 @@ public class BedController {
         if (sessionId == null) {
             return Collections.emptySet();
         }
-        List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
+        List<Allocation> allocations = sessionCache.allocations(sessionId, () -> allocationMapper.selectBySessionId(sessionId));
         return allocations.stream()
             .map(a -> a.getRoomId() + "-" + a.getBedNumber())
             .collect(Collectors.toSet());
@@ -5,6 +5,7 @@ import cc.vipassana.common.ResponseResult;
 import cc.vipassana.common.SystemErrorCode;
 import cc.vipassana.dto.RoomBedImportDTO;
 import cc.vipassana.dto.StudentImportDTO;
+import cc.vipassana.dto.StudentImportProgress;
 import cc.vipassana.listener.RoomBedImportListener;
 import cc.vipassana.mapper.RoomMapper;
 import cc.vipassana.service.StudentImportService;
@@ -88,10 +89,15 @@ public class ImportController {
             Map<String, Object> result = new HashMap<>();
             result.put("successCount", listener.getSuccessCount());
             result.put("failureCount", listener.getFailureCount());
+            result.put("createdCount", listener.getCreatedCount());
+            result.put("updatedCount", listener.getUpdatedCount());
             result.put("totalCount", listener.getSuccessCount() + listener.getFailureCount());
+            result.put("failedList", listener.getFailedList());
             result.put("message", String.format(
-                    "导入完成！成功: %d 条房间, 失败: %d 条",
+                    "导入完成！成功: %d 条房间（新增 %d, 更新 %d）, 失败: %d 条",
                     listener.getSuccessCount(),
+                    listener.getCreatedCount(),
+                    listener.getUpdatedCount(),
                     listener.getFailureCount()
             ));
 
@@ -260,29 +266,10 @@ public class ImportController {
             );
         }
 
-        try {
-            // 读取 Excel 文件中的学员数据
-            List<StudentImportDTO> students = new ArrayList<>();
-            InputStream inputStream = file.getInputStream();
-            EasyExcel.read(inputStream, StudentImportDTO.class, new com.alibaba.excel.event.AnalysisEventListener<StudentImportDTO>() {
-                @Override
-                public void invoke(StudentImportDTO data, com.alibaba.excel.context.AnalysisContext context) {
-                    if (data != null && data.getName() != null) {
-                        students.add(data);
-                    }
-                }
-
-                @Override
-                public void doAfterAllAnalysed(com.alibaba.excel.context.AnalysisContext context) {
-                }
-            })
-                    .headRowNumber(1)  // 第一行是表头
-                    .doReadAll();
-
-            log.info("学员导入执行 - 读取 {} 条数据，课程ID={}", students.size(), sessionId);
-
-            // 调用导入服务
-            Map<String, Object> importResult = studentImportService.importStudents(sessionId, students);
+        try (InputStream inputStream = file.getInputStream()) {
+            // 流式读取：边读边校验写入，不在内存中保留整个文件
+            Map<String, Object> importResult = studentImportService.importStudents(sessionId, inputStream);
+            log.info("学员导入执行 - 课程ID={}, 结果: 导入 {} 条", sessionId, importResult.get("imported"));
 
             return new ResponseResult<>(
                     SystemErrorCode.SUCCESS.getCode(),
@@ -299,4 +286,38 @@ public class ImportController {
             );
         }
     }
+
+    /**
+     * 学员导入 - 查询进度
+     * 导入请求进行中时可轮询，返回已读取、已写入、拒绝、失败条数
+     *
+     * @param sessionId 课程ID
+     * @return 最近一次导入的进度
+     */
+    @GetMapping("/students/progress")
+    public ResponseResult<StudentImportProgress> getStudentImportProgress(
+            @RequestParam("sessionId") Long sessionId) {
+        try {
+            StudentImportProgress progress = studentImportService.getImportProgress(sessionId);
+            if (progress == null) {
+                return new ResponseResult<>(
+                        SystemErrorCode.BUSINESS_ERROR.getCode(),
+                        "该课程没有进行中的导入",
+                        null
+                );
+            }
+            return new ResponseResult<>(
+                    SystemErrorCode.SUCCESS.getCode(),
+                    "查询成功",
+                    progress
+            );
+        } catch (Exception e) {
+            log.error("查询学员导入进度失败", e);
+            return new ResponseResult<>(
+                    SystemErrorCode.BUSINESS_ERROR.getCode(),
+                    "查询失败: " + e.getMessage(),
+                    null
+            );
+        }
+    }
 }
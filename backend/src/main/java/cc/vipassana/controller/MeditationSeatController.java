@@ -26,12 +26,21 @@ public class MeditationSeatController {
      * 为指定会期生成禅堂座位
      *
      * @param sessionId 会期ID
+     * @param incremental 是否增量更新（保留已就座学员的座位）
      * @return 生成的座位列表
      */
     @PostMapping("/generate")
     public ResponseResult<ResponseResult.ListData<MeditationSeat>> generateSeats(
-            @RequestParam Long sessionId) {
+            @RequestParam Long sessionId,
+            @RequestParam(defaultValue = "false") boolean incremental) {
         try {
+            if (incremental) {
+                log.info("开始增量更新禅堂座位，会期ID: {}", sessionId);
+                List<MeditationSeat> seats = meditationSeatService.generateSeatsIncrementally(sessionId);
+                return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
+                        "座位增量更新成功", new ResponseResult.ListData<>(seats));
+            }
+
             log.info("开始生成禅堂座位，会期ID: {}", sessionId);
 
             // 先删除该会期的现有座位
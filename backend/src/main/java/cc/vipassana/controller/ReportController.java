@@ -2,22 +2,23 @@ package cc.vipassana.controller;
 
 import cc.vipassana.common.ResponseResult;
 import cc.vipassana.common.SystemErrorCode;
-import cc.vipassana.entity.Allocation;
-import cc.vipassana.entity.MeditationSeat;
-import cc.vipassana.entity.Student;
-import cc.vipassana.mapper.AllocationMapper;
-import cc.vipassana.mapper.MeditationSeatMapper;
-import cc.vipassana.mapper.StudentMapper;
-import cc.vipassana.service.AllocationService;
-import cc.vipassana.service.MeditationSeatService;
+import cc.vipassana.entity.SessionStats;
+import cc.vipassana.service.ReportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * 报告生成控制器
@@ -30,55 +31,58 @@ import java.util.stream.Collectors;
 @Tag(name = "ReportController", description = "报告生成")
 public class ReportController {
 
-    @Autowired
-    private AllocationMapper allocationMapper;
+    private static final String XLSX_CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
 
     @Autowired
-    private MeditationSeatMapper meditationSeatMapper;
+    private ReportService reportService;
 
     @Autowired
-    private StudentMapper studentMapper;
+    private ObjectMapper objectMapper;
 
-    @Autowired
-    private AllocationService allocationService;
+    /**
+     * 获取期次统计计数
+     *
+     * @param sessionId 会话ID
+     * @return 学员、房间分配、禅堂座位的计数
+     */
+    @GetMapping("/{sessionId}/stats")
+    @Operation(summary = "获取期次统计")
+    public ResponseResult<SessionStats> getSessionStats(@PathVariable Long sessionId) {
+        try {
+            if (sessionId == null) {
+                return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(),
+                        "会话ID为空", null);
+            }
 
-    @Autowired
-    private MeditationSeatService meditationSeatService;
+            SessionStats stats = reportService.getSessionStats(sessionId);
+            return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
+                    "获取期次统计成功", stats);
+        } catch (Exception e) {
+            log.error("获取期次统计失败", e);
+            return new ResponseResult<>(SystemErrorCode.BUSINESS_ERROR.getCode(),
+                    "获取期次统计失败: " + e.getMessage(), null);
+        }
+    }
 
     /**
      * 生成房间分配报告
      *
      * @param sessionId 会话ID
+     * @param includeRows 是否附带明细行（默认只返回聚合统计）
      * @return 房间分配报告数据
      */
     @GetMapping("/{sessionId}/allocation")
     @Operation(summary = "生成房间分配报告")
-    public ResponseResult<Map<String, Object>> getAllocationReport(@PathVariable Long sessionId) {
+    public ResponseResult<Map<String, Object>> getAllocationReport(@PathVariable Long sessionId,
+            @RequestParam(defaultValue = "false") boolean includeRows) {
         try {
             if (sessionId == null) {
                 return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(),
                         "会话ID为空", null);
             }
 
-            Map<String, Object> report = new HashMap<>();
-
-            // 获取分配数据
-            List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
-            List<Student> students = studentMapper.selectBySessionId(sessionId);
-
-            // 统计数据
-            Map<String, Object> statistics = new HashMap<>();
-            statistics.put("totalStudents", students.size());
-            statistics.put("allocatedStudents", allocations.size());
-            statistics.put("unallocatedStudents", students.size() - allocations.size());
-
-            // 按房间分组（Bed 表已删除，现在按 roomId 分组）
-            Map<Long, List<Allocation>> byRoom = allocations.stream()
-                    .collect(Collectors.groupingBy(Allocation::getRoomId));
-
-            report.put("statistics", statistics);
-            report.put("allocations", allocations);
-            report.put("byRoom", byRoom);
+            Map<String, Object> report = reportService.getAllocationReport(sessionId, includeRows);
 
             log.info("生成房间分配报告，期次ID: {}", sessionId);
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
@@ -94,37 +98,20 @@ public class ReportController {
      * 生成禅堂座位报告
      *
      * @param sessionId 会话ID
+     * @param includeRows 是否附带明细行（默认只返回聚合统计）
      * @return 禅堂座位报告数据
      */
     @GetMapping("/{sessionId}/meditation-seat")
     @Operation(summary = "生成禅堂座位报告")
-    public ResponseResult<Map<String, Object>> getMeditationSeatReport(@PathVariable Long sessionId) {
+    public ResponseResult<Map<String, Object>> getMeditationSeatReport(@PathVariable Long sessionId,
+            @RequestParam(defaultValue = "false") boolean includeRows) {
         try {
             if (sessionId == null) {
                 return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(),
                         "会话ID为空", null);
             }
 
-            Map<String, Object> report = new HashMap<>();
-
-            // 获取座位数据
-            List<MeditationSeat> seats = meditationSeatMapper.selectBySessionId(sessionId);
-
-            // 获取座位统计信息
-            MeditationSeatService.SeatStatistics statistics = meditationSeatService.getStatistics(sessionId);
-
-            // 按区域分组
-            Map<String, List<MeditationSeat>> byRegion = seats.stream()
-                    .collect(Collectors.groupingBy(MeditationSeat::getRegionCode));
-
-            // 按性别分组
-            Map<String, List<MeditationSeat>> byGender = seats.stream()
-                    .collect(Collectors.groupingBy(MeditationSeat::getGender));
-
-            report.put("statistics", statistics);
-            report.put("seats", seats);
-            report.put("byRegion", byRegion);
-            report.put("byGender", byGender);
+            Map<String, Object> report = reportService.getMeditationSeatReport(sessionId, includeRows);
 
             log.info("生成禅堂座位报告，期次ID: {}", sessionId);
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
@@ -151,36 +138,7 @@ public class ReportController {
                         "会话ID为空", null);
             }
 
-            Map<String, Object> report = new HashMap<>();
-
-            // 获取学员数据
-            List<Student> students = studentMapper.selectBySessionId(sessionId);
-
-            // 按性别统计
-            Map<String, Long> byGender = students.stream()
-                    .collect(Collectors.groupingBy(
-                            s -> s.getGender() != null ? s.getGender() : "未知",
-                            Collectors.counting()
-                    ));
-
-            // 按学员类型统计
-            Map<String, Long> byStudentType = students.stream()
-                    .collect(Collectors.groupingBy(
-                            s -> s.getStudentType() != null ? s.getStudentType() : "未知",
-                            Collectors.counting()
-                    ));
-
-            // 按年龄分段统计
-            Map<String, Long> byAgeGroup = students.stream()
-                    .collect(Collectors.groupingBy(
-                            s -> s.getAgeGroup() != null ? s.getAgeGroup() : "未知",
-                            Collectors.counting()
-                    ));
-
-            report.put("totalStudents", students.size());
-            report.put("byGender", byGender);
-            report.put("byStudentType", byStudentType);
-            report.put("byAgeGroup", byAgeGroup);
+            Map<String, Object> report = reportService.getStudentStatisticsReport(sessionId);
 
             log.info("生成学员统计报告，期次ID: {}", sessionId);
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
@@ -207,48 +165,7 @@ public class ReportController {
                         "会话ID为空", null);
             }
 
-            Map<String, Object> report = new HashMap<>();
-
-            // 学员统计
-            List<Student> students = studentMapper.selectBySessionId(sessionId);
-            Map<String, Long> studentsByGender = students.stream()
-                    .collect(Collectors.groupingBy(
-                            s -> s.getGender() != null ? s.getGender() : "未知",
-                            Collectors.counting()
-                    ));
-
-            // 房间分配统计
-            List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
-            int allocatedStudents = allocations.size();
-            int unallocatedStudents = students.size() - allocations.size();
-
-            // 禅堂座位统计
-            MeditationSeatService.SeatStatistics seatStats = meditationSeatService.getStatistics(sessionId);
-
-            // 冲突检测
-            List<?> conflicts = allocationService.getConflicts(sessionId);
-
-            report.put("sessionId", sessionId);
-            report.put("timestamp", new Date());
-            report.put("studentSummary", new HashMap<String, Object>() {{
-                put("total", students.size());
-                put("byGender", studentsByGender);
-            }});
-            report.put("allocationSummary", new HashMap<String, Object>() {{
-                put("allocated", allocatedStudents);
-                put("unallocated", unallocatedStudents);
-                put("allocationRate", students.size() > 0 ?
-                        String.format("%.2f%%", (allocatedStudents * 100.0 / students.size())) : "0%");
-            }});
-            report.put("seatSummary", new HashMap<String, Object>() {{
-                put("totalSeats", seatStats.totalSeats);
-                put("occupiedSeats", seatStats.occupiedSeats);
-                put("availableSeats", seatStats.availableSeats);
-                put("occupancyRate", String.format("%.2f%%", seatStats.occupancyRate * 100));
-            }});
-            report.put("conflictSummary", new HashMap<String, Object>() {{
-                put("totalConflicts", conflicts != null ? conflicts.size() : 0);
-            }});
+            Map<String, Object> report = reportService.getComprehensiveReport(sessionId);
 
             log.info("生成综合报告，期次ID: {}", sessionId);
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
@@ -275,14 +192,7 @@ public class ReportController {
                         "会话ID为空", null);
             }
 
-            Map<String, Object> report = new HashMap<>();
-
-            // 检测冲突
-            List<?> conflicts = allocationService.getConflicts(sessionId);
-
-            report.put("sessionId", sessionId);
-            report.put("totalConflicts", conflicts != null ? conflicts.size() : 0);
-            report.put("conflicts", conflicts != null ? conflicts : new ArrayList<>());
+            Map<String, Object> report = reportService.getConflictReport(sessionId);
 
             log.info("生成冲突报告，期次ID: {}", sessionId);
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
@@ -293,4 +203,63 @@ public class ReportController {
                     "生成冲突报告失败: " + e.getMessage(), null);
         }
     }
+
+    /**
+     * 导出禅堂座位图（男众、女众各一页）
+     *
+     * @param sessionId 会话ID
+     */
+    @GetMapping("/export")
+    @Operation(summary = "导出禅堂座位图")
+    public void exportSeatChart(@RequestParam Long sessionId, HttpServletResponse response) throws IOException {
+        writeExcel(response, sessionId, "禅堂座位报表.xlsx", "导出禅堂座位图", reportService::exportSeatChart);
+    }
+
+    /**
+     * 导出房间分配名单
+     *
+     * @param sessionId 会话ID
+     */
+    @GetMapping("/export/allocations")
+    @Operation(summary = "导出房间分配名单")
+    public void exportAllocations(@RequestParam Long sessionId, HttpServletResponse response) throws IOException {
+        writeExcel(response, sessionId, "房间分配名单.xlsx", "导出房间分配名单", reportService::exportAllocations);
+    }
+
+    /**
+     * 导出报到名单
+     *
+     * @param sessionId 会话ID
+     */
+    @GetMapping("/export/roster")
+    @Operation(summary = "导出报到名单")
+    public void exportRoster(@RequestParam Long sessionId, HttpServletResponse response) throws IOException {
+        writeExcel(response, sessionId, "报到名单.xlsx", "导出报到名单", reportService::exportRoster);
+    }
+
+    /**
+     * 以附件形式直接写出 .xlsx 到响应流；写出前失败时改为返回 JSON 错误
+     */
+    private void writeExcel(HttpServletResponse response, Long sessionId, String fileName, String action,
+                            BiConsumer<Long, OutputStream> exporter) throws IOException {
+        try {
+            response.setContentType(XLSX_CONTENT_TYPE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            String encoded = URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20");
+            response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + encoded);
+            exporter.accept(sessionId, response.getOutputStream());
+            response.flushBuffer();
+            log.info("{}，期次ID: {}", action, sessionId);
+        } catch (Exception e) {
+            log.error("{}失败", action, e);
+            if (response.isCommitted()) {
+                return;
+            }
+            response.reset();
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            objectMapper.writeValue(response.getOutputStream(), new ResponseResult<>(
+                    SystemErrorCode.BUSINESS_ERROR.getCode(), action + "失败: " + e.getMessage(), null));
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package cc.vipassana.controller;
 
+import cc.vipassana.common.AllocationEngine;
 import cc.vipassana.common.ResponseResult;
 import cc.vipassana.common.SystemErrorCode;
 import cc.vipassana.dto.SessionConfigDTO;
@@ -272,6 +273,11 @@ public class SessionController {
                         "课程设置信息为空", null);
             }
 
+            if (config.getAllocationEngine() != null && !AllocationEngine.isValid(config.getAllocationEngine())) {
+                return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(),
+                        "分配引擎无效: " + config.getAllocationEngine() + "（可选 GREEDY/SOLVER）", null);
+            }
+
             boolean success = sessionConfigService.saveSessionConfig(sessionId, config);
             if (success) {
                 return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
@@ -2,14 +2,19 @@ package cc.vipassana.controller;
 
 import cc.vipassana.common.ResponseResult;
 import cc.vipassana.common.SystemErrorCode;
+import cc.vipassana.dto.StudentFilter;
 import cc.vipassana.entity.Student;
 import cc.vipassana.service.StudentService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * 学员管理控制器
@@ -21,23 +26,65 @@ import java.util.List;
 @RequestMapping("/api/students")
 public class StudentController {
 
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+    private static final int MAX_PAGE_LIMIT = 500;
+
+    /**
+     * Excel 导入提示中最多列出的拒绝/失败行数
+     */
+    private static final int IMPORT_MESSAGE_ROWS = 10;
+
     @Autowired
     private StudentService studentService;
 
     /**
-     * 获取会话内所有学员
+     * 获取会话内学员
+     *
+     * 传入 limit、cursor 或任一筛选条件时按 (session_id, id) 游标分页：
+     * 响应头 X-Total-Count 为符合条件的总数，X-Next-Cursor 为下一页令牌（最后一页不返回）。
+     * 否则保持原有行为：page=1&size=20 返回全部学员，其余按页码分页。
      *
      * @param sessionId 会话ID
      * @param page 页码，默认为1
      * @param size 页数量，默认为20
+     * @param cursor 续页令牌（取自上一页的 X-Next-Cursor）
+     * @param limit 游标分页每页条数，默认50，最大500
+     * @param gender 性别筛选：M/F
+     * @param studentType 学员类型筛选：monk/old_student/new_student
+     * @param fellowGroupId 同伴组筛选
+     * @param allocated 是否已分配房间
      * @return 学员列表
      */
     @GetMapping
     public ResponseResult<ResponseResult.ListData<Student>> getStudents(
             @RequestParam("sessionId") Long sessionId,
             @RequestParam(value = "page", required = false, defaultValue = "1") int page,
-            @RequestParam(value = "size", required = false, defaultValue = "20") int size) {
+            @RequestParam(value = "size", required = false, defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "gender", required = false) String gender,
+            @RequestParam(value = "studentType", required = false) String studentType,
+            @RequestParam(value = "fellowGroupId", required = false) Integer fellowGroupId,
+            @RequestParam(value = "allocated", required = false) Boolean allocated,
+            HttpServletResponse response) {
         try {
+            StudentFilter filter = StudentFilter.builder()
+                    .gender(gender)
+                    .studentType(studentType)
+                    .fellowGroupId(fellowGroupId)
+                    .allocated(allocated)
+                    .build();
+            if (cursor != null || limit != null || !filter.isEmpty()) {
+                int pageLimit = limit == null ? DEFAULT_PAGE_LIMIT : Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+                StudentService.StudentPage studentPage = studentService.getStudentPage(sessionId, cursor, pageLimit, filter);
+                response.setHeader("X-Total-Count", String.valueOf(studentPage.total));
+                if (studentPage.nextCursor != null) {
+                    response.setHeader("X-Next-Cursor", studentPage.nextCursor);
+                }
+                return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(), "获取学员列表成功",
+                        new ResponseResult.ListData<>(studentPage.students));
+            }
+
             List<Student> students;
             if (page == 1 && size == 20) {
                 students = studentService.getStudentsBySession(sessionId);
@@ -47,6 +94,8 @@ public class StudentController {
 
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(), "获取学员列表成功",
                     new ResponseResult.ListData<>(students));
+        } catch (IllegalArgumentException e) {
+            return new ResponseResult<>(SystemErrorCode.PARAM_ERROR.getCode(), e.getMessage(), null);
         } catch (Exception e) {
             log.error("获取学员列表失败", e);
             return new ResponseResult<>(SystemErrorCode.BUSINESS_ERROR.getCode(),
@@ -189,7 +238,7 @@ public class StudentController {
      *
      * @param sessionId 会话ID
      * @param file Excel 文件
-     * @return 导入数量
+     * @return 导入数量（被拒绝、写入失败的行及原因在提示信息中列出）
      */
     @PostMapping("/import-excel")
     public ResponseResult<Integer> importStudentsFromExcel(
@@ -213,9 +262,9 @@ public class StudentController {
                         "仅支持 Excel 文件 (.xlsx 或 .xls)", null);
             }
 
-            int count = studentService.importStudentsFromExcel(sessionId, file);
+            StudentService.ExcelImportResult result = studentService.importStudentsFromExcel(sessionId, file);
             return new ResponseResult<>(SystemErrorCode.SUCCESS.getCode(),
-                    "导入学员成功: " + count + " 条", count);
+                    importMessage(result), result.importedCount);
         } catch (Exception e) {
             log.error("从 Excel 导入学员失败", e);
             return new ResponseResult<>(SystemErrorCode.BUSINESS_ERROR.getCode(),
@@ -223,6 +272,31 @@ public class StudentController {
         }
     }
 
+    /**
+     * 导入结果提示：成功条数，以及被拒绝、写入失败的行与原因（最多列出 IMPORT_MESSAGE_ROWS 行）
+     */
+    private static String importMessage(StudentService.ExcelImportResult result) {
+        StringBuilder message = new StringBuilder("导入学员成功: " + result.importedCount + " 条");
+        if (result.rejectedList.isEmpty() && result.failedList.isEmpty()) {
+            return message.toString();
+        }
+        message.append("，拒绝: ").append(result.rejectedList.size())
+                .append(" 条，失败: ").append(result.failedList.size()).append(" 条");
+        List<String> details = new ArrayList<>();
+        for (Map<String, Object> item : result.rejectedList) {
+            details.add(item.get("sheet") + " " + Objects.toString(item.get("name"), "第" + item.get("row") + "行")
+                    + ": " + item.get("reason"));
+        }
+        for (Map<String, String> item : result.failedList) {
+            details.add(item.get("name") + ": " + item.get("error"));
+        }
+        message.append("（").append(String.join("；", details.subList(0, Math.min(details.size(), IMPORT_MESSAGE_ROWS))));
+        if (details.size() > IMPORT_MESSAGE_ROWS) {
+            message.append("；等");
+        }
+        return message.append("）").toString();
+    }
+
     /**
      * 获取排序后的学员列表（用于分配）
      *
@@ -16,6 +16,7 @@ import java.time.LocalDate;
  * - 课程时间和地点
  * - 禅堂配置（A/B区域分离）
  * - 座位编号方式
+ * - 房间分配引擎
  */
 @Data
 @NoArgsConstructor
@@ -43,4 +44,7 @@ public class SessionConfigDTO {
     // 座位编号方式
     private String seatNumberingType; // 座位编号方式：顺序(sequential)/奇数(odd)/偶数(even)
 
+    // 房间分配引擎
+    private String allocationEngine;  // 分配引擎：顺序填充(GREEDY)/约束求解(SOLVER)
+
 }
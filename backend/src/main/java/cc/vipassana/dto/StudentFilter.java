@@ -0,0 +1,35 @@
+package cc.vipassana.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 学员列表筛选条件（均为可选，下推到 SQL）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StudentFilter {
+
+    /** 性别：M/F */
+    private String gender;
+
+    /** 学员类型：monk/old_student/new_student（规则同 selectSorted） */
+    private String studentType;
+
+    /** 同伴组ID */
+    private Integer fellowGroupId;
+
+    /** 是否已分配房间 */
+    private Boolean allocated;
+
+    /**
+     * 是否没有任何筛选条件
+     */
+    public boolean isEmpty() {
+        return gender == null && studentType == null && fellowGroupId == null && allocated == null;
+    }
+}
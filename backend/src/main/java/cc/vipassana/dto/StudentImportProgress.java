@@ -0,0 +1,28 @@
+package cc.vipassana.dto;
+
+import lombok.Data;
+
+/**
+ * 学员导入进度
+ * 由导入线程逐批更新，前端可在导入请求进行中轮询
+ */
+@Data
+public class StudentImportProgress {
+
+    private Long sessionId;
+
+    private volatile int readCount;       // 已读取行数
+    private volatile int importedCount;   // 已写入条数
+    private volatile int rejectedCount;   // 重复或校验失败被拒绝的条数
+    private volatile int failedCount;     // 写入失败条数
+    private volatile boolean finished;    // 是否已结束
+
+    private long startedAt;               // 开始时间戳
+    private volatile long updatedAt;      // 最近更新时间戳
+
+    public StudentImportProgress(Long sessionId) {
+        this.sessionId = sessionId;
+        this.startedAt = System.currentTimeMillis();
+        this.updatedAt = startedAt;
+    }
+}
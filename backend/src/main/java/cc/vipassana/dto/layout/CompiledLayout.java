@@ -1,5 +1,6 @@
 package cc.vipassana.dto.layout;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,7 @@ import java.util.Map;
 
 /**
  * LayoutCompiler 的输出结果。
+ * cells 供接口展示；分配、校验等内部计算使用紧凑网格 grid。
  */
 @Data
 @NoArgsConstructor
@@ -25,4 +27,16 @@ public class CompiledLayout {
     @Builder.Default
     private Map<String, SeatSection> sections = new HashMap<>();
     private HallLayout source;
+    @JsonIgnore
+    private SeatGrid grid;
+
+    /**
+     * 紧凑网格；反序列化得到的布局没有网格时按 cells 重建
+     */
+    public SeatGrid getGrid() {
+        if (grid == null) {
+            grid = SeatGrid.fromCells(cells);
+        }
+        return grid;
+    }
 }
@@ -0,0 +1,272 @@
+package cc.vipassana.dto.layout;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后禅堂的紧凑网格表示。
+ *
+ * 按布局外接矩形行优先展开，每个位置一个 int：
+ * - 低 16 位：区域序号 + 1（0 表示该位置不是座位，如通道、空洞）
+ * - 16~23 位：区域用途 ordinal + 1（0 表示未设置）
+ * - 第 24 位：保留标记
+ * 下标升序即（行, 列）升序；占用情况由调用方以格子下标为位记录在 BitSet 中。
+ * 同名区域共用一个区域序号，区域重叠时先声明的区域占有该格子。
+ */
+public final class SeatGrid {
+
+    private static final int SECTION_MASK = 0xFFFF;
+    private static final int PURPOSE_SHIFT = 16;
+    private static final int PURPOSE_MASK = 0xFF;
+    private static final int RESERVED_BIT = 1 << 24;
+    private static final SeatSectionPurpose[] PURPOSES = SeatSectionPurpose.values();
+
+    private final int originRow;
+    private final int originCol;
+    private final int rows;
+    private final int cols;
+    private final int[] cells;
+    private final String[] sectionNames;
+    private final int seatCount;
+
+    private SeatGrid(Builder builder) {
+        this.originRow = builder.originRow;
+        this.originCol = builder.originCol;
+        this.rows = builder.rows;
+        this.cols = builder.cols;
+        this.cells = builder.cells;
+        this.sectionNames = builder.sectionNames.toArray(new String[0]);
+        int count = 0;
+        for (int cell : cells) {
+            if ((cell & SECTION_MASK) != 0) {
+                count++;
+            }
+        }
+        this.seatCount = count;
+    }
+
+    /**
+     * @param originRow 外接矩形左上角行号
+     * @param originCol 外接矩形左上角列号
+     * @param rows      行数
+     * @param cols      列数
+     */
+    public static Builder builder(int originRow, int originCol, int rows, int cols) {
+        return new Builder(originRow, originCol, rows, cols);
+    }
+
+    /**
+     * 由格子列表重建网格（如从缓存反序列化的布局）
+     */
+    public static SeatGrid fromCells(List<SeatCell> cells) {
+        if (cells == null || cells.isEmpty()) {
+            return builder(0, 0, 0, 0).build();
+        }
+        int minRow = Integer.MAX_VALUE;
+        int minCol = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int maxCol = Integer.MIN_VALUE;
+        for (SeatCell cell : cells) {
+            minRow = Math.min(minRow, cell.getRow());
+            minCol = Math.min(minCol, cell.getCol());
+            maxRow = Math.max(maxRow, cell.getRow());
+            maxCol = Math.max(maxCol, cell.getCol());
+        }
+        Builder builder = builder(minRow, minCol, maxRow - minRow + 1, maxCol - minCol + 1);
+        for (SeatCell cell : cells) {
+            builder.place(cell.getRow(), cell.getCol(), builder.section(cell.getSectionName()), cell.getPurpose());
+            if (cell.isReserved()) {
+                builder.reserve(cell.getRow(), cell.getCol());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 行列打包为可排序的 long 键（先按行、再按列）
+     */
+    public static long positionKey(int row, int col) {
+        return ((long) row << 32) + (col - (long) Integer.MIN_VALUE);
+    }
+
+    public int originRow() {
+        return originRow;
+    }
+
+    public int originCol() {
+        return originCol;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * 网格位置总数（含通道）
+     */
+    public int length() {
+        return cells.length;
+    }
+
+    /**
+     * 座位格子数（含保留位）
+     */
+    public int seatCount() {
+        return seatCount;
+    }
+
+    /**
+     * 行列对应的格子下标，超出外接矩形时返回 -1
+     */
+    public int index(int row, int col) {
+        int r = row - originRow;
+        int c = col - originCol;
+        if (r < 0 || r >= rows || c < 0 || c >= cols) {
+            return -1;
+        }
+        return r * cols + c;
+    }
+
+    public int row(int index) {
+        return originRow + index / cols;
+    }
+
+    public int col(int index) {
+        return originCol + index % cols;
+    }
+
+    /**
+     * 该位置是否为座位格子
+     */
+    public boolean isSeat(int index) {
+        return (cells[index] & SECTION_MASK) != 0;
+    }
+
+    public boolean isReserved(int index) {
+        return (cells[index] & RESERVED_BIT) != 0;
+    }
+
+    /**
+     * 区域序号，非座位格子返回 -1
+     */
+    public int sectionId(int index) {
+        return (cells[index] & SECTION_MASK) - 1;
+    }
+
+    public SeatSectionPurpose purpose(int index) {
+        int ordinal = (cells[index] >>> PURPOSE_SHIFT) & PURPOSE_MASK;
+        return ordinal == 0 ? null : PURPOSES[ordinal - 1];
+    }
+
+    public String sectionNameAt(int index) {
+        int sectionId = sectionId(index);
+        return sectionId < 0 ? null : sectionNames[sectionId];
+    }
+
+    public int sectionCount() {
+        return sectionNames.length;
+    }
+
+    public String sectionName(int sectionId) {
+        return sectionNames[sectionId];
+    }
+
+    /**
+     * 可分配的座位（座位格子且未保留），按格子下标置位
+     */
+    public BitSet assignableSeats() {
+        BitSet seats = new BitSet(cells.length);
+        for (int i = 0; i < cells.length; i++) {
+            if ((cells[i] & SECTION_MASK) != 0 && (cells[i] & RESERVED_BIT) == 0) {
+                seats.set(i);
+            }
+        }
+        return seats;
+    }
+
+    public static final class Builder {
+
+        private final int originRow;
+        private final int originCol;
+        private final int rows;
+        private final int cols;
+        private final int[] cells;
+        private final List<String> sectionNames = new ArrayList<>();
+        private final Map<String, Integer> sectionIds = new HashMap<>();
+
+        private Builder(int originRow, int originCol, int rows, int cols) {
+            this.originRow = originRow;
+            this.originCol = originCol;
+            this.rows = Math.max(0, rows);
+            this.cols = Math.max(0, cols);
+            this.cells = new int[Math.multiplyExact(this.rows, this.cols)];
+        }
+
+        /**
+         * 登记区域并返回区域序号（同名区域返回同一序号）
+         */
+        public int section(String name) {
+            Integer existing = sectionIds.get(name);
+            if (existing != null) {
+                return existing;
+            }
+            if (sectionNames.size() >= SECTION_MASK) {
+                throw new IllegalStateException("禅堂区域数量超出上限: " + SECTION_MASK);
+            }
+            int sectionId = sectionNames.size();
+            sectionNames.add(name);
+            sectionIds.put(name, sectionId);
+            return sectionId;
+        }
+
+        /**
+         * 放置座位格子
+         *
+         * @return 是否放置成功（超出外接矩形或已被其他区域占有时返回false）
+         */
+        public boolean place(int row, int col, int sectionId, SeatSectionPurpose purpose) {
+            int index = index(row, col);
+            if (index < 0 || (cells[index] & SECTION_MASK) != 0) {
+                return false;
+            }
+            int purposeBits = purpose == null ? 0 : (purpose.ordinal() + 1) << PURPOSE_SHIFT;
+            cells[index] |= (sectionId + 1) | purposeBits;
+            return true;
+        }
+
+        /**
+         * 标记保留位置（可先于放置调用；超出外接矩形时忽略）
+         */
+        public void reserve(int row, int col) {
+            int index = index(row, col);
+            if (index >= 0) {
+                cells[index] |= RESERVED_BIT;
+            }
+        }
+
+        public boolean isReserved(int row, int col) {
+            int index = index(row, col);
+            return index >= 0 && (cells[index] & RESERVED_BIT) != 0;
+        }
+
+        public SeatGrid build() {
+            return new SeatGrid(this);
+        }
+
+        private int index(int row, int col) {
+            int r = row - originRow;
+            int c = col - originCol;
+            if (r < 0 || r >= rows || c < 0 || c >= cols) {
+                return -1;
+            }
+            return r * cols + c;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package cc.vipassana.dto.report;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 房间分配导出行
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AllocationExportRow {
+
+    @ExcelProperty(value = "楼号", index = 0)
+    private String building;
+
+    @ExcelProperty(value = "楼层", index = 1)
+    private Integer floor;
+
+    @ExcelProperty(value = "房间号", index = 2)
+    private String roomNumber;
+
+    @ExcelProperty(value = "床位号", index = 3)
+    private Integer bedNumber;
+
+    @ExcelProperty(value = "学号", index = 4)
+    private String studentNumber;
+
+    @ExcelProperty(value = "姓名", index = 5)
+    private String name;
+
+    @ExcelProperty(value = "性别", index = 6)
+    private String gender;
+
+    @ExcelProperty(value = "年龄", index = 7)
+    private Integer age;
+
+    /**
+     * 暂存 / 已确认
+     */
+    @ExcelProperty(value = "状态", index = 8)
+    private String status;
+
+    @ExcelProperty(value = "冲突原因", index = 9)
+    private String conflictReason;
+}
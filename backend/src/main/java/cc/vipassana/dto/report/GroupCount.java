@@ -0,0 +1,22 @@
+package cc.vipassana.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分组计数结果（对应 GROUP BY 聚合查询的一行）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupCount {
+    /** 分组取值（如性别、区域代码、房间ID），可能为 null */
+    private String groupKey;
+
+    /** 行数 */
+    private long total;
+
+    /** 已分配学员的行数（仅座位统计使用） */
+    private long assigned;
+}
@@ -0,0 +1,44 @@
+package cc.vipassana.dto.report;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 报到名单导出行（签到栏留空，打印后手写）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RosterExportRow {
+
+    @ExcelProperty(value = "学号", index = 0)
+    private String studentNumber;
+
+    @ExcelProperty(value = "姓名", index = 1)
+    private String name;
+
+    @ExcelProperty(value = "性别", index = 2)
+    private String gender;
+
+    @ExcelProperty(value = "年龄", index = 3)
+    private Integer age;
+
+    @ExcelProperty(value = "城市", index = 4)
+    private String city;
+
+    @ExcelProperty(value = "房间号", index = 5)
+    private String roomNumber;
+
+    @ExcelProperty(value = "床位号", index = 6)
+    private Integer bedNumber;
+
+    @ExcelProperty(value = "禅堂座位号", index = 7)
+    private String seatNumber;
+
+    @ExcelProperty(value = "签到", index = 8)
+    private String signature;
+}
@@ -0,0 +1,27 @@
+package cc.vipassana.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 座位图导出格子
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatChartCell {
+
+    private String gender;
+
+    private Integer rowIndex;
+
+    private Integer colIndex;
+
+    /**
+     * "座位号 姓名"，空座只有座位号
+     */
+    private String label;
+}
@@ -0,0 +1,25 @@
+package cc.vipassana.entity;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * 期次统计实体类（session_stats，写时维护的计数）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionStats {
+    private Long sessionId;              // 期次ID
+    private Integer totalStudents;       // 学员总数
+    private Integer maleStudents;        // 男众人数
+    private Integer femaleStudents;      // 女众人数
+    private Integer allocatedStudents;   // 已分配房间的学员数
+    private Integer temporaryAllocations;// 暂存（未确认）的分配数
+    private Integer conflictAllocations; // 有冲突的分配数
+    private Integer usedRooms;           // 已使用的房间数
+    private Integer totalSeats;          // 禅堂座位总数
+    private Integer occupiedSeats;       // 已分配学员的座位数
+    private LocalDateTime updatedAt;
+}
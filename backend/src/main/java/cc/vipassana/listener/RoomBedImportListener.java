@@ -7,11 +7,16 @@ import cc.vipassana.dto.RoomBedImportDTO;
 import cc.vipassana.entity.Room;
 import cc.vipassana.mapper.RoomMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * EasyExcel 房间导入监听器
@@ -20,8 +25,10 @@ import java.util.Map;
  * Excel 列格式: 楼层、房间号、房间类型、性别区域、容量(床位数)、备注
  *
  * 核心逻辑:
- * 1. 读取房间信息
- * 2. 批量保存房间
+ * 1. 首批写入前一次性加载中心已有房号
+ * 2. 读取房间信息，在内存中区分新增 / 更新（同一文件内重复房号以最后一行为准）
+ * 3. 每批新增房间一条 INSERT，已有房间按 center_id + 房号一条 UPDATE，不会改动其他中心的房间
+ * 4. 新增房间触发唯一键冲突时逐行重试，冲突的房号计入失败并记录原因
  *
  * 注意: 床位不再单独存储，通过 Room.capacity 字段推导
  */
@@ -31,14 +38,17 @@ public class RoomBedImportListener implements ReadListener<RoomBedImportDTO> {
     /**
      * 批量处理数据的条数
      */
-    private static final int BATCH_COUNT = 100;
+    private static final int BATCH_COUNT = 500;
 
     private List<RoomBedImportDTO> cachedDataList = ListUtils.newArrayListWithExpectedSize(BATCH_COUNT);
     private final RoomMapper roomMapper;
     private final Long centerId;
     private int successCount = 0;
     private int failureCount = 0;
-    private Map<String, Long> roomIdMap = new HashMap<>();
+    private int createdCount = 0;
+    private int updatedCount = 0;
+    private Set<String> existingRoomNumbers;
+    private final List<Map<String, String>> failedList = new ArrayList<>();
 
     public RoomBedImportListener(RoomMapper roomMapper, Long centerId) {
         this.roomMapper = roomMapper;
@@ -113,7 +123,7 @@ public class RoomBedImportListener implements ReadListener<RoomBedImportDTO> {
 
     /**
      * 处理一批房间数据
-     * 核心逻辑: 增量导入 - 检查房间是否存在 -> 创建房间
+     * 核心逻辑: 按预加载的房号索引区分新增 / 更新，整批一条语句写入
      */
     private void processBatch() {
         if (cachedDataList.isEmpty()) {
@@ -121,45 +131,92 @@ public class RoomBedImportListener implements ReadListener<RoomBedImportDTO> {
         }
 
         try {
-            List<Room> roomsToCreate = new java.util.ArrayList<>();
-            int skippedCount = 0;
+            if (existingRoomNumbers == null) {
+                existingRoomNumbers = new HashSet<>(roomMapper.selectRoomNumbersByCenterId(centerId));
+                log.info("已加载中心 {} 的房号: {} 个", centerId, existingRoomNumbers.size());
+            }
 
-            // 检查房间是否已存在，只创建新房间
+            // 同一批内重复房号以最后一行为准
+            Map<String, Room> rooms = new LinkedHashMap<>();
             for (RoomBedImportDTO dto : cachedDataList) {
-                // 检查房间是否已存在
-                Room existingRoom = roomMapper.selectByRoomNumber(dto.getRoomNumber());
+                Room room = convertToRoom(dto);
+                rooms.put(room.getRoomNumber(), room);
+            }
 
-                if (existingRoom != null) {
-                    // 房间已存在，跳过
-                    log.warn("房间 {} 已存在，跳过创建", dto.getRoomNumber());
-                    skippedCount++;
+            List<Room> toCreate = new ArrayList<>();
+            List<Room> toUpdate = new ArrayList<>();
+            for (Room room : rooms.values()) {
+                if (existingRoomNumbers.contains(room.getRoomNumber())) {
+                    toUpdate.add(room);
                 } else {
-                    // 房间不存在，准备创建
-                    Room room = convertToRoom(dto);
-                    roomsToCreate.add(room);
+                    toCreate.add(room);
                 }
             }
 
-            // 批量插入新房间
-            if (!roomsToCreate.isEmpty()) {
-                roomMapper.insertBatch(roomsToCreate);
-                log.info("批量保存房间成功: {} 条", roomsToCreate.size());
-            }
-
-            // 统计成功数（只计算真正新创建的房间）
-            successCount += roomsToCreate.size();
-
-            // 如果有跳过的房间，记录警告
-            if (skippedCount > 0) {
-                log.info("本次导入跳过已存在的房间: {} 条", skippedCount);
+            if (!toUpdate.isEmpty()) {
+                roomMapper.updateImportBatch(centerId, toUpdate);
+                updatedCount += toUpdate.size();
+                successCount += toUpdate.size();
             }
+            int created = insertRooms(toCreate);
+            log.info("批量保存房间成功: 新增 {} 条, 更新 {} 条", created, toUpdate.size());
 
         } catch (Exception e) {
             failureCount += cachedDataList.size();
+            for (RoomBedImportDTO dto : cachedDataList) {
+                fail(dto.getRoomNumber(), e.getMessage());
+            }
             log.error("批量保存房间失败: ", e);
         }
     }
 
+    /**
+     * 插入新房间：整批插入，唯一键冲突时逐行插入以定位冲突房号
+     *
+     * @return 插入成功的房间数
+     */
+    private int insertRooms(List<Room> rooms) {
+        if (rooms.isEmpty()) {
+            return 0;
+        }
+        try {
+            roomMapper.insertBatch(rooms);
+            onCreated(rooms);
+            return rooms.size();
+        } catch (DuplicateKeyException e) {
+            log.warn("批量新增房间唯一键冲突，逐行重试: {}", e.getMessage());
+        }
+
+        List<Room> created = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            try {
+                roomMapper.insert(room);
+                created.add(room);
+            } catch (DuplicateKeyException e) {
+                failureCount++;
+                fail(room.getRoomNumber(), "房号与已有房间冲突（可能被其他中心占用）");
+                log.warn("房号冲突，中心ID: {}, 房号: {}", centerId, room.getRoomNumber());
+            }
+        }
+        onCreated(created);
+        return created.size();
+    }
+
+    private void onCreated(List<Room> rooms) {
+        for (Room room : rooms) {
+            existingRoomNumbers.add(room.getRoomNumber());
+        }
+        createdCount += rooms.size();
+        successCount += rooms.size();
+    }
+
+    private void fail(String roomNumber, String error) {
+        Map<String, String> item = new HashMap<>();
+        item.put("roomNumber", roomNumber);
+        item.put("error", error);
+        failedList.add(item);
+    }
+
     /**
      * 将 DTO 转换为 Room 实体
      */
@@ -223,4 +280,25 @@ public class RoomBedImportListener implements ReadListener<RoomBedImportDTO> {
     public int getFailureCount() {
         return failureCount;
     }
+
+    /**
+     * 获取新增的房间数
+     */
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    /**
+     * 获取更新的已有房间数
+     */
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    /**
+     * 写入失败的房间（房号与原因）
+     */
+    public List<Map<String, String>> getFailedList() {
+        return failedList;
+    }
 }
@@ -1,36 +1,83 @@
 package cc.vipassana.listener;
 
 import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.exception.ExcelDataConvertException;
 import com.alibaba.excel.read.listener.ReadListener;
 import com.alibaba.excel.util.ListUtils;
 import cc.vipassana.dto.StudentImportDTO;
+import cc.vipassana.dto.StudentImportProgress;
 import cc.vipassana.entity.Student;
 import cc.vipassana.mapper.StudentMapper;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * EasyExcel 学员导入监听器（统一格式）
  * 处理男众和女众 Sheet 中的数据（格式已统一）
  * 列: 编号、姓名、身份证号码、年龄、城市、手机、课程次数、服务次数等
  * 支持通过 isFemale 参数区分性别
+ *
+ * 流式导入：
+ * - 读取线程按 batchSize 攒批，整批交给共享线程池（studentImportExecutor）校验、转换
+ * - 读取线程按提交顺序取回结果，按身份证号去重后 insertBatch 写入（写库与去重保持单线程、顺序确定）
+ * - 同时在途的批次数有上限，内存占用与文件大小无关
+ * - 未设置线程池时在读取线程内直接校验
+ * - 身份证号默认可空（分 Sheet 导入的原规则），setRequireIdCard(true) 后必填
+ * - 单元格格式错误的行、校验异常的批次计入失败并记录原因，其他读取异常中止导入
+ * 线程池由调用方持有，close() 只取消本次导入尚未完成的批次
  */
 @Slf4j
-public class StudentImportListener implements ReadListener<StudentImportDTO> {
+public class StudentImportListener implements ReadListener<StudentImportDTO>, AutoCloseable {
 
     /**
      * 批量处理数据的条数
      */
     private static final int BATCH_COUNT = 100;
 
-    private List<Student> cachedDataList = ListUtils.newArrayListWithExpectedSize(BATCH_COUNT);
+    /**
+     * 同时在途（校验中或等待写入）的批次数上限
+     */
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private static final String DUPLICATE_REASON = "该身份证号已在本课程中存在（防止同一个人重复导入）";
+
     private final StudentMapper studentMapper;
     private final Long sessionId;
     private final boolean isFemale;
+
+    private int batchSize = BATCH_COUNT;
+    private Executor executor;
+    private boolean requireIdCard = false;
+    private Set<String> idCards = new HashSet<>();
+    private Function<StudentImportDTO, Student> converter = this::convertToStudent;
+    private StudentImportProgress progress;
+
+    private List<StudentImportDTO> cachedDataList = ListUtils.newArrayListWithExpectedSize(BATCH_COUNT);
+    private final Deque<PendingBatch> inFlight = new ArrayDeque<>();
+    private final List<Map<String, Object>> rejectedList = new ArrayList<>();
+    private final List<Map<String, String>> failedList = new ArrayList<>();
     private int successCount = 0;
     private int failureCount = 0;
+    private int duplicateCount = 0;
+
+    /**
+     * 单行校验转换结果（student 为空表示校验失败，error 为原因）
+     */
+    private record Row(StudentImportDTO dto, Student student, String error) {
+    }
+
+    /**
+     * 已提交到线程池、尚未写入的批次
+     */
+    private record PendingBatch(List<StudentImportDTO> batch, Future<List<Row>> rows) {
+    }
 
     public StudentImportListener(StudentMapper studentMapper, Long sessionId) {
         this(studentMapper, sessionId, false);  // 默认为男众
@@ -42,26 +89,63 @@ public class StudentImportListener implements ReadListener<StudentImportDTO> {
         this.isFemale = isFemale;
     }
 
+    /**
+     * 设置每批写入条数（默认100）
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        this.cachedDataList = ListUtils.newArrayListWithExpectedSize(this.batchSize);
+    }
+
+    /**
+     * 设置校验线程池（不设置则在读取线程内校验）
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 设置身份证号是否必填（默认可空）
+     */
+    public void setRequireIdCard(boolean requireIdCard) {
+        this.requireIdCard = requireIdCard;
+    }
+
+    /**
+     * 设置已存在的身份证号集合（用于去重，导入成功的身份证号会加入该集合）
+     * 多个 Sheet 共用同一集合即可跨 Sheet 去重
+     */
+    public void setIdCards(Set<String> idCards) {
+        this.idCards = idCards;
+    }
+
+    /**
+     * 设置行转换（在工作线程中执行，需无副作用）
+     */
+    public void setConverter(Function<StudentImportDTO, Student> converter) {
+        this.converter = converter;
+    }
+
+    /**
+     * 设置导入进度（每批写入后更新）
+     */
+    public void setProgress(StudentImportProgress progress) {
+        this.progress = progress;
+    }
+
     /**
      * 每读一行数据就会调用这个方法
      */
     @Override
     public void invoke(StudentImportDTO data, AnalysisContext context) {
-        // 验证数据
-        if (!validateData(data)) {
-            failureCount++;
-            log.warn("学员数据验证失败: {}", data.getName());
-            return;
+        cachedDataList.add(data);
+        if (progress != null) {
+            progress.setReadCount(progress.getReadCount() + 1);
         }
 
-        // 转换为Student对象
-        Student student = convertToStudent(data);
-        cachedDataList.add(student);
-
-        // 达到批处理条数时保存一次
-        if (cachedDataList.size() >= BATCH_COUNT) {
-            saveBatch();
-            cachedDataList = ListUtils.newArrayListWithExpectedSize(BATCH_COUNT);
+        // 达到批处理条数时提交一次
+        if (cachedDataList.size() >= batchSize) {
+            submitBatch();
         }
     }
 
@@ -70,41 +154,116 @@ public class StudentImportListener implements ReadListener<StudentImportDTO> {
      */
     @Override
     public void doAfterAllAnalysed(AnalysisContext context) {
-        // 保存剩余数据
-        if (!cachedDataList.isEmpty()) {
-            saveBatch();
+        // 提交剩余数据并等待全部写入
+        submitBatch();
+        while (!inFlight.isEmpty()) {
+            saveBatch(await(inFlight.pollFirst()));
         }
-        log.info("Excel 数据读取完成 - 成功: {} 条, 失败: {} 条", successCount, failureCount);
+        log.info("Excel 数据读取完成 - 成功: {} 条, 重复: {} 条, 失败: {} 条",
+                successCount, duplicateCount, failureCount);
     }
 
     /**
      * 发生异常时调用此方法
+     * 单元格格式错误只影响当前行，计入失败后继续读取；其他异常中止导入
      */
     @Override
-    public void onException(Exception exception, AnalysisContext context) {
+    public void onException(Exception exception, AnalysisContext context) throws Exception {
+        if (exception instanceof ExcelDataConvertException convertException) {
+            String reason = String.format("第 %d 行第 %d 列格式错误: %s",
+                    convertException.getRowIndex() + 1, convertException.getColumnIndex() + 1,
+                    convertException.getMessage());
+            failureCount++;
+            Map<String, Object> item = new HashMap<>();
+            item.put("row", convertException.getRowIndex() + 1);
+            item.put("reason", reason);
+            rejectedList.add(item);
+            if (progress != null) {
+                progress.setReadCount(progress.getReadCount() + 1);
+                progress.setRejectedCount(progress.getRejectedCount() + 1);
+                progress.setUpdatedAt(System.currentTimeMillis());
+            }
+            log.warn("学员数据格式错误: {}", reason);
+            return;
+        }
         log.error("Excel 读取异常: ", exception);
+        throw exception;
     }
 
     /**
-     * 验证学员数据
+     * 取消本次导入尚未完成的批次（线程池由调用方管理，不在此关闭）
      */
-    private boolean validateData(StudentImportDTO data) {
-        // 姓名必填
-        if (data.getName() == null || data.getName().trim().isEmpty()) {
-            log.warn("姓名不能为空");
-            return false;
+    @Override
+    public void close() {
+        for (PendingBatch pending : inFlight) {
+            pending.rows().cancel(true);
         }
+        inFlight.clear();
+    }
 
-        // 年龄必填且有效
-        if (data.getAge() == null || data.getAge() < 0 || data.getAge() > 150) {
-            log.warn("年龄无效: {}", data.getAge());
-            return false;
+    /**
+     * 提交当前批次：有线程池时异步校验，否则直接校验并写入
+     */
+    private void submitBatch() {
+        if (cachedDataList.isEmpty()) {
+            return;
+        }
+        List<StudentImportDTO> batch = cachedDataList;
+        cachedDataList = ListUtils.newArrayListWithExpectedSize(batchSize);
+
+        if (executor == null) {
+            saveBatch(processBatch(batch));
+            return;
         }
 
-        return true;
+        inFlight.addLast(new PendingBatch(batch,
+                CompletableFuture.supplyAsync(() -> processBatch(batch), executor)));
+        // 按提交顺序写入已完成的批次；在途批次过多时阻塞等待最早的批次
+        while (!inFlight.isEmpty() && (inFlight.size() > MAX_IN_FLIGHT || inFlight.peekFirst().rows().isDone())) {
+            saveBatch(await(inFlight.pollFirst()));
+        }
     }
 
+    /**
+     * 校验并转换一批数据（工作线程），单行转换异常只影响该行
+     */
+    private List<Row> processBatch(List<StudentImportDTO> batch) {
+        List<Row> rows = new ArrayList<>(batch.size());
+        for (StudentImportDTO dto : batch) {
+            String error = StudentImportValidator.validate(dto, requireIdCard);
+            if (error != null) {
+                rows.add(new Row(dto, null, error));
+                continue;
+            }
+            try {
+                rows.add(new Row(dto, converter.apply(dto), null));
+            } catch (RuntimeException e) {
+                rows.add(new Row(dto, null, "数据转换失败: " + e.getMessage()));
+            }
+        }
+        return rows;
+    }
 
+    /**
+     * 等待批次校验完成；校验任务异常时整批计为校验失败，不丢弃
+     */
+    private List<Row> await(PendingBatch pending) {
+        try {
+            return pending.rows().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("学员导入被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("学员数据批次校验失败，共 {} 条: ", pending.batch().size(), cause);
+            String reason = "数据校验失败: " + cause.getMessage();
+            List<Row> rows = new ArrayList<>(pending.batch().size());
+            for (StudentImportDTO dto : pending.batch()) {
+                rows.add(new Row(dto, null, reason));
+            }
+            return rows;
+        }
+    }
 
     /**
      * 将 DTO 转换为 Student 实体（男众格式）
@@ -166,23 +325,76 @@ public class StudentImportListener implements ReadListener<StudentImportDTO> {
     }
 
     /**
-     * 批量保存学员数据
+     * 去重并批量保存学员数据（读取线程）
      */
-    private void saveBatch() {
-        if (cachedDataList.isEmpty()) {
-            return;
+    private void saveBatch(List<Row> rows) {
+        List<Student> students = new ArrayList<>(rows.size());
+        List<StudentImportDTO> sources = new ArrayList<>(rows.size());
+        int rejected = 0;
+
+        for (Row row : rows) {
+            if (row.error() != null) {
+                failureCount++;
+                rejected++;
+                reject(row.dto(), row.error());
+                log.warn("学员数据验证失败: {}，原因: {}", row.dto().getName(), row.error());
+                continue;
+            }
+            String idCard = row.student().getIdCard();
+            if (idCard != null && !idCard.isEmpty() && !idCards.add(idCard)) {
+                duplicateCount++;
+                rejected++;
+                reject(row.dto(), DUPLICATE_REASON);
+                continue;
+            }
+            students.add(row.student());
+            sources.add(row.dto());
         }
 
-        try {
-            int result = studentMapper.insertBatch(cachedDataList);
-            successCount += result;
-            log.info("批量保存学员成功: {} 条", result);
-        } catch (Exception e) {
-            failureCount += cachedDataList.size();
-            log.error("批量保存学员失败: ", e);
+        int failed = 0;
+        int inserted = 0;
+        if (!students.isEmpty()) {
+            try {
+                inserted = studentMapper.insertBatch(students);
+                successCount += inserted;
+                log.info("批量保存学员成功: {} 条，累计: {} 条", inserted, successCount);
+            } catch (Exception e) {
+                failed = students.size();
+                failureCount += failed;
+                for (int i = 0; i < students.size(); i++) {
+                    String idCard = students.get(i).getIdCard();
+                    if (idCard != null) {
+                        idCards.remove(idCard);
+                    }
+                    Map<String, String> item = new HashMap<>();
+                    item.put("studentNumber", sources.get(i).getNumber());
+                    item.put("name", sources.get(i).getName());
+                    item.put("error", e.getMessage());
+                    failedList.add(item);
+                }
+                log.error("批量保存学员失败: ", e);
+            }
+        }
+
+        if (progress != null) {
+            progress.setImportedCount(progress.getImportedCount() + inserted);
+            progress.setRejectedCount(progress.getRejectedCount() + rejected);
+            progress.setFailedCount(progress.getFailedCount() + failed);
+            progress.setUpdatedAt(System.currentTimeMillis());
         }
     }
 
+    private void reject(StudentImportDTO dto, String reason) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("studentNumber", dto.getNumber());
+        item.put("name", dto.getName());
+        if (dto.getIdCard() != null) {
+            item.put("idCard", dto.getIdCard());
+        }
+        item.put("reason", reason);
+        rejectedList.add(item);
+    }
+
     /**
      * 获取导入成功的条数
      */
@@ -191,9 +403,30 @@ public class StudentImportListener implements ReadListener<StudentImportDTO> {
     }
 
     /**
-     * 获取导入失败的条数
+     * 获取导入失败的条数（校验失败 + 写入失败）
      */
     public int getFailureCount() {
         return failureCount;
     }
+
+    /**
+     * 获取因身份证号重复被拒绝的条数
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * 被拒绝的学员（校验失败或重复，包含原因）
+     */
+    public List<Map<String, Object>> getRejectedList() {
+        return rejectedList;
+    }
+
+    /**
+     * 写入失败的学员
+     */
+    public List<Map<String, String>> getFailedList() {
+        return failedList;
+    }
 }
@@ -0,0 +1,39 @@
+package cc.vipassana.listener;
+
+import cc.vipassana.dto.StudentImportDTO;
+
+/**
+ * 学员导入行校验
+ * Excel 流式导入、分 Sheet 导入与导入预检查共用同一套规则；
+ * 身份证号只在单文件导入与预检查中必填，分 Sheet 导入沿用原规则（姓名、年龄）
+ */
+public final class StudentImportValidator {
+
+    private StudentImportValidator() {
+    }
+
+    /**
+     * 校验一行导入数据（无副作用，可在工作线程中执行）
+     *
+     * @param requireIdCard 是否要求身份证号必填
+     * @return 失败原因，通过返回null
+     */
+    public static String validate(StudentImportDTO data, boolean requireIdCard) {
+        // 姓名必填
+        if (data.getName() == null || data.getName().trim().isEmpty()) {
+            return "姓名不能为空";
+        }
+
+        // 身份证号（课程内去重依据），按调用方要求必填
+        if (requireIdCard && (data.getIdCard() == null || data.getIdCard().trim().isEmpty())) {
+            return "身份证号不能为空";
+        }
+
+        // 年龄必填且有效
+        if (data.getAge() == null || data.getAge() < 0 || data.getAge() > 150) {
+            return "年龄无效: " + data.getAge();
+        }
+
+        return null;
+    }
+}
@@ -1,5 +1,6 @@
 package cc.vipassana.mapper;
 
+import cc.vipassana.dto.report.GroupCount;
 import cc.vipassana.entity.Allocation;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -17,6 +18,21 @@ public interface AllocationMapper {
      */
     List<Allocation> selectBySessionId(@Param("sessionId") Long sessionId);
 
+    /**
+     * 查询期次分配并加行锁（须在事务内调用）
+     */
+    List<Allocation> selectBySessionIdForUpdate(@Param("sessionId") Long sessionId);
+
+    /**
+     * 查询会话内某房间的分配
+     */
+    List<Allocation> selectByRoomId(@Param("sessionId") Long sessionId, @Param("roomId") Long roomId);
+
+    /**
+     * 查询会话内某房间的分配并加锁（交换床位时校验目标床位）
+     */
+    List<Allocation> selectByRoomIdForUpdate(@Param("sessionId") Long sessionId, @Param("roomId") Long roomId);
+
     /**
      * 查询学员的分配
      */
@@ -55,6 +71,11 @@ public interface AllocationMapper {
      */
     int countConflictBySessionId(@Param("sessionId") Long sessionId);
 
+    /**
+     * 按房间统计分配数
+     */
+    List<GroupCount> countByRoomId(@Param("sessionId") Long sessionId);
+
     /**
      * 插入分配
      */
@@ -70,6 +91,32 @@ public interface AllocationMapper {
      */
     int update(Allocation allocation);
 
+    /**
+     * 批量更新分配的房间和床位（单条 UPDATE ... CASE）
+     */
+    int updateBatch(@Param("allocations") List<Allocation> allocations);
+
+    /**
+     * 确认会话内全部暂存分配（单条 UPDATE）
+     *
+     * @return 确认的分配数
+     */
+    int confirmBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * 确认会话内某房间的暂存分配
+     *
+     * @return 确认的分配数
+     */
+    int confirmByRoomId(@Param("sessionId") Long sessionId, @Param("roomId") Long roomId);
+
+    /**
+     * 确认会话内指定学员的暂存分配
+     *
+     * @return 确认的分配数
+     */
+    int confirmByStudentIds(@Param("sessionId") Long sessionId, @Param("studentIds") List<Long> studentIds);
+
     /**
      * 更新分配冲突状态
      */
@@ -79,11 +126,21 @@ public interface AllocationMapper {
         @Param("conflictReason") String conflictReason
     );
 
+    /**
+     * 批量更新分配冲突状态（单条 UPDATE ... CASE）
+     */
+    int updateConflictFlagBatch(@Param("allocations") List<Allocation> allocations);
+
     /**
      * 删除分配
      */
     int delete(@Param("id") Long id);
 
+    /**
+     * 按ID批量删除分配
+     */
+    int deleteByIds(@Param("ids") List<Long> ids);
+
     /**
      * 删除会话内所有分配
      */
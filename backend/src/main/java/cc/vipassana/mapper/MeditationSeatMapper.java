@@ -1,5 +1,6 @@
 package cc.vipassana.mapper;
 
+import cc.vipassana.dto.report.GroupCount;
 import cc.vipassana.entity.MeditationSeat;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -47,6 +48,16 @@ public interface MeditationSeatMapper {
      */
     List<MeditationSeat> selectUnassignedByHallId(@Param("hallId") Long hallId);
 
+    /**
+     * 按区域统计座位数与已分配座位数
+     */
+    List<GroupCount> countByRegionCode(@Param("sessionId") Long sessionId);
+
+    /**
+     * 按性别统计座位数与已分配座位数
+     */
+    List<GroupCount> countByGender(@Param("sessionId") Long sessionId);
+
     /**
      * 插入座位
      */
@@ -62,6 +73,16 @@ public interface MeditationSeatMapper {
      */
     int update(MeditationSeat seat);
 
+    /**
+     * 批量更新座位号（单条 UPDATE ... CASE，只写 seat_number）
+     */
+    int updateSeatNumberBatch(@Param("seats") List<MeditationSeat> seats);
+
+    /**
+     * 批量更新同伴标记（单条 UPDATE ... CASE，只写 is_with_companion、companion_seat_id）
+     */
+    int updateCompanionBatch(@Param("seats") List<MeditationSeat> seats);
+
     /**
      * 删除座位
      */
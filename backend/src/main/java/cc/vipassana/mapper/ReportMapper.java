@@ -0,0 +1,33 @@
+package cc.vipassana.mapper;
+
+import cc.vipassana.dto.report.AllocationExportRow;
+import cc.vipassana.dto.report.RosterExportRow;
+import cc.vipassana.dto.report.SeatChartCell;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
+
+/**
+ * 报表导出 Mapper
+ * 学员、分配、房间、座位在库内联表，直接输出导出行，服务层不再加载查找表
+ */
+@Mapper
+public interface ReportMapper {
+
+    /**
+     * 流式读取房间分配导出行（按楼号、房间号、床位号排序）
+     */
+    Cursor<AllocationExportRow> streamAllocationRows(@Param("sessionId") Long sessionId);
+
+    /**
+     * 流式读取报到名单导出行（每名学员一行，取其第一条分配与最小座位号）
+     */
+    Cursor<RosterExportRow> streamRosterRows(@Param("sessionId") Long sessionId);
+
+    /**
+     * 查询座位图格子（仅有行列位置的座位，按行列排序）
+     */
+    List<SeatChartCell> selectSeatChartCells(@Param("sessionId") Long sessionId);
+}
@@ -22,6 +22,11 @@ public interface RoomMapper {
      */
     Room selectById(@Param("id") Long id);
 
+    /**
+     * 根据ID查询房间并加锁
+     */
+    Room selectByIdForUpdate(@Param("id") Long id);
+
     /**
      * 根据房号查询房间
      */
@@ -47,6 +52,11 @@ public interface RoomMapper {
      */
     List<Room> selectAvailable();
 
+    /**
+     * 查询可用房间并加共享锁（提交预览计划时校验房间未变化）
+     */
+    List<Room> selectAvailableForShare();
+
     /**
      * 分页查询房间
      */
@@ -65,6 +75,16 @@ public interface RoomMapper {
      */
     int insertBatch(@Param("rooms") List<Room> rooms);
 
+    /**
+     * 按中心批量更新已有房间的导入字段（只匹配 center_id 下的房号）
+     */
+    int updateImportBatch(@Param("centerId") Long centerId, @Param("rooms") List<Room> rooms);
+
+    /**
+     * 查询中心内所有房号
+     */
+    List<String> selectRoomNumbersByCenterId(@Param("centerId") Long centerId);
+
     /**
      * 更新房间
      */
@@ -0,0 +1,22 @@
+package cc.vipassana.mapper;
+
+import cc.vipassana.entity.SessionStats;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 期次统计 Mapper
+ */
+@Mapper
+public interface SessionStatsMapper {
+
+    /**
+     * 按期次查询统计
+     */
+    SessionStats selectBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * 按当前学员、分配、座位数据重算期次统计（不存在则插入）
+     */
+    int refresh(@Param("sessionId") Long sessionId);
+}
@@ -1,5 +1,7 @@
 package cc.vipassana.mapper;
 
+import cc.vipassana.dto.StudentFilter;
+import cc.vipassana.dto.report.GroupCount;
 import cc.vipassana.entity.Student;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -17,6 +19,11 @@ public interface StudentMapper {
      */
     List<Student> selectBySessionId(@Param("sessionId") Long sessionId);
 
+    /**
+     * 查询期次学员并加锁（提交预览计划时校验学员未变化）
+     */
+    List<Student> selectBySessionIdForUpdate(@Param("sessionId") Long sessionId);
+
     /**
      * 分页查询学员
      */
@@ -47,6 +54,36 @@ public interface StudentMapper {
      */
     int countBySessionId(@Param("sessionId") Long sessionId);
 
+    /**
+     * 按 (session_id, id) 游标分页查询学员：返回 id 大于 afterId 的前 limit 条
+     *
+     * @param afterId 上一页最后一条的ID，首页传 null
+     */
+    List<Student> selectPageAfterId(@Param("sessionId") Long sessionId,
+                                    @Param("afterId") Long afterId,
+                                    @Param("limit") int limit,
+                                    @Param("filter") StudentFilter filter);
+
+    /**
+     * 按筛选条件统计学员数
+     */
+    int countByFilter(@Param("sessionId") Long sessionId, @Param("filter") StudentFilter filter);
+
+    /**
+     * 按性别统计学员数
+     */
+    List<GroupCount> countByGender(@Param("sessionId") Long sessionId);
+
+    /**
+     * 按学员类型统计学员数（类型按法师、旧生、新生规则推导）
+     */
+    List<GroupCount> countByStudentType(@Param("sessionId") Long sessionId);
+
+    /**
+     * 按年龄分段统计学员数
+     */
+    List<GroupCount> countByAgeGroup(@Param("sessionId") Long sessionId);
+
     /**
      * 按优先级和修学次数查询（用于排序分配）
      */
@@ -62,6 +99,11 @@ public interface StudentMapper {
      */
     List<Student> selectByIds(@Param("ids") List<Long> ids);
 
+    /**
+     * 查询会话内已有的身份证号（导入去重用，只取单列）
+     */
+    List<String> selectIdCardsBySessionId(@Param("sessionId") Long sessionId);
+
     /**
      * 插入学员
      */
@@ -20,6 +20,33 @@ public interface AllocationService {
      */
     AllocationResult autoAllocate(Long sessionId);
 
+    /**
+     * 增量分配（迟到报名与退出）
+     * 已确认的分配保持不动，为新学员填入空床，释放已退出学员的床位，只写变化的记录
+     *
+     * @param sessionId 期次ID
+     * @return 分配结果
+     */
+    AllocationResult allocateIncrementally(Long sessionId);
+
+    /**
+     * 预览自动分配
+     * 在内存中完成分配、冲突检测与统计，不写库；返回的令牌可用于提交该计划
+     *
+     * @param sessionId 期次ID
+     * @return 预览结果
+     */
+    AllocationPreview previewAllocation(Long sessionId);
+
+    /**
+     * 提交预览过的分配计划
+     *
+     * @param sessionId 期次ID
+     * @param token 预览令牌
+     * @return 分配结果
+     */
+    AllocationResult commitPreview(Long sessionId, String token);
+
     /**
      * 对学员进行排序和分类
      * 优先级：法师 > 旧生 > 新生
@@ -77,8 +104,24 @@ public interface AllocationService {
 
     /**
      * 确认分配（从暂存到正式）
+     *
+     * @return 确认的分配数
+     */
+    int confirmAllocations(Long sessionId);
+
+    /**
+     * 确认某房间的暂存分配
+     *
+     * @return 确认的分配数
      */
-    void confirmAllocations(Long sessionId);
+    int confirmAllocationsByRoom(Long sessionId, Long roomId);
+
+    /**
+     * 确认指定学员的暂存分配
+     *
+     * @return 确认的分配数
+     */
+    int confirmAllocationsByStudents(Long sessionId, List<Long> studentIds);
 
     /**
      * 回滚分配（恢复到上一个版本）
@@ -127,6 +170,17 @@ public interface AllocationService {
         public Map<String, Object> statistics;
     }
 
+    /**
+     * 分配预览DTO
+     */
+    class AllocationPreview {
+        public String token;
+        public long expiresAt;
+        public AllocationResult result;
+        public List<Allocation> allocations;
+        public List<AllocationConflict> conflicts;
+    }
+
     /**
      * 分配冲突DTO
      */
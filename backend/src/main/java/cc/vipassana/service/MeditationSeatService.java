@@ -17,6 +17,15 @@ public interface MeditationSeatService {
      */
     List<MeditationSeat> generateSeats(Long sessionId);
 
+    /**
+     * 增量更新会期座位：仅处理新到、取消以及性别/新旧生变化的学员，已就座学员保持原座位
+     * 尚无座位或布局已变化时退回全量生成
+     *
+     * @param sessionId 会期ID
+     * @return 会期全部座位
+     */
+    List<MeditationSeat> generateSeatsIncrementally(Long sessionId);
+
     /**
      * 根据会期查询座位列表
      *
@@ -0,0 +1,69 @@
+package cc.vipassana.service;
+
+import cc.vipassana.entity.SessionStats;
+
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * 报告服务接口
+ *
+ * 总数读取写时维护的期次统计，分组计数由数据库聚合查询（GROUP BY + COUNT）得到，只有显式请求时才返回明细行
+ */
+public interface ReportService {
+
+    /**
+     * 期次统计计数（写时维护，按主键读取）
+     */
+    SessionStats getSessionStats(Long sessionId);
+
+    /**
+     * 房间分配报告
+     *
+     * @param includeRows 是否附带分配明细
+     */
+    Map<String, Object> getAllocationReport(Long sessionId, boolean includeRows);
+
+    /**
+     * 禅堂座位报告
+     *
+     * @param includeRows 是否附带座位明细
+     */
+    Map<String, Object> getMeditationSeatReport(Long sessionId, boolean includeRows);
+
+    /**
+     * 学员统计报告（按性别、学员类型、年龄分段计数）
+     */
+    Map<String, Object> getStudentStatisticsReport(Long sessionId);
+
+    /**
+     * 综合报告（仪表盘汇总，不含明细）
+     */
+    Map<String, Object> getComprehensiveReport(Long sessionId);
+
+    /**
+     * 冲突报告
+     */
+    Map<String, Object> getConflictReport(Long sessionId);
+
+    /**
+     * 导出房间分配名单（.xlsx，按楼号、房间、床位排序）
+     *
+     * @param out 输出流（不关闭，由调用方负责）
+     */
+    void exportAllocations(Long sessionId, OutputStream out);
+
+    /**
+     * 导出禅堂座位图（.xlsx，男众、女众各一页，按行列摆放座位号与姓名）
+     *
+     * @param out 输出流（不关闭，由调用方负责）
+     */
+    void exportSeatChart(Long sessionId, OutputStream out);
+
+    /**
+     * 导出报到名单（.xlsx，含房间床位、禅堂座位与签到栏）
+     *
+     * @param out 输出流（不关闭，由调用方负责）
+     */
+    void exportRoster(Long sessionId, OutputStream out);
+}
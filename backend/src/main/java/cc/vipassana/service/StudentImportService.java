@@ -1,8 +1,10 @@
 package cc.vipassana.service;
 
 import cc.vipassana.dto.StudentImportDTO;
+import cc.vipassana.dto.StudentImportProgress;
 import cc.vipassana.entity.Student;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +38,23 @@ public interface StudentImportService {
      */
     Map<String, Object> importStudents(Long sessionId, List<StudentImportDTO> students);
 
+    /**
+     * 流式导入 Excel：逐批校验、去重、写入，返回结果格式与列表导入一致
+     *
+     * @param sessionId 课程ID
+     * @param inputStream Excel 文件流（第一行为表头）
+     * @return 导入结果
+     */
+    Map<String, Object> importStudents(Long sessionId, InputStream inputStream);
+
+    /**
+     * 课程最近一次流式导入的进度
+     *
+     * @param sessionId 课程ID
+     * @return 导入进度，未导入过时返回null
+     */
+    StudentImportProgress getImportProgress(Long sessionId);
+
     /**
      * 检查学员是否已存在于课程中
      * 基于唯一约束: (session_id, id_card)
@@ -1,9 +1,12 @@
 package cc.vipassana.service;
 
+import cc.vipassana.dto.StudentFilter;
 import cc.vipassana.entity.Student;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 学员业务服务接口
@@ -20,6 +23,15 @@ public interface StudentService {
      */
     List<Student> getStudentsBySessionWithPagination(Long sessionId, int page, int size);
 
+    /**
+     * 游标分页获取会话内学员（按ID顺序）
+     *
+     * @param cursor 上一页返回的续页令牌，首页传 null
+     * @param limit 每页条数
+     * @param filter 筛选条件（可为 null）
+     */
+    StudentPage getStudentPage(Long sessionId, String cursor, int limit, StudentFilter filter);
+
     /**
      * 根据ID获取学员
      */
@@ -46,9 +58,9 @@ public interface StudentService {
     int batchImportStudents(Long sessionId, List<Student> students);
 
     /**
-     * 从 Excel 文件导入学员
+     * 从 Excel 文件导入学员（男众、女众分 Sheet）
      */
-    int importStudentsFromExcel(Long sessionId, MultipartFile file) throws Exception;
+    ExcelImportResult importStudentsFromExcel(Long sessionId, MultipartFile file) throws Exception;
 
     /**
      * 删除会话内所有学员
@@ -64,4 +76,27 @@ public interface StudentService {
      * 获取按优先级排序的学员列表（用于分配）
      */
     List<Student> getSortedStudents(Long sessionId);
+
+    /**
+     * 分 Sheet 导入结果
+     */
+    class ExcelImportResult {
+        /** 导入成功条数 */
+        public int importedCount;
+        /** 被拒绝的行（校验失败、格式错误或重复，包含 Sheet 名与原因） */
+        public List<Map<String, Object>> rejectedList = new ArrayList<>();
+        /** 写入失败的行 */
+        public List<Map<String, String>> failedList = new ArrayList<>();
+    }
+
+    /**
+     * 游标分页结果
+     */
+    class StudentPage {
+        public List<Student> students;
+        /** 续页令牌，没有下一页时为 null */
+        public String nextCursor;
+        /** 符合筛选条件的学员总数 */
+        public int total;
+    }
 }
@@ -0,0 +1,63 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Student;
+import cc.vipassana.service.AllocationService;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 房间分配计划
+ * AllocationPlanner 的纯内存输出，不包含任何数据库状态（分配记录无ID）
+ * 由 AllocationPlanCommitter 负责持久化
+ *
+ * @param sessionId 期次ID
+ * @param totalStudents 参与分配的学员总数
+ * @param allocations 分配结果（已完成同伴分离并带冲突标记）
+ * @param unallocatedStudents 因床位不足未分配的学员
+ * @param conflicts 同伴冲突
+ * @param statistics 统计信息
+ * @param snapshot 规划所用的期次快照（含计划分配，供后续排座复用）
+ */
+public record AllocationPlan(Long sessionId,
+                             int totalStudents,
+                             List<Allocation> allocations,
+                             List<Student> unallocatedStudents,
+                             List<AllocationService.AllocationConflict> conflicts,
+                             Map<String, Object> statistics,
+                             SessionSnapshot snapshot) {
+
+    public AllocationPlan {
+        allocations = List.copyOf(allocations);
+        unallocatedStudents = List.copyOf(unallocatedStudents);
+        conflicts = List.copyOf(conflicts);
+        statistics = Collections.unmodifiableMap(new LinkedHashMap<>(statistics));
+    }
+
+    /**
+     * 已分配学员数
+     */
+    public int allocatedCount() {
+        return allocations.size();
+    }
+
+    /**
+     * 分配成功率（已分配 / 总数）
+     */
+    public double allocationScore() {
+        if (totalStudents == 0) {
+            return 0.0;
+        }
+        return (double) allocations.size() / totalStudents;
+    }
+
+    /**
+     * 是否全部分配
+     */
+    public boolean isComplete() {
+        return allocations.size() == totalStudents;
+    }
+}
@@ -0,0 +1,203 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.MeditationSeat;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import cc.vipassana.mapper.AllocationMapper;
+import cc.vipassana.mapper.MeditationSeatMapper;
+import cc.vipassana.mapper.RoomMapper;
+import cc.vipassana.mapper.StudentMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 分配计划提交器
+ * 负责将 AllocationPlan 持久化，事务只覆盖最终写库
+ * 写入的是计划内分配的副本，计划本身保持不变（可重复提交或仅用于预览）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AllocationPlanCommitter {
+
+    /**
+     * 单条批量 SQL 的最大行数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private final AllocationMapper allocationMapper;
+    private final MeditationSeatMapper meditationSeatMapper;
+    private final StudentMapper studentMapper;
+    private final RoomMapper roomMapper;
+
+    /**
+     * 覆盖式提交：清除期次原有分配与座位，写入计划分配及座位
+     *
+     * @param plan 分配计划
+     * @param seats 禅堂座位（可为空列表）
+     * @return 写入的分配数
+     */
+    @Transactional
+    public int commit(AllocationPlan plan, List<MeditationSeat> seats) {
+        Long sessionId = plan.sessionId();
+        int deletedCount = allocationMapper.deleteBySessionId(sessionId);
+        meditationSeatMapper.deleteBySessionId(sessionId);
+        log.info("清除分配完成，删除 {} 条分配记录", deletedCount);
+
+        int inserted = insertAllocations(plan);
+        insertSeats(seats);
+        log.info("分配计划已提交，期次ID: {}，分配: {}，座位: {}", sessionId, inserted, seats.size());
+        return inserted;
+    }
+
+    /**
+     * 校验后覆盖式提交（提交预览计划）
+     * 在事务内锁定期次分配、学员与可用房间后重算输入版本，与预览时的版本不一致则拒绝提交；
+     * 校验通过后才调用 claim 占用令牌，占用失败说明计划已被提交
+     *
+     * @param plan 分配计划
+     * @param seats 禅堂座位（可为空列表）
+     * @param expectedVersion 预览时的输入版本（planInputVersion）
+     * @param claim 占用预览令牌，返回false表示令牌已被使用
+     * @return 写入的分配数
+     */
+    @Transactional
+    public int commitVerified(AllocationPlan plan, List<MeditationSeat> seats,
+                              String expectedVersion, BooleanSupplier claim) {
+        Long sessionId = plan.sessionId();
+        String current = inputVersion(allocationMapper.selectBySessionIdForUpdate(sessionId),
+                studentMapper.selectBySessionIdForUpdate(sessionId),
+                roomMapper.selectAvailableForShare());
+        if (!current.equals(expectedVersion)) {
+            throw new IllegalStateException("学员、房间或已有分配已变化，请重新预览");
+        }
+        if (!claim.getAsBoolean()) {
+            throw new IllegalStateException("预览计划已被提交");
+        }
+        return commit(plan, seats);
+    }
+
+    /**
+     * 规划输入数据的版本摘要：期次学员、可用房间、已有分配的全部字段（含状态、预留、确认与更新时间）
+     * 预览时在事务外读取，提交时由 commitVerified 在加锁后重算比对
+     */
+    public String planInputVersion(Long sessionId) {
+        return inputVersion(allocationMapper.selectBySessionId(sessionId),
+                studentMapper.selectBySessionId(sessionId),
+                roomMapper.selectAvailable());
+    }
+
+    /**
+     * 追加式提交：仅写入计划分配，不清除原有数据
+     *
+     * @param plan 分配计划
+     * @return 写入的分配数
+     */
+    @Transactional
+    public int insertAllocations(AllocationPlan plan) {
+        List<Allocation> rows = plan.allocations().stream()
+                .map(this::copyOf)
+                .collect(Collectors.toList());
+        insertInBatches(rows, allocationMapper::insertBatch);
+        return rows.size();
+    }
+
+    /**
+     * 增量提交：删除释放的分配、更新移动的分配、写入新增分配，其余记录不动
+     * 先在事务内锁定期次分配并与规划时的版本比对，规划期间分配被改动则拒绝提交
+     *
+     * @param sessionId 期次ID
+     * @param result 增量分配结果
+     * @param plannedVersion 规划时已有分配的版本（allocationVersion）
+     */
+    @Transactional
+    public void commitIncremental(Long sessionId, IncrementalAllocator.Result result, String plannedVersion) {
+        List<Allocation> current = allocationMapper.selectBySessionIdForUpdate(sessionId);
+        if (!allocationVersion(current).equals(plannedVersion)) {
+            throw new IllegalStateException("已有分配在规划期间已变化，请重新执行增量分配");
+        }
+
+        List<Long> releasedIds = result.released().stream()
+                .map(Allocation::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        insertInBatches(releasedIds, allocationMapper::deleteByIds);
+        insertInBatches(result.moved(), allocationMapper::updateBatch);
+        insertInBatches(result.inserted(), allocationMapper::insertBatch);
+        log.info("增量分配已提交，新增: {}，移动: {}，释放: {}",
+                result.inserted().size(), result.moved().size(), releasedIds.size());
+    }
+
+    /**
+     * 已有分配的版本：按ID排序后的全部字段（规划前计算，规划会就地修改被移动的分配）
+     */
+    public static String allocationVersion(List<Allocation> allocations) {
+        return sortedById(allocations, Allocation::getId);
+    }
+
+    private static String inputVersion(List<Allocation> allocations, List<Student> students, List<Room> rooms) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(sortedById(students, Student::getId).getBytes(StandardCharsets.UTF_8));
+            digest.update(sortedById(rooms, Room::getId).getBytes(StandardCharsets.UTF_8));
+            digest.update(sortedById(allocations, Allocation::getId).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static <T> String sortedById(List<T> rows, Function<T, Long> id) {
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(id, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return sorted.toString();
+    }
+
+    /**
+     * 批量写入禅堂座位
+     */
+    @Transactional
+    public void insertSeats(List<MeditationSeat> seats) {
+        insertInBatches(seats, meditationSeatMapper::insertBatch);
+    }
+
+    /**
+     * 按 BATCH_SIZE 切分后批量执行
+     */
+    private <T> void insertInBatches(List<T> rows, Consumer<List<T>> batchWriter) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, rows.size());
+            batchWriter.accept(rows.subList(from, to));
+        }
+    }
+
+    private Allocation copyOf(Allocation source) {
+        return Allocation.builder()
+                .sessionId(source.getSessionId())
+                .studentId(source.getStudentId())
+                .roomId(source.getRoomId())
+                .bedNumber(source.getBedNumber())
+                .allocationType(source.getAllocationType())
+                .allocationReason(source.getAllocationReason())
+                .isTemporary(source.getIsTemporary())
+                .conflictFlag(source.getConflictFlag())
+                .conflictReason(source.getConflictReason())
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package cc.vipassana.service.allocation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预览分配计划暂存
+ * 预览生成的计划按令牌保存在内存中，提交时先查看、校验通过后再移除，提交后即失效
+ * 超过有效期的计划在每次存取时清理，数量达到上限时淘汰最早保存的计划
+ */
+@Slf4j
+@Component
+public class AllocationPlanStore {
+
+    /**
+     * 计划有效期（毫秒）
+     */
+    private static final long TTL_MILLIS = 30 * 60 * 1000L;
+
+    /**
+     * 最多保留的计划数，超出时淘汰最早保存的计划
+     */
+    private static final int MAX_PLANS = 200;
+
+    private final Map<String, StoredPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * 暂存的计划
+     *
+     * @param plan 分配计划
+     * @param inputVersion 规划时期次输入数据（学员、可用房间、已有分配）的版本摘要
+     * @param expiresAt 过期时间戳
+     */
+    public record StoredPlan(AllocationPlan plan, String inputVersion, long expiresAt) {
+    }
+
+    /**
+     * 保存计划
+     *
+     * @param inputVersion 规划时期次输入数据的版本摘要，提交时据此判断数据是否已变化
+     * @return 提交令牌
+     */
+    public String save(AllocationPlan plan, String inputVersion) {
+        evictExpired();
+        while (plans.size() >= MAX_PLANS) {
+            evictOldest();
+        }
+        String token = UUID.randomUUID().toString().replace("-", "");
+        plans.put(token, new StoredPlan(plan, inputVersion, System.currentTimeMillis() + TTL_MILLIS));
+        log.debug("保存预览计划，期次ID: {}，令牌: {}", plan.sessionId(), token);
+        return token;
+    }
+
+    /**
+     * 查看计划（不移除，校验通过后再调用 remove）
+     *
+     * @return 计划，令牌不存在或已过期时返回null
+     */
+    public StoredPlan peek(String token) {
+        evictExpired();
+        return token == null ? null : plans.get(token);
+    }
+
+    /**
+     * 移除计划（令牌失效）
+     *
+     * @return 是否由本次调用移除；并发提交同一令牌时只有一方返回true
+     */
+    public boolean remove(String token, StoredPlan stored) {
+        return token != null && plans.remove(token, stored);
+    }
+
+    /**
+     * 计划过期时间
+     */
+    public long expiresAt(String token) {
+        StoredPlan stored = plans.get(token);
+        return stored != null ? stored.expiresAt() : 0L;
+    }
+
+    private void evictOldest() {
+        plans.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().expiresAt()))
+                .ifPresent(oldest -> {
+                    plans.remove(oldest.getKey(), oldest.getValue());
+                    log.debug("预览计划数量达到上限，淘汰令牌: {}", oldest.getKey());
+                });
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        plans.entrySet().removeIf(entry -> entry.getValue().expiresAt() < now);
+    }
+}
@@ -0,0 +1,231 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import cc.vipassana.service.AllocationService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 房间分配规划器
+ * 纯内存计算：性别分组 → 房间队列 → 床位游标 → 同伴分离 → 冲突检测 → 统计
+ * 不访问数据库，输入学员与房间，输出不可变的 AllocationPlan
+ */
+@Slf4j
+public class AllocationPlanner {
+
+    private Long seed;
+    private CompanionSplitOptimizer splitOptimizer;
+    private AllocationSolver solver;
+
+    /**
+     * 生成分配计划
+     * 分配顺序：法师房 → 旧生房 → 新生房 → 老人房1 → 老人房2
+     *
+     * @param sessionId 期次ID
+     * @param students 已排序的学员列表
+     * @param rooms 可用房间列表
+     * @return 分配计划
+     */
+    public AllocationPlan plan(Long sessionId, List<Student> students, List<Room> rooms) {
+        log.info("开始规划床位，学员数: {}", students.size());
+
+        if (rooms.isEmpty()) {
+            log.warn("没有可用房间！");
+            throw new RuntimeException("没有可用房间");
+        }
+
+        // 期次快照：性别分组、同伴组、学员索引只构建一次
+        SessionSnapshot snapshot = SessionSnapshot.of(sessionId, students, List.of());
+
+        List<Allocation> allocations = new ArrayList<>();
+        List<Student> unallocated = new ArrayList<>();
+
+        // 为男女分别分配房间
+        for (Map.Entry<String, List<Student>> entry : snapshot.studentsByGenderArea().entrySet()) {
+            String genderArea = entry.getKey();
+            List<Student> genderStudents = entry.getValue();
+
+            log.info("开始分配 {} 学员，共 {} 人", genderArea, genderStudents.size());
+
+            // 使用RoomQueueBuilder构建房间队列（按VBA固定顺序）
+            RoomQueueBuilder queueBuilder = new RoomQueueBuilder(rooms);
+            if (seed != null) {
+                queueBuilder.setSeed(seed);
+            }
+            Queue<Room> roomQueue = queueBuilder.buildQueue(genderArea);
+
+            if (roomQueue.isEmpty()) {
+                log.warn("没有可用的 {} 房间", genderArea);
+                unallocated.addAll(genderStudents);
+                continue;
+            }
+
+            // 使用RoomCursor管理床位分配，占用情况记录在按队列顺序建立的床位台账中
+            RoomCursor cursor = new RoomCursor(new BedLedger(roomQueue));
+
+            // 容量溢出检测
+            int availableCapacity = cursor.getRemainingCapacity();
+            if (availableCapacity < genderStudents.size()) {
+                log.warn("床位容量不足！{} 区域需要 {} 个床位，但只有 {} 个可用床位",
+                        genderArea, genderStudents.size(), availableCapacity);
+            }
+
+            int genderAllocated = 0;
+
+            // 按顺序分配学员
+            for (Student student : genderStudents) {
+                Room room = cursor.hasNext() ? cursor.nextAvailableRoom() : null;
+                if (room == null) {
+                    log.warn("床位不足，无法分配学员: {}", student.getName());
+                    unallocated.add(student);
+                    continue;
+                }
+
+                // 床位号由台账给出（房间内最小空床）
+                int bedNumber = cursor.getCurrentBedNumber();
+
+                allocations.add(Allocation.builder()
+                        .sessionId(sessionId)
+                        .studentId(student.getId())
+                        .roomId(room.getId())
+                        .bedNumber(bedNumber)
+                        .allocationType("AUTOMATIC")
+                        .allocationReason("按房间类型优先级自动分配")
+                        .isTemporary(true)
+                        .conflictFlag(false)
+                        .build());
+                genderAllocated++;
+
+                log.debug("已分配: {} ({}) -> 房间ID: {}, 床位: {}",
+                        student.getName(), genderArea, room.getId(), bedNumber);
+            }
+
+            log.info("{} 学员分配完成，已分配: {} 人", genderArea, genderAllocated);
+        }
+
+        // 同伴分离：
+        // - 约束求解：以顺序填充结果为初始解，求解结果替换分配（同伴分离已在目标函数中）
+        // - 评分优化：多起点局部搜索（原地修改）
+        // - 默认：CompanionSplitter 贪心分离（原地修改）
+        if (solver != null) {
+            if (seed != null) {
+                solver.setSeed(seed);
+            }
+            AllocationSolver.Result result = solver.solve(sessionId, students, rooms, allocations);
+            allocations = new ArrayList<>(result.allocations());
+            unallocated = new ArrayList<>(result.unallocatedStudents());
+        } else if (splitOptimizer != null) {
+            if (seed != null) {
+                splitOptimizer.setSeed(seed);
+            }
+            splitOptimizer.optimize(allocations, students, rooms);
+        } else {
+            CompanionSplitter splitter = new CompanionSplitter();
+            if (seed != null) {
+                splitter.setSeed(seed);
+            }
+            splitter.splitCompanions(allocations, snapshot);
+        }
+
+        // 检测冲突并标记到计划内的分配记录
+        SessionSnapshot planned = snapshot.withAllocations(allocations);
+        List<AllocationService.AllocationConflict> conflicts = new ConflictDetector().detect(planned);
+        markConflicts(planned, conflicts);
+
+        AllocationPlan plan = new AllocationPlan(sessionId, students.size(), allocations,
+                unallocated, conflicts, buildStatistics(planned), planned);
+        log.info("规划完成: {}/{} ({}%)，冲突数: {}", plan.allocatedCount(), plan.totalStudents(),
+                String.format("%.2f", plan.allocationScore() * 100), conflicts.size());
+        return plan;
+    }
+
+    /**
+     * 设置随机种子（用于可复现的规划与基准测试）
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 设置同伴分离优化器（为空时使用 CompanionSplitter 贪心分离）
+     */
+    public void setSplitOptimizer(CompanionSplitOptimizer splitOptimizer) {
+        this.splitOptimizer = splitOptimizer;
+    }
+
+    /**
+     * 设置约束求解引擎（为空时使用按房间类型优先级的顺序填充）
+     */
+    public void setSolver(AllocationSolver solver) {
+        this.solver = solver;
+    }
+
+    /**
+     * 将冲突标记到分配记录（同一学员多条冲突时以最后一条原因为准）
+     */
+    private void markConflicts(SessionSnapshot snapshot,
+                               List<AllocationService.AllocationConflict> conflicts) {
+        for (AllocationService.AllocationConflict conflict : conflicts) {
+            Allocation allocation = snapshot.allocationOf(conflict.studentId);
+            if (allocation != null) {
+                allocation.setConflictFlag(true);
+                allocation.setConflictReason(conflict.conflictReason);
+            }
+        }
+    }
+
+    /**
+     * 生成详细统计信息
+     */
+    private Map<String, Object> buildStatistics(SessionSnapshot snapshot) {
+        Map<String, Object> stats = new HashMap<>();
+
+        // 学员类型与性别统计（单次遍历）
+        long monkCount = 0;
+        long oldStudentCount = 0;
+        long newStudentCount = 0;
+        long maleCount = 0;
+        long femaleCount = 0;
+        for (Student s : snapshot.students()) {
+            boolean monk = "法师".equals(s.getSpecialNotes());
+            if (monk) {
+                monkCount++;
+            } else if (s.getStudyTimes() != null && s.getStudyTimes() > 0) {
+                oldStudentCount++;
+            } else if (s.getStudyTimes() != null && s.getStudyTimes() == 0) {
+                newStudentCount++;
+            }
+            if ("M".equals(s.getGender())) {
+                maleCount++;
+            } else if ("F".equals(s.getGender())) {
+                femaleCount++;
+            }
+        }
+
+        stats.put("monkCount", monkCount);
+        stats.put("oldStudentCount", oldStudentCount);
+        stats.put("newStudentCount", newStudentCount);
+        stats.put("maleCount", maleCount);
+        stats.put("femaleCount", femaleCount);
+
+        // 同伴组统计
+        long companionGroupCount = snapshot.fellowGroups().size();
+        long companionStudentCount = snapshot.fellowGroups().values().stream()
+                .mapToLong(List::size)
+                .sum();
+
+        stats.put("companionGroupCount", companionGroupCount);
+        stats.put("companionStudentCount", companionStudentCount);
+
+        // 房间利用统计
+        long usedRoomCount = snapshot.allocationsByRoom().size();
+
+        stats.put("usedRoomCount", usedRoomCount);
+
+        log.debug("统计信息: {}", stats);
+        return stats;
+    }
+}
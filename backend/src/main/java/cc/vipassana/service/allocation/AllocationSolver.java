@@ -0,0 +1,497 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.common.RoomType;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 约束求解分配引擎
+ * 将学员、房间、床位建模为约束问题，在时间预算内用模拟退火搜索最优解
+ *
+ * 硬约束：性别区域一致、不超过房间容量、房间启用且未预留
+ * 软目标（惩罚越低越好）：
+ * - 未分配学员        × 100000
+ * - 同房同伴对        × 500
+ * - 法师与非法师同住  × 200
+ * - 房型不符          × 50（法师→法师房，老人→老人房，旧生→旧生房，新生→新生房）
+ * - 老人不在一楼      × 30
+ * - 房间入住均衡      × 1（各房间入住人数平方和）
+ *
+ * 以贪心填充结果作为初始解，因此求解结果不会劣于贪心路径
+ */
+@Slf4j
+public class AllocationSolver {
+
+    private static final int UNASSIGNED_WEIGHT = 100_000;
+    private static final int COMPANION_WEIGHT = 500;
+    private static final int MONK_MIXED_WEIGHT = 200;
+    private static final int ROOM_TYPE_WEIGHT = 50;
+    private static final int FLOOR_WEIGHT = 30;
+    private static final int BALANCE_WEIGHT = 1;
+
+    private static final double START_TEMPERATURE = 200.0;
+    private static final double END_TEMPERATURE = 0.5;
+
+    /**
+     * 每检查一次时间所执行的迭代数
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final int TYPE_MONK = 0;
+    private static final int TYPE_OLD = 1;
+    private static final int TYPE_NEW = 2;
+    private static final int TYPE_ELDERLY = 3;
+
+    private final long timeBudgetMillis;
+    private final int elderlyAgeThreshold;
+    private long seed = System.nanoTime();
+
+    /**
+     * @param timeBudgetMillis 时间预算（毫秒）
+     * @param elderlyAgeThreshold 老人年龄阈值
+     */
+    public AllocationSolver(long timeBudgetMillis, int elderlyAgeThreshold) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.elderlyAgeThreshold = elderlyAgeThreshold;
+    }
+
+    /**
+     * 评分明细
+     */
+    public record Score(int unassigned, int companionPairs, int mixedMonkPairs,
+                        int roomTypeMismatches, int elderlyUpstairs, long fillSquares) {
+
+        public long total() {
+            return (long) unassigned * UNASSIGNED_WEIGHT
+                    + (long) companionPairs * COMPANION_WEIGHT
+                    + (long) mixedMonkPairs * MONK_MIXED_WEIGHT
+                    + (long) roomTypeMismatches * ROOM_TYPE_WEIGHT
+                    + (long) elderlyUpstairs * FLOOR_WEIGHT
+                    + fillSquares * BALANCE_WEIGHT;
+        }
+    }
+
+    /**
+     * 求解结果
+     *
+     * @param allocations 分配结果（床位按学员顺序在房间内重新编号）
+     * @param unallocatedStudents 未分配学员
+     * @param baselineScore 初始解（贪心）评分
+     * @param score 求解评分
+     * @param iterations 迭代次数
+     */
+    public record Result(List<Allocation> allocations, List<Student> unallocatedStudents,
+                         Score baselineScore, Score score, long iterations) {
+    }
+
+    /**
+     * 求解
+     *
+     * @param sessionId 期次ID
+     * @param students 学员列表（按优先级排序）
+     * @param rooms 可用房间列表
+     * @param initial 初始解（贪心分配结果，可为空列表）
+     * @return 求解结果
+     */
+    public Result solve(Long sessionId, List<Student> students, List<Room> rooms, List<Allocation> initial) {
+        Model model = new Model(students, rooms);
+        int[] roomOf = model.initialState(initial);
+        Score baseline = model.score(roomOf);
+
+        long deadline = System.currentTimeMillis() + timeBudgetMillis;
+        Search search = new Search(model, roomOf, new Random(seed));
+        long iterations = search.run(deadline);
+        Score best = model.score(search.bestRoomOf);
+
+        log.info("约束求解完成，迭代: {}，贪心评分: {} ({})，求解评分: {} ({})",
+                iterations, baseline.total(), baseline, best.total(), best);
+        return model.toResult(sessionId, search.bestRoomOf, baseline, best, iterations);
+    }
+
+    /**
+     * 设置随机种子（用于测试）
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 问题的数组化模型（只读）
+     */
+    private class Model {
+
+        private final List<Student> students;
+        private final List<Room> rooms;
+        private final int n;
+        private final int roomCount;
+        private final int[] gender;
+        private final int[] group;
+        private final boolean[] monk;
+        private final boolean[] elderly;
+        private final int[] expectedType;
+        private final int[] capacity;
+        private final int[] roomGender;
+        private final int[] roomType;
+        private final boolean[] groundFloor;
+        /** 按性别区域划分的可用房间下标 */
+        private final int[][] roomsByGender;
+
+        Model(List<Student> students, List<Room> allRooms) {
+            this.students = students;
+            this.rooms = allRooms.stream().filter(this::usable).toList();
+            this.n = students.size();
+            this.roomCount = rooms.size();
+
+            this.capacity = new int[roomCount];
+            this.roomGender = new int[roomCount];
+            this.roomType = new int[roomCount];
+            this.groundFloor = new boolean[roomCount];
+            boolean[] hasElderlyRoom = new boolean[2];
+            List<List<Integer>> byGender = List.of(new ArrayList<>(), new ArrayList<>());
+            for (int r = 0; r < roomCount; r++) {
+                Room room = rooms.get(r);
+                capacity[r] = room.getCapacity();
+                roomGender[r] = "男".equals(room.getGenderArea()) ? 0 : 1;
+                roomType[r] = typeCode(room.getRoomType());
+                groundFloor[r] = room.getFloor() == null || room.getFloor() <= 1;
+                byGender.get(roomGender[r]).add(r);
+                if (roomType[r] == TYPE_ELDERLY) {
+                    hasElderlyRoom[roomGender[r]] = true;
+                }
+            }
+            this.roomsByGender = new int[2][];
+            for (int g = 0; g < 2; g++) {
+                roomsByGender[g] = byGender.get(g).stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            this.gender = new int[n];
+            this.group = new int[n];
+            this.monk = new boolean[n];
+            this.elderly = new boolean[n];
+            this.expectedType = new int[n];
+            Map<Integer, Integer> groupIndex = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Student student = students.get(i);
+                gender[i] = "M".equals(student.getGender()) ? 0 : 1;
+                group[i] = student.getFellowGroupId() == null ? -1
+                        : groupIndex.computeIfAbsent(student.getFellowGroupId(), k -> groupIndex.size());
+                monk[i] = "法师".equals(student.getSpecialNotes());
+                elderly[i] = student.getAge() != null && student.getAge() >= elderlyAgeThreshold;
+                if (monk[i]) {
+                    expectedType[i] = TYPE_MONK;
+                } else if (elderly[i] && hasElderlyRoom[gender[i]]) {
+                    expectedType[i] = TYPE_ELDERLY;
+                } else if (student.getStudyTimes() != null && student.getStudyTimes() > 0) {
+                    expectedType[i] = TYPE_OLD;
+                } else {
+                    expectedType[i] = TYPE_NEW;
+                }
+            }
+        }
+
+        private boolean usable(Room room) {
+            return "ENABLED".equals(room.getStatus())
+                    && !Boolean.TRUE.equals(room.getIsReserved())
+                    && room.getGenderArea() != null
+                    && room.getCapacity() != null && room.getCapacity() > 0
+                    && typeCode(room.getRoomType()) >= 0;
+        }
+
+        /**
+         * 由贪心结果构造初始解（超出容量或不满足硬约束的分配视为未分配）
+         */
+        int[] initialState(List<Allocation> initial) {
+            Map<Long, Integer> studentIndex = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                studentIndex.put(students.get(i).getId(), i);
+            }
+            Map<Long, Integer> roomIndex = new HashMap<>();
+            for (int r = 0; r < roomCount; r++) {
+                roomIndex.put(rooms.get(r).getId(), r);
+            }
+
+            int[] roomOf = new int[n];
+            Arrays.fill(roomOf, -1);
+            int[] occupancy = new int[roomCount];
+            for (Allocation allocation : initial) {
+                Integer i = studentIndex.get(allocation.getStudentId());
+                Integer r = roomIndex.get(allocation.getRoomId());
+                if (i == null || r == null || roomOf[i] >= 0
+                        || roomGender[r] != gender[i] || occupancy[r] >= capacity[r]) {
+                    continue;
+                }
+                roomOf[i] = r;
+                occupancy[r]++;
+            }
+            return roomOf;
+        }
+
+        /**
+         * 学员 i 住在房间 r 的一元代价
+         */
+        long unary(int i, int r) {
+            long cost = 0;
+            if (expectedType[i] != roomType[r]) {
+                cost += ROOM_TYPE_WEIGHT;
+            }
+            if (elderly[i] && !groundFloor[r]) {
+                cost += FLOOR_WEIGHT;
+            }
+            return cost;
+        }
+
+        /**
+         * 学员 i 与学员 j 同住的二元代价
+         */
+        long pair(int i, int j) {
+            long cost = 0;
+            if (group[i] >= 0 && group[i] == group[j]) {
+                cost += COMPANION_WEIGHT;
+            }
+            if (monk[i] != monk[j]) {
+                cost += MONK_MIXED_WEIGHT;
+            }
+            return cost;
+        }
+
+        Score score(int[] roomOf) {
+            List<List<Integer>> members = members(roomOf);
+            int unassigned = 0;
+            int companionPairs = 0;
+            int mixedMonkPairs = 0;
+            int typeMismatches = 0;
+            int elderlyUpstairs = 0;
+            for (int i = 0; i < n; i++) {
+                int r = roomOf[i];
+                if (r < 0) {
+                    unassigned++;
+                    continue;
+                }
+                if (expectedType[i] != roomType[r]) {
+                    typeMismatches++;
+                }
+                if (elderly[i] && !groundFloor[r]) {
+                    elderlyUpstairs++;
+                }
+                for (int j : members.get(r)) {
+                    if (j <= i) {
+                        continue;
+                    }
+                    if (group[i] >= 0 && group[i] == group[j]) {
+                        companionPairs++;
+                    }
+                    if (monk[i] != monk[j]) {
+                        mixedMonkPairs++;
+                    }
+                }
+            }
+            long fillSquares = 0;
+            for (List<Integer> roomMembers : members) {
+                fillSquares += (long) roomMembers.size() * roomMembers.size();
+            }
+            return new Score(unassigned, companionPairs, mixedMonkPairs,
+                    typeMismatches, elderlyUpstairs, fillSquares);
+        }
+
+        List<List<Integer>> members(int[] roomOf) {
+            List<List<Integer>> members = new ArrayList<>(roomCount);
+            for (int r = 0; r < roomCount; r++) {
+                members.add(new ArrayList<>());
+            }
+            for (int i = 0; i < n; i++) {
+                if (roomOf[i] >= 0) {
+                    members.get(roomOf[i]).add(i);
+                }
+            }
+            return members;
+        }
+
+        /**
+         * 转换为分配记录，房间内床位按学员顺序从1编号
+         */
+        Result toResult(Long sessionId, int[] roomOf, Score baseline, Score score, long iterations) {
+            List<Allocation> allocations = new ArrayList<>();
+            List<Student> unallocated = new ArrayList<>();
+            int[] nextBed = new int[roomCount];
+            for (int i = 0; i < n; i++) {
+                Student student = students.get(i);
+                int r = roomOf[i];
+                if (r < 0) {
+                    unallocated.add(student);
+                    continue;
+                }
+                allocations.add(Allocation.builder()
+                        .sessionId(sessionId)
+                        .studentId(student.getId())
+                        .roomId(rooms.get(r).getId())
+                        .bedNumber(++nextBed[r])
+                        .allocationType("AUTOMATIC")
+                        .allocationReason("约束求解自动分配")
+                        .isTemporary(true)
+                        .conflictFlag(false)
+                        .build());
+            }
+            return new Result(allocations, unallocated, baseline, score, iterations);
+        }
+    }
+
+    /**
+     * 模拟退火搜索：迁移（含未分配学员入住）与同性别交换两类邻域
+     */
+    private static class Search {
+
+        private final Model model;
+        private final Random random;
+        private final int[] roomOf;
+        private final int[] occupancy;
+        private final List<List<Integer>> members;
+        private int[] bestRoomOf;
+        private long current;
+        private long best;
+
+        Search(Model model, int[] initial, Random random) {
+            this.model = model;
+            this.random = random;
+            this.roomOf = initial.clone();
+            this.members = model.members(roomOf);
+            this.occupancy = new int[model.roomCount];
+            for (int r = 0; r < model.roomCount; r++) {
+                occupancy[r] = members.get(r).size();
+            }
+            this.current = model.score(roomOf).total();
+            this.best = current;
+            this.bestRoomOf = roomOf.clone();
+        }
+
+        long run(long deadline) {
+            if (model.n == 0 || model.roomCount == 0) {
+                return 0;
+            }
+            long start = System.currentTimeMillis();
+            double span = Math.max(1, deadline - start);
+            double temperature = START_TEMPERATURE;
+            long iterations = 0;
+
+            while (true) {
+                if (iterations % CHECK_INTERVAL == 0) {
+                    long now = System.currentTimeMillis();
+                    if (now >= deadline) {
+                        break;
+                    }
+                    double progress = (now - start) / span;
+                    temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+                }
+                iterations++;
+
+                int i = random.nextInt(model.n);
+                int[] candidates = model.roomsByGender[model.gender[i]];
+                if (candidates.length == 0) {
+                    continue;
+                }
+                if (roomOf[i] < 0 || random.nextBoolean()) {
+                    tryRelocate(i, candidates[random.nextInt(candidates.length)], temperature);
+                } else {
+                    int r = candidates[random.nextInt(candidates.length)];
+                    List<Integer> roomMembers = members.get(r);
+                    if (r != roomOf[i] && !roomMembers.isEmpty()) {
+                        trySwap(i, roomMembers.get(random.nextInt(roomMembers.size())), temperature);
+                    }
+                }
+            }
+            return iterations;
+        }
+
+        private void tryRelocate(int i, int to, double temperature) {
+            int from = roomOf[i];
+            if (to == from || occupancy[to] >= model.capacity[to]) {
+                return;
+            }
+            long before = from < 0 ? UNASSIGNED_WEIGHT
+                    : model.unary(i, from) + pairCost(i, from, -1)
+                            + BALANCE_WEIGHT * (2L * occupancy[from] - 1);
+            long after = model.unary(i, to) + pairCost(i, to, -1)
+                    + BALANCE_WEIGHT * (2L * occupancy[to] + 1);
+            long delta = after - before;
+            if (accept(delta, temperature)) {
+                if (from >= 0) {
+                    members.get(from).remove(Integer.valueOf(i));
+                    occupancy[from]--;
+                }
+                members.get(to).add(i);
+                occupancy[to]++;
+                roomOf[i] = to;
+                commit(delta);
+            }
+        }
+
+        private void trySwap(int i, int j, double temperature) {
+            int roomI = roomOf[i];
+            int roomJ = roomOf[j];
+            if (roomI < 0 || roomJ < 0 || roomI == roomJ) {
+                return;
+            }
+            long before = model.unary(i, roomI) + pairCost(i, roomI, -1)
+                    + model.unary(j, roomJ) + pairCost(j, roomJ, -1);
+            long after = model.unary(i, roomJ) + pairCost(i, roomJ, j)
+                    + model.unary(j, roomI) + pairCost(j, roomI, i);
+            long delta = after - before;
+            if (accept(delta, temperature)) {
+                members.get(roomI).remove(Integer.valueOf(i));
+                members.get(roomJ).remove(Integer.valueOf(j));
+                members.get(roomI).add(j);
+                members.get(roomJ).add(i);
+                roomOf[i] = roomJ;
+                roomOf[j] = roomI;
+                commit(delta);
+            }
+        }
+
+        /**
+         * 学员 i 与房间 r 内其他成员（不含 excluded）的二元代价之和
+         */
+        private long pairCost(int i, int r, int excluded) {
+            long cost = 0;
+            for (int j : members.get(r)) {
+                if (j != i && j != excluded) {
+                    cost += model.pair(i, j);
+                }
+            }
+            return cost;
+        }
+
+        private boolean accept(long delta, double temperature) {
+            return delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature);
+        }
+
+        private void commit(long delta) {
+            current += delta;
+            if (current < best) {
+                best = current;
+                bestRoomOf = roomOf.clone();
+            }
+        }
+    }
+
+    /**
+     * 参与求解的房间类型（与 RoomQueueBuilder 一致）
+     */
+    private static int typeCode(String roomType) {
+        if (RoomType.MONK.equals(roomType)) {
+            return TYPE_MONK;
+        }
+        if (RoomType.OLD_STUDENT.equals(roomType)) {
+            return TYPE_OLD;
+        }
+        if (RoomType.NEW_STUDENT.equals(roomType)) {
+            return TYPE_NEW;
+        }
+        if (RoomType.ELDERLY.equals(roomType)) {
+            return TYPE_ELDERLY;
+        }
+        return -1;
+    }
+}
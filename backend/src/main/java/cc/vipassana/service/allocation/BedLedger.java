@@ -0,0 +1,219 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 床位台账
+ * 按房间紧凑下标（构造时的房间顺序）记录占用情况，供顺序分配与手动分配校验共用
+ *
+ * 结构：
+ * - bedOffset：房间容量前缀和，房间 i 的床位 b 对应位 bedOffset[i] + b - 1
+ * - beds：床位占用位图
+ * - occupied：每个房间已占用床位数（int[]，不装箱）
+ * - remainingTree：剩余床位的树状数组，支持按下标区间求剩余床位总数
+ *
+ * 单房间容量检查为 O(1)，区间剩余床位为 O(log n)，占用/释放不产生对象分配
+ */
+public class BedLedger {
+
+    private final Room[] rooms;
+    private final LongIndex roomIndex;
+    private final int[] bedOffset;
+    private final int[] occupied;
+    private final int[] remainingTree;
+    private final BitSet beds;
+    private int totalRemaining;
+
+    /**
+     * @param rooms 房间列表，列表顺序即房间下标顺序；同一房间ID重复出现时只保留第一次
+     *              （如未设置 special_tag 的老人房会同时出现在老人房1/2队列中）
+     */
+    public BedLedger(Collection<Room> rooms) {
+        this.roomIndex = new LongIndex(rooms.size());
+        List<Room> unique = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            if (room.getId() != null) {
+                if (roomIndex.get(room.getId()) >= 0) {
+                    continue;
+                }
+                roomIndex.putIfAbsent(room.getId(), unique.size());
+            }
+            unique.add(room);
+        }
+
+        int n = unique.size();
+        this.rooms = unique.toArray(new Room[0]);
+        this.bedOffset = new int[n + 1];
+        this.occupied = new int[n];
+        this.remainingTree = new int[n + 1];
+
+        for (int i = 0; i < n; i++) {
+            Room room = this.rooms[i];
+            int capacity = room.getCapacity() != null ? Math.max(0, room.getCapacity()) : 0;
+            bedOffset[i + 1] = bedOffset[i] + capacity;
+            treeAdd(i, capacity);
+        }
+        this.beds = new BitSet(bedOffset[n]);
+        this.totalRemaining = bedOffset[n];
+    }
+
+    /**
+     * 登记已有分配（房间不在台账中或床位无效的分配忽略）
+     */
+    public void load(List<Allocation> allocations) {
+        for (Allocation allocation : allocations) {
+            if (allocation.getRoomId() == null) {
+                continue;
+            }
+            int index = indexOf(allocation.getRoomId());
+            if (index < 0) {
+                continue;
+            }
+            if (allocation.getBedNumber() != null) {
+                occupy(index, allocation.getBedNumber());
+            } else {
+                occupy(index);
+            }
+        }
+    }
+
+    /**
+     * 房间数
+     */
+    public int size() {
+        return rooms.length;
+    }
+
+    /**
+     * 房间下标，不在台账中时返回 -1
+     */
+    public int indexOf(long roomId) {
+        return roomIndex.get(roomId);
+    }
+
+    public Room room(int index) {
+        return rooms[index];
+    }
+
+    public int capacity(int index) {
+        return bedOffset[index + 1] - bedOffset[index];
+    }
+
+    public int occupied(int index) {
+        return occupied[index];
+    }
+
+    public int remaining(int index) {
+        return capacity(index) - occupied[index];
+    }
+
+    public boolean hasFreeBed(int index) {
+        return occupied[index] < capacity(index);
+    }
+
+    /**
+     * 床位号是否在房间容量范围内
+     */
+    public boolean hasBed(int index, int bedNumber) {
+        return bedNumber >= 1 && bedNumber <= capacity(index);
+    }
+
+    /**
+     * 床位是否空闲（床位号超出容量视为不可用）
+     */
+    public boolean isBedFree(int index, int bedNumber) {
+        return hasBed(index, bedNumber) && !beds.get(bedOffset[index] + bedNumber - 1);
+    }
+
+    /**
+     * 占用房间内床位号最小的空床
+     *
+     * @return 床位号，房间已满时返回 -1
+     */
+    public int occupy(int index) {
+        if (!hasFreeBed(index)) {
+            return -1;
+        }
+        int bit = beds.nextClearBit(bedOffset[index]);
+        beds.set(bit);
+        onOccupied(index, 1);
+        return bit - bedOffset[index] + 1;
+    }
+
+    /**
+     * 占用指定床位
+     *
+     * @return 是否占用成功（床位号无效或已被占用时返回false）
+     */
+    public boolean occupy(int index, int bedNumber) {
+        if (!isBedFree(index, bedNumber)) {
+            return false;
+        }
+        beds.set(bedOffset[index] + bedNumber - 1);
+        onOccupied(index, 1);
+        return true;
+    }
+
+    /**
+     * 释放指定床位（未占用时忽略）
+     */
+    public void release(int index, int bedNumber) {
+        if (!hasBed(index, bedNumber)) {
+            return;
+        }
+        int bit = bedOffset[index] + bedNumber - 1;
+        if (beds.get(bit)) {
+            beds.clear(bit);
+            onOccupied(index, -1);
+        }
+    }
+
+    /**
+     * 下标 [from, size) 区间内的剩余床位总数
+     */
+    public int remainingFrom(int from) {
+        if (from <= 0) {
+            return totalRemaining;
+        }
+        if (from >= rooms.length) {
+            return 0;
+        }
+        return totalRemaining - treeSum(from);
+    }
+
+    /**
+     * 全部剩余床位数
+     */
+    public int totalRemaining() {
+        return totalRemaining;
+    }
+
+    private void onOccupied(int index, int delta) {
+        occupied[index] += delta;
+        totalRemaining -= delta;
+        treeAdd(index, -delta);
+    }
+
+    private void treeAdd(int index, int delta) {
+        for (int i = index + 1; i < remainingTree.length; i += i & -i) {
+            remainingTree[i] += delta;
+        }
+    }
+
+    /**
+     * 下标 [0, end) 的剩余床位之和
+     */
+    private int treeSum(int end) {
+        int sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += remainingTree[i];
+        }
+        return sum;
+    }
+}
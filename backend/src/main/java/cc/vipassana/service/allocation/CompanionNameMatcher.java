@@ -0,0 +1,152 @@
+package cc.vipassana.service.allocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 同伴姓名多模式匹配（Aho–Corasick 自动机）
+ * 用于在 fellow_list 的片段中识别连写的多个已知姓名，如 "张三李四" → [张三, 李四]
+ *
+ * 一次扫描找出片段中所有已知姓名，再按"最左、最长、不重叠"取匹配结果：
+ * 同一起点优先取较长的姓名，被选中的姓名覆盖的字符不再参与其他匹配
+ */
+public class CompanionNameMatcher {
+
+    private static final int ROOT = 0;
+
+    /** 每个状态的首个子状态、兄弟状态与入边字符（子状态链表） */
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final char[] label;
+    /** 失败指针与输出指针（最近的、自身即为姓名结尾的后缀状态） */
+    private final int[] fail;
+    private final int[] outputLink;
+    /** 以该状态结尾的姓名长度与对应学员ID，非结尾状态长度为 0 */
+    private final int[] nameLength;
+    private final Long[] studentIds;
+    /** (状态, 字符) → 子状态 */
+    private final LongIndex transitions;
+    private int stateCount = 1;
+
+    /**
+     * @param nameIndex 规范化后的姓名 → 学员ID
+     */
+    public CompanionNameMatcher(Map<String, Long> nameIndex) {
+        int capacity = 1;
+        for (String name : nameIndex.keySet()) {
+            capacity += name.length();
+        }
+        this.firstChild = new int[capacity];
+        this.nextSibling = new int[capacity];
+        this.label = new char[capacity];
+        this.fail = new int[capacity];
+        this.outputLink = new int[capacity];
+        this.nameLength = new int[capacity];
+        this.studentIds = new Long[capacity];
+        this.transitions = new LongIndex(capacity);
+
+        for (Map.Entry<String, Long> entry : nameIndex.entrySet()) {
+            String name = entry.getKey();
+            if (name == null || name.isEmpty() || entry.getValue() == null) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < name.length(); i++) {
+                state = child(state, name.charAt(i), true);
+            }
+            nameLength[state] = name.length();
+            studentIds[state] = entry.getValue();
+        }
+        buildFailLinks();
+    }
+
+    /**
+     * 在文本中按最左最长、不重叠的规则查找已知姓名
+     *
+     * @return 匹配到的学员ID（按出现顺序，可能重复）
+     */
+    public List<Long> match(String text) {
+        List<Long> result = new ArrayList<>();
+        if (text == null || text.isEmpty() || stateCount == 1) {
+            return result;
+        }
+
+        // 记录每个起点上最长的姓名（结束状态）
+        int[] longestAt = new int[text.length()];
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            for (int out = nameLength[state] > 0 ? state : outputLink[state]; out != ROOT; out = outputLink[out]) {
+                int start = i - nameLength[out] + 1;
+                if (longestAt[start] == ROOT || nameLength[out] > nameLength[longestAt[start]]) {
+                    longestAt[start] = out;
+                }
+            }
+        }
+
+        int pos = 0;
+        while (pos < longestAt.length) {
+            int end = longestAt[pos];
+            if (end == ROOT) {
+                pos++;
+                continue;
+            }
+            result.add(studentIds[end]);
+            pos += nameLength[end];
+        }
+        return result;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int child = child(state, c, false);
+            if (child >= 0) {
+                return child;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int child(int state, char c, boolean create) {
+        long key = ((long) state << 16) | c;
+        int child = transitions.get(key);
+        if (child >= 0 || !create) {
+            return child;
+        }
+        child = stateCount++;
+        label[child] = c;
+        nextSibling[child] = firstChild[state];
+        firstChild[state] = child;
+        transitions.putIfAbsent(key, child);
+        return child;
+    }
+
+    private void buildFailLinks() {
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int c = firstChild[ROOT]; c != ROOT; c = nextSibling[c]) {
+            fail[c] = ROOT;
+            outputLink[c] = ROOT;
+            queue[tail++] = c;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int c = firstChild[state]; c != ROOT; c = nextSibling[c]) {
+                int f = fail[state];
+                int target = child(f, label[c], false);
+                while (target < 0 && f != ROOT) {
+                    f = fail[f];
+                    target = child(f, label[c], false);
+                }
+                fail[c] = target < 0 ? ROOT : target;
+                outputLink[c] = nameLength[fail[c]] > 0 ? fail[c] : outputLink[fail[c]];
+                queue[tail++] = c;
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.common.RoomType;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * 同伴分离优化器
+ * CompanionSplitter 的优化模式：多起点随机局部搜索，按评分保留最优解
+ *
+ * 评分（越低越好）= 性别违规 × 1000 + 同房同伴对 × 10 + 房型不符 × 1
+ * 每个起点使用独立种子，在时间预算内反复尝试两两交换（房间与床位一起交换），
+ * 只接受不使评分变差的交换；各起点并行运行，取评分最低者写回分配（原地修改）
+ */
+@Slf4j
+public class CompanionSplitOptimizer {
+
+    private static final int GENDER_WEIGHT = 1000;
+    private static final int COMPANION_WEIGHT = 10;
+    private static final int ROOM_TYPE_WEIGHT = 1;
+
+    /**
+     * 每个待优化学员尝试的交换对象数
+     */
+    private static final int SWAP_CANDIDATES = 32;
+
+    /**
+     * 单个起点的最大轮数（无改进时提前结束）
+     */
+    private static final int MAX_PASSES = 200;
+
+    private final int restarts;
+    private final long timeBudgetMillis;
+    private long seed = System.nanoTime();
+
+    /**
+     * @param restarts 起点数（不大于0时取CPU核数）
+     * @param timeBudgetMillis 时间预算（毫秒）
+     */
+    public CompanionSplitOptimizer(int restarts, long timeBudgetMillis) {
+        this.restarts = restarts > 0 ? restarts : Runtime.getRuntime().availableProcessors();
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * 评分结果
+     *
+     * @param companionPairs 同房间的同伴对数
+     * @param roomTypeMismatches 房型不符人数
+     * @param genderViolations 性别违规人数
+     */
+    public record Score(int companionPairs, int roomTypeMismatches, int genderViolations) {
+
+        public long total() {
+            return (long) genderViolations * GENDER_WEIGHT
+                    + (long) companionPairs * COMPANION_WEIGHT
+                    + (long) roomTypeMismatches * ROOM_TYPE_WEIGHT;
+        }
+    }
+
+    /**
+     * 执行优化（原地修改分配的房间和床位）
+     *
+     * @param allocations 当前分配结果（原地修改）
+     * @param students 学员列表
+     * @param rooms 房间列表
+     * @return 最优解评分
+     */
+    public Score optimize(List<Allocation> allocations, List<Student> students, List<Room> rooms) {
+        Problem problem = new Problem(allocations, students, rooms);
+        Score initial = problem.score(problem.initialRooms);
+        if (allocations.size() < 2 || initial.total() == 0) {
+            return initial;
+        }
+
+        long deadline = System.currentTimeMillis() + timeBudgetMillis;
+        long baseSeed = seed;
+        Candidate best = IntStream.range(0, restarts)
+                .parallel()
+                .mapToObj(r -> problem.search(new Random(baseSeed + r), deadline))
+                .min(Comparator.comparingLong((Candidate c) -> c.score().total()))
+                .orElseThrow();
+
+        if (best.score().total() >= initial.total()) {
+            log.info("同伴分离优化无改进，评分: {}", initial);
+            return initial;
+        }
+
+        problem.apply(best);
+        log.info("同伴分离优化完成，起点数: {}，评分: {} -> {}", restarts, initial, best.score());
+        return best.score();
+    }
+
+    /**
+     * 设置随机种子（用于测试）
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 单个起点的搜索结果
+     */
+    private record Candidate(int[] roomOf, int[] bedOf, Score score) {
+    }
+
+    /**
+     * 问题的数组化表示，各起点共享只读部分
+     */
+    private static class Problem {
+
+        private final List<Allocation> allocations;
+        private final int n;
+        private final int roomCount;
+        /** 学员同伴组（-1 表示无） */
+        private final int[] group;
+        /** 学员性别区域（0 男，1 女，-1 未知） */
+        private final int[] gender;
+        /** 学员期望房型（-1 表示不限） */
+        private final int[] expectedType;
+        /** 房间性别区域 */
+        private final int[] roomGender;
+        /** 房间房型（-1 表示不参与房型评分） */
+        private final int[] roomType;
+        private final int[] initialRooms;
+        private final int[] initialBeds;
+        private final List<Long> roomIds = new ArrayList<>();
+
+        Problem(List<Allocation> allocations, List<Student> students, List<Room> rooms) {
+            this.allocations = allocations;
+            this.n = allocations.size();
+
+            Map<Long, Student> studentMap = new HashMap<>();
+            for (Student student : students) {
+                studentMap.put(student.getId(), student);
+            }
+            Map<Long, Integer> roomIndex = new HashMap<>();
+            Map<Long, Room> roomMap = new HashMap<>();
+            for (Room room : rooms) {
+                roomMap.put(room.getId(), room);
+            }
+
+            this.group = new int[n];
+            this.gender = new int[n];
+            this.expectedType = new int[n];
+            this.initialRooms = new int[n];
+            this.initialBeds = new int[n];
+            Map<Integer, Integer> groupIndex = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Allocation allocation = allocations.get(i);
+                Student student = studentMap.get(allocation.getStudentId());
+                group[i] = student == null || student.getFellowGroupId() == null ? -1
+                        : groupIndex.computeIfAbsent(student.getFellowGroupId(), k -> groupIndex.size());
+                gender[i] = student == null ? -1 : ("M".equals(student.getGender()) ? 0 : 1);
+                expectedType[i] = student == null ? -1 : expectedRoomType(student);
+                initialRooms[i] = roomIndex.computeIfAbsent(allocation.getRoomId(), id -> {
+                    roomIds.add(id);
+                    return roomIds.size() - 1;
+                });
+                initialBeds[i] = allocation.getBedNumber() != null ? allocation.getBedNumber() : 0;
+            }
+
+            this.roomCount = roomIds.size();
+            this.roomGender = new int[roomCount];
+            this.roomType = new int[roomCount];
+            for (int r = 0; r < roomCount; r++) {
+                Room room = roomMap.get(roomIds.get(r));
+                roomGender[r] = room == null || room.getGenderArea() == null ? -1
+                        : ("男".equals(room.getGenderArea()) ? 0 : 1);
+                roomType[r] = room == null ? -1 : typeCode(room.getRoomType());
+            }
+        }
+
+        /**
+         * 从初始解出发的随机局部搜索
+         */
+        Candidate search(Random random, long deadline) {
+            int[] roomOf = initialRooms.clone();
+            int[] bedOf = initialBeds.clone();
+            List<List<Integer>> members = buildMembers(roomOf);
+
+            for (int pass = 0; pass < MAX_PASSES && System.currentTimeMillis() < deadline; pass++) {
+                List<Integer> pending = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    if (cost(i, roomOf[i], members.get(roomOf[i]), -1) > 0) {
+                        pending.add(i);
+                    }
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                Collections.shuffle(pending, random);
+
+                boolean improved = false;
+                for (int a : pending) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        break;
+                    }
+                    int bestPartner = -1;
+                    long bestDelta = 0;
+                    for (int k = 0; k < SWAP_CANDIDATES; k++) {
+                        int b = random.nextInt(n);
+                        if (roomOf[b] == roomOf[a]) {
+                            continue;
+                        }
+                        long delta = swapDelta(a, b, roomOf, members);
+                        // 允许等值交换以跳出平台，但只记录严格改进
+                        if (delta < bestDelta || (bestPartner < 0 && delta == 0 && random.nextInt(8) == 0)) {
+                            bestDelta = delta;
+                            bestPartner = b;
+                        }
+                    }
+                    if (bestPartner >= 0) {
+                        swap(a, bestPartner, roomOf, bedOf, members);
+                        improved |= bestDelta < 0;
+                    }
+                }
+                if (!improved) {
+                    break;
+                }
+            }
+            return new Candidate(roomOf, bedOf, score(roomOf));
+        }
+
+        /**
+         * 将最优解写回分配记录
+         */
+        void apply(Candidate candidate) {
+            for (int i = 0; i < n; i++) {
+                Allocation allocation = allocations.get(i);
+                allocation.setRoomId(roomIds.get(candidate.roomOf()[i]));
+                allocation.setBedNumber(candidate.bedOf()[i]);
+            }
+        }
+
+        Score score(int[] roomOf) {
+            List<List<Integer>> members = buildMembers(roomOf);
+            int pairs = 0;
+            int mismatches = 0;
+            int violations = 0;
+            for (int i = 0; i < n; i++) {
+                int r = roomOf[i];
+                if (group[i] >= 0) {
+                    for (int j : members.get(r)) {
+                        if (j > i && group[j] == group[i]) {
+                            pairs++;
+                        }
+                    }
+                }
+                if (genderViolated(i, r)) {
+                    violations++;
+                }
+                if (typeMismatched(i, r)) {
+                    mismatches++;
+                }
+            }
+            return new Score(pairs, mismatches, violations);
+        }
+
+        /**
+         * 交换 a、b 两人房间带来的评分变化
+         */
+        private long swapDelta(int a, int b, int[] roomOf, List<List<Integer>> members) {
+            int roomA = roomOf[a];
+            int roomB = roomOf[b];
+            long before = cost(a, roomA, members.get(roomA), -1) + cost(b, roomB, members.get(roomB), -1);
+            long after = cost(a, roomB, members.get(roomB), b) + cost(b, roomA, members.get(roomA), a);
+            return after - before;
+        }
+
+        /**
+         * 学员 i 在房间 r 的代价（不计自身和 excluded）
+         */
+        private long cost(int i, int r, List<Integer> roomMembers, int excluded) {
+            long cost = 0;
+            if (group[i] >= 0) {
+                for (int j : roomMembers) {
+                    if (j != i && j != excluded && group[j] == group[i]) {
+                        cost += COMPANION_WEIGHT;
+                    }
+                }
+            }
+            if (genderViolated(i, r)) {
+                cost += GENDER_WEIGHT;
+            }
+            if (typeMismatched(i, r)) {
+                cost += ROOM_TYPE_WEIGHT;
+            }
+            return cost;
+        }
+
+        private void swap(int a, int b, int[] roomOf, int[] bedOf, List<List<Integer>> members) {
+            int roomA = roomOf[a];
+            int roomB = roomOf[b];
+            members.get(roomA).remove(Integer.valueOf(a));
+            members.get(roomB).remove(Integer.valueOf(b));
+            members.get(roomA).add(b);
+            members.get(roomB).add(a);
+            roomOf[a] = roomB;
+            roomOf[b] = roomA;
+            int bed = bedOf[a];
+            bedOf[a] = bedOf[b];
+            bedOf[b] = bed;
+        }
+
+        private List<List<Integer>> buildMembers(int[] roomOf) {
+            List<List<Integer>> members = new ArrayList<>(roomCount);
+            for (int r = 0; r < roomCount; r++) {
+                members.add(new ArrayList<>());
+            }
+            for (int i = 0; i < n; i++) {
+                members.get(roomOf[i]).add(i);
+            }
+            return members;
+        }
+
+        private boolean genderViolated(int i, int r) {
+            return gender[i] >= 0 && roomGender[r] >= 0 && gender[i] != roomGender[r];
+        }
+
+        private boolean typeMismatched(int i, int r) {
+            return expectedType[i] >= 0 && roomType[r] >= 0 && expectedType[i] != roomType[r];
+        }
+
+        /**
+         * 学员期望房型：法师 → 法师房，旧生 → 旧生房，新生 → 新生房
+         */
+        private static int expectedRoomType(Student student) {
+            if ("法师".equals(student.getSpecialNotes())) {
+                return 0;
+            }
+            if (student.getStudyTimes() == null) {
+                return -1;
+            }
+            return student.getStudyTimes() > 0 ? 1 : 2;
+        }
+
+        /**
+         * 参与房型评分的房间类型；老人房等其他房型不限制入住人群
+         */
+        private static int typeCode(String roomType) {
+            if (RoomType.MONK.equals(roomType)) {
+                return 0;
+            }
+            if (RoomType.OLD_STUDENT.equals(roomType)) {
+                return 1;
+            }
+            if (RoomType.NEW_STUDENT.equals(roomType)) {
+                return 2;
+            }
+            return -1;
+        }
+    }
+}
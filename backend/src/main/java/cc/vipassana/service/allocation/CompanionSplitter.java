@@ -27,14 +27,20 @@ public class CompanionSplitter {
      * @param students 学员列表
      */
     public void splitCompanions(List<Allocation> allocations, List<Student> students) {
-        // 按房间分组
+        splitCompanions(allocations, SessionSnapshot.of(null, students, List.of()));
+    }
+
+    /**
+     * 执行同伴分离（原地修改），学员查找复用期次快照索引
+     *
+     * @param allocations 当前分配结果（原地修改）
+     * @param snapshot 期次快照
+     */
+    public void splitCompanions(List<Allocation> allocations, SessionSnapshot snapshot) {
+        // 按房间分组（分配在分离过程中会被修改，不使用快照中的房间索引）
         Map<Long, List<Allocation>> roomGroups = allocations.stream()
                 .collect(Collectors.groupingBy(Allocation::getRoomId));
 
-        // 构建学员ID到学员对象的映射
-        Map<Long, Student> studentMap = students.stream()
-                .collect(Collectors.toMap(Student::getId, s -> s));
-
         // 检测每个房间内的同伴冲突
         for (Map.Entry<Long, List<Allocation>> entry : roomGroups.entrySet()) {
             Long roomId = entry.getKey();
@@ -42,7 +48,7 @@ public class CompanionSplitter {
 
             // 查找房间内的同伴组
             Map<Integer, List<Allocation>> companionGroups = findCompanionGroupsInRoom(
-                    roomAllocations, studentMap);
+                    roomAllocations, snapshot);
 
             // 如果有同伴在同一房间，进行交换
             for (Map.Entry<Integer, List<Allocation>> companionEntry : companionGroups.entrySet()) {
@@ -52,7 +58,7 @@ public class CompanionSplitter {
                             companionEntry.getValue(),
                             roomId,
                             roomGroups,
-                            studentMap);
+                            snapshot);
                 }
             }
         }
@@ -63,12 +69,12 @@ public class CompanionSplitter {
      */
     private Map<Integer, List<Allocation>> findCompanionGroupsInRoom(
             List<Allocation> roomAllocations,
-            Map<Long, Student> studentMap) {
+            SessionSnapshot snapshot) {
 
         Map<Integer, List<Allocation>> companionGroups = new HashMap<>();
 
         for (Allocation allocation : roomAllocations) {
-            Student student = studentMap.get(allocation.getStudentId());
+            Student student = snapshot.student(allocation.getStudentId());
             if (student != null && student.getFellowGroupId() != null) {
                 companionGroups
                         .computeIfAbsent(student.getFellowGroupId(), k -> new ArrayList<>())
@@ -86,12 +92,12 @@ public class CompanionSplitter {
             List<Allocation> companions,
             Long currentRoomId,
             Map<Long, List<Allocation>> roomGroups,
-            Map<Long, Student> studentMap) {
+            SessionSnapshot snapshot) {
 
         // 保留一个同伴在当前房间，其他成员交换出去
         for (int i = 1; i < companions.size(); i++) {
             Allocation companionToMove = companions.get(i);
-            Student companionStudent = studentMap.get(companionToMove.getStudentId());
+            Student companionStudent = snapshot.student(companionToMove.getStudentId());
 
             // 查找可以交换的目标房间
             for (Map.Entry<Long, List<Allocation>> targetEntry : roomGroups.entrySet()) {
@@ -108,7 +114,7 @@ public class CompanionSplitter {
                 Optional<Allocation> swapTarget = findSwapTarget(
                         targetRoomAllocations,
                         companionStudent.getFellowGroupId(),
-                        studentMap);
+                        snapshot);
 
                 if (swapTarget.isPresent()) {
                     // 执行交换
@@ -125,11 +131,11 @@ public class CompanionSplitter {
     private Optional<Allocation> findSwapTarget(
             List<Allocation> targetRoomAllocations,
             Integer excludeFellowGroupId,
-            Map<Long, Student> studentMap) {
+            SessionSnapshot snapshot) {
 
         return targetRoomAllocations.stream()
                 .filter(allocation -> {
-                    Student student = studentMap.get(allocation.getStudentId());
+                    Student student = snapshot.student(allocation.getStudentId());
                     // 目标学员不能是同一个同伴组
                     return student == null ||
                             student.getFellowGroupId() == null ||
@@ -0,0 +1,67 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Student;
+import cc.vipassana.service.AllocationService;
+
+import java.util.*;
+
+/**
+ * 同伴冲突检测器
+ * 基于期次内学员和分配的一次性查询结果，在内存中检测同伴分离冲突
+ * 同伴组与分配索引取自 SessionSnapshot，不再逐人查库
+ */
+public class ConflictDetector {
+
+    /**
+     * 检测同伴分离冲突
+     *
+     * @param students 期次内学员列表
+     * @param allocations 期次内分配列表
+     * @return 冲突列表（顺序与逐人检测一致）
+     */
+    public List<AllocationService.AllocationConflict> detect(List<Student> students, List<Allocation> allocations) {
+        return detect(SessionSnapshot.of(null, students, allocations));
+    }
+
+    /**
+     * 基于期次快照检测同伴分离冲突（复用快照中的同伴组与分配索引）
+     *
+     * @param snapshot 期次快照
+     * @return 冲突列表（顺序与逐人检测一致）
+     */
+    public List<AllocationService.AllocationConflict> detect(SessionSnapshot snapshot) {
+        List<AllocationService.AllocationConflict> conflicts = new ArrayList<>();
+
+        for (Student student : snapshot.students()) {
+            if (student.getFellowGroupId() == null) {
+                continue;
+            }
+            Allocation studentAlloc = snapshot.allocationOf(student.getId());
+            if (studentAlloc == null) {
+                continue;
+            }
+
+            // 检查同伴是否分配到不同房间
+            for (Student fellow : snapshot.fellowGroup(student.getFellowGroupId())) {
+                if (fellow.getId().equals(student.getId())) {
+                    continue;
+                }
+                Allocation fellowAlloc = snapshot.allocationOf(fellow.getId());
+                if (fellowAlloc == null) {
+                    continue;
+                }
+                if (!Objects.equals(studentAlloc.getRoomId(), fellowAlloc.getRoomId())) {
+                    AllocationService.AllocationConflict conflict = new AllocationService.AllocationConflict();
+                    conflict.studentId = student.getId();
+                    conflict.studentName = student.getName();
+                    conflict.conflictType = "SEPARATED";
+                    conflict.conflictReason = "同伴分离：" + fellow.getName() + "分配到不同房间";
+                    conflicts.add(conflict);
+                }
+            }
+        }
+
+        return conflicts;
+    }
+}
@@ -0,0 +1,173 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 增量房间分配
+ * 用于迟到报名与退出：在已有分配基础上只处理变化的学员，已确认的分配保持不动
+ *
+ * 规则：
+ * - 已退出学员（不在当前名单中）的分配释放
+ * - 已确认（is_temporary=false）的分配固定不动
+ * - 暂存分配仍有效（房间可用、性别区域一致、床位未被占用）时保留，否则重新安排
+ * - 没有分配的学员按 RoomQueueBuilder 的房间顺序填入空床
+ *
+ * 纯内存计算，输出需要新增、移动、删除的分配记录
+ */
+@Slf4j
+public class IncrementalAllocator {
+
+    private Long seed;
+
+    /**
+     * 增量分配结果
+     *
+     * @param inserted 新增的分配（无ID）
+     * @param moved 房间或床位变化的已有分配（已原地修改）
+     * @param released 需要删除的分配
+     * @param unallocatedStudents 床位不足未分配的学员
+     */
+    public record Result(List<Allocation> inserted,
+                         List<Allocation> moved,
+                         List<Allocation> released,
+                         List<Student> unallocatedStudents) {
+
+        public Result {
+            inserted = List.copyOf(inserted);
+            moved = List.copyOf(moved);
+            released = List.copyOf(released);
+            unallocatedStudents = List.copyOf(unallocatedStudents);
+        }
+
+        /**
+         * 是否无任何变化
+         */
+        public boolean isEmpty() {
+            return inserted.isEmpty() && moved.isEmpty() && released.isEmpty();
+        }
+    }
+
+    /**
+     * @param sessionId 期次ID
+     * @param students 已排序的当前学员名单
+     * @param rooms 可用房间列表
+     * @param existing 期次已有分配（移动的记录会被原地修改）
+     */
+    public Result allocate(Long sessionId, List<Student> students, List<Room> rooms, List<Allocation> existing) {
+        Map<Long, Student> studentMap = new HashMap<>();
+        for (Student student : students) {
+            if (student.getId() != null) {
+                studentMap.put(student.getId(), student);
+            }
+        }
+
+        List<Allocation> released = new ArrayList<>();
+        List<Allocation> confirmed = new ArrayList<>();
+        List<Allocation> temporary = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Allocation allocation : existing) {
+            Long studentId = allocation.getStudentId();
+            if (studentId == null || !studentMap.containsKey(studentId) || !seen.add(studentId)) {
+                released.add(allocation);
+            } else if (Boolean.FALSE.equals(allocation.getIsTemporary())) {
+                confirmed.add(allocation);
+            } else {
+                temporary.add(allocation);
+            }
+        }
+
+        // 按性别区域建立房间队列与床位台账
+        Map<String, BedLedger> ledgers = new HashMap<>();
+        for (String genderArea : List.of("男", "女")) {
+            RoomQueueBuilder queueBuilder = new RoomQueueBuilder(rooms);
+            if (seed != null) {
+                queueBuilder.setSeed(seed);
+            }
+            ledgers.put(genderArea, new BedLedger(queueBuilder.buildQueue(genderArea)));
+        }
+
+        // 已确认的分配直接占床（床位冲突也不移动，由冲突检测提示）
+        Set<Long> placed = new HashSet<>();
+        for (Allocation allocation : confirmed) {
+            placed.add(allocation.getStudentId());
+            Student student = studentMap.get(allocation.getStudentId());
+            BedLedger ledger = ledgers.get(SessionSnapshot.genderArea(student));
+            int index = allocation.getRoomId() != null ? ledger.indexOf(allocation.getRoomId()) : -1;
+            if (index < 0 || allocation.getBedNumber() == null
+                    || !ledger.occupy(index, allocation.getBedNumber())) {
+                log.warn("已确认分配的房间或床位无效，保持不动，学员ID: {}", allocation.getStudentId());
+            }
+        }
+
+        // 暂存分配有效则保留，否则等待重新安排
+        Map<Long, Allocation> toMove = new HashMap<>();
+        for (Allocation allocation : temporary) {
+            Student student = studentMap.get(allocation.getStudentId());
+            BedLedger ledger = ledgers.get(SessionSnapshot.genderArea(student));
+            int index = allocation.getRoomId() != null ? ledger.indexOf(allocation.getRoomId()) : -1;
+            if (index >= 0 && allocation.getBedNumber() != null
+                    && ledger.occupy(index, allocation.getBedNumber())) {
+                placed.add(allocation.getStudentId());
+            } else {
+                toMove.put(allocation.getStudentId(), allocation);
+            }
+        }
+
+        // 未安置的学员按名单顺序、房间队列顺序填入空床
+        Map<String, RoomCursor> cursors = new HashMap<>();
+        ledgers.forEach((genderArea, ledger) -> cursors.put(genderArea, new RoomCursor(ledger)));
+
+        List<Allocation> inserted = new ArrayList<>();
+        List<Allocation> moved = new ArrayList<>();
+        List<Student> unallocated = new ArrayList<>();
+        for (Student student : students) {
+            if (student.getId() == null || placed.contains(student.getId())) {
+                continue;
+            }
+            RoomCursor cursor = cursors.get(SessionSnapshot.genderArea(student));
+            Room room = cursor.hasNext() ? cursor.nextAvailableRoom() : null;
+            Allocation previous = toMove.remove(student.getId());
+            if (room == null) {
+                unallocated.add(student);
+                if (previous != null) {
+                    released.add(previous);
+                }
+                continue;
+            }
+
+            if (previous != null) {
+                previous.setRoomId(room.getId());
+                previous.setBedNumber(cursor.getCurrentBedNumber());
+                moved.add(previous);
+            } else {
+                inserted.add(Allocation.builder()
+                        .sessionId(sessionId)
+                        .studentId(student.getId())
+                        .roomId(room.getId())
+                        .bedNumber(cursor.getCurrentBedNumber())
+                        .allocationType("AUTOMATIC")
+                        .allocationReason("增量分配")
+                        .isTemporary(true)
+                        .conflictFlag(false)
+                        .build());
+            }
+            placed.add(student.getId());
+        }
+
+        log.info("增量分配完成: 新增 {}，移动 {}，释放 {}，未分配 {}",
+                inserted.size(), moved.size(), released.size(), unallocated.size());
+        return new Result(inserted, moved, released, unallocated);
+    }
+
+    /**
+     * 设置随机种子（用于可复现的房间队列）
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,50 @@
+package cc.vipassana.service.allocation;
+
+import java.util.Arrays;
+
+/**
+ * long → int 开放寻址表（线性探测），值为列表下标，缺失返回 -1
+ * 用于按学员ID、房间ID定位下标，避免 HashMap 的 Long 装箱
+ */
+final class LongIndex {
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+
+    LongIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(values, -1);
+    }
+
+    void putIfAbsent(long key, int value) {
+        int slot = slot(key);
+        while (values[slot] >= 0) {
+            if (keys[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    int get(long key) {
+        int slot = slot(key);
+        while (values[slot] >= 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
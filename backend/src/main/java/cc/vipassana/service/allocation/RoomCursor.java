@@ -8,17 +8,28 @@ import java.util.Queue;
  * 房间游标
  * 管理房间队列的遍历和床位分配
  * 对应VBA宏中通过索引遍历房间并分配床位的逻辑
+ *
+ * 占用情况记录在 BedLedger 中，游标只保存当前房间下标
  */
 public class RoomCursor {
 
-    private final Queue<Room> roomQueue;
-    private Room currentRoom;
-    private int currentOccupancy;  // 当前房间已分配人数
+    private final BedLedger ledger;
+    private int currentIndex;      // 当前房间下标，-1 表示尚未开始
+    private boolean currentClosed; // 当前房间已被强制关闭
+    private int currentBedNumber;  // 最近一次分配的床位号
 
     public RoomCursor(Queue<Room> roomQueue) {
-        this.roomQueue = roomQueue;
-        this.currentRoom = null;
-        this.currentOccupancy = 0;
+        this(new BedLedger(roomQueue));
+    }
+
+    /**
+     * @param ledger 床位台账，按台账房间顺序遍历（已占满的房间自动跳过）
+     */
+    public RoomCursor(BedLedger ledger) {
+        this.ledger = ledger;
+        this.currentIndex = -1;
+        this.currentClosed = false;
+        this.currentBedNumber = 0;
     }
 
     /**
@@ -28,53 +39,55 @@ public class RoomCursor {
      */
     public Room nextAvailableRoom() {
         // 如果当前房间还有空床位，继续使用
-        if (currentRoom != null && currentOccupancy < currentRoom.getCapacity()) {
-            currentOccupancy++;
-            return currentRoom;
+        if (!currentOpen()) {
+            // 当前房间已满，获取下一个房间
+            int next = currentIndex + 1;
+            while (next < ledger.size() && !ledger.hasFreeBed(next)) {
+                next++;
+            }
+            if (next >= ledger.size()) {
+                currentIndex = ledger.size();
+                return null;
+            }
+            currentIndex = next;
+            currentClosed = false;
         }
 
-        // 当前房间已满，获取下一个房间
-        currentRoom = roomQueue.poll();
-        if (currentRoom != null) {
-            currentOccupancy = 1;
-            return currentRoom;
-        }
+        currentBedNumber = ledger.occupy(currentIndex);
+        return ledger.room(currentIndex);
+    }
 
-        return null;
+    /**
+     * 最近一次 nextAvailableRoom 分配的床位号
+     */
+    public int getCurrentBedNumber() {
+        return currentBedNumber;
     }
 
     /**
      * 检查是否还有可用房间
      */
     public boolean hasNext() {
-        return (currentRoom != null && currentOccupancy < currentRoom.getCapacity())
-                || !roomQueue.isEmpty();
+        return currentOpen() || ledger.remainingFrom(currentIndex + 1) > 0;
     }
 
     /**
      * 获取剩余可用床位总数
      */
     public int getRemainingCapacity() {
-        int remaining = 0;
-
-        // 当前房间剩余床位
-        if (currentRoom != null) {
-            remaining += currentRoom.getCapacity() - currentOccupancy;
-        }
-
-        // 队列中所有房间的容量
-        for (Room room : roomQueue) {
-            remaining += room.getCapacity();
-        }
-
-        return remaining;
+        int remaining = currentOpen() ? ledger.remaining(currentIndex) : 0;
+        return remaining + ledger.remainingFrom(currentIndex + 1);
     }
 
     /**
      * 重置当前房间（强制切换到下一个房间）
      */
     public void resetCurrentRoom() {
-        currentRoom = null;
-        currentOccupancy = 0;
+        currentClosed = true;
+    }
+
+    private boolean currentOpen() {
+        return currentIndex >= 0 && currentIndex < ledger.size()
+                && !currentClosed && ledger.hasFreeBed(currentIndex);
     }
 }
@@ -46,6 +46,10 @@ public class RoomQueueBuilder {
         // 5. 老人房2
         orderedRooms.addAll(filterAndShuffle(RoomType.ELDERLY, RoomType.SpecialTag.ELDERLY_2, genderArea));
 
+        // 未设置 special_tag 的老人房同时匹配老人房1/2，只保留第一次出现的位置
+        Set<Long> seen = new HashSet<>();
+        orderedRooms.removeIf(room -> room.getId() != null && !seen.add(room.getId()));
+
         return new LinkedList<>(orderedRooms);
     }
 
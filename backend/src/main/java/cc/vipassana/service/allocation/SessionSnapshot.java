@@ -0,0 +1,163 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Student;
+
+import java.util.*;
+
+/**
+ * 期次快照
+ * 每次分配/排座流程只构建一次，在各环节之间传递，避免各自重复 groupingBy / toMap
+ *
+ * 索引：
+ * - 学员ID → 学员、学员ID → 分配（基本类型 long 键的开放寻址表，不装箱）
+ * - 性别区域 → 学员（"M" 为男，其余为女，与分配规划一致）
+ * - 同伴组ID → 组内学员（按ID升序）
+ * - 房间ID → 房间内分配
+ *
+ * 快照的列表与索引不可变；其中的实体对象不复制，仍是构建时传入的原对象：
+ * - 索引键字段（学员ID、分配的学员ID/房间ID）不得修改，否则索引失效
+ * - 由读路径传入的实体（可能与缓存共享）应先复制再修改，见 AllocationServiceImpl#markConflicts
+ * - 规划流程自己生成的分配（withAllocations）可以就地标记冲突等非索引字段
+ */
+public final class SessionSnapshot {
+
+    private final Long sessionId;
+    private final List<Student> students;
+    private final List<Allocation> allocations;
+    private final LongIndex studentIndex;
+    private final LongIndex allocationIndex;
+    private final Map<String, List<Student>> studentsByGenderArea;
+    private final Map<Integer, List<Student>> fellowGroups;
+    private final Map<Long, List<Allocation>> allocationsByRoom;
+
+    private SessionSnapshot(Long sessionId,
+                            List<Student> students,
+                            LongIndex studentIndex,
+                            Map<String, List<Student>> studentsByGenderArea,
+                            Map<Integer, List<Student>> fellowGroups,
+                            List<Allocation> allocations) {
+        this.sessionId = sessionId;
+        this.students = students;
+        this.studentIndex = studentIndex;
+        this.studentsByGenderArea = studentsByGenderArea;
+        this.fellowGroups = fellowGroups;
+        this.allocations = List.copyOf(allocations);
+
+        this.allocationIndex = new LongIndex(this.allocations.size());
+        Map<Long, List<Allocation>> byRoom = new LinkedHashMap<>();
+        for (int i = 0; i < this.allocations.size(); i++) {
+            Allocation allocation = this.allocations.get(i);
+            if (allocation.getStudentId() != null) {
+                allocationIndex.putIfAbsent(allocation.getStudentId(), i);
+            }
+            if (allocation.getRoomId() != null) {
+                byRoom.computeIfAbsent(allocation.getRoomId(), k -> new ArrayList<>()).add(allocation);
+            }
+        }
+        byRoom.replaceAll((k, v) -> List.copyOf(v));
+        this.allocationsByRoom = Collections.unmodifiableMap(byRoom);
+    }
+
+    /**
+     * 构建快照
+     *
+     * @param sessionId 期次ID
+     * @param students 学员列表（保持原有顺序）
+     * @param allocations 分配列表
+     */
+    public static SessionSnapshot of(Long sessionId, List<Student> students, List<Allocation> allocations) {
+        List<Student> studentList = List.copyOf(students);
+        LongIndex studentIndex = new LongIndex(studentList.size());
+        Map<String, List<Student>> byGenderArea = new LinkedHashMap<>();
+        Map<Integer, List<Student>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < studentList.size(); i++) {
+            Student student = studentList.get(i);
+            if (student.getId() != null) {
+                studentIndex.putIfAbsent(student.getId(), i);
+            }
+            byGenderArea.computeIfAbsent(genderArea(student), k -> new ArrayList<>()).add(student);
+            if (student.getFellowGroupId() != null) {
+                groups.computeIfAbsent(student.getFellowGroupId(), k -> new ArrayList<>()).add(student);
+            }
+        }
+        byGenderArea.replaceAll((k, v) -> List.copyOf(v));
+        groups.replaceAll((k, v) -> {
+            v.sort(Comparator.comparing(Student::getId));
+            return List.copyOf(v);
+        });
+        return new SessionSnapshot(sessionId, studentList, studentIndex,
+                Collections.unmodifiableMap(byGenderArea), Collections.unmodifiableMap(groups), allocations);
+    }
+
+    /**
+     * 复用学员索引，替换分配（规划过程中分配结果变化后使用）
+     */
+    public SessionSnapshot withAllocations(List<Allocation> allocations) {
+        return new SessionSnapshot(sessionId, students, studentIndex,
+                studentsByGenderArea, fellowGroups, allocations);
+    }
+
+    /**
+     * 学员的性别区域："M" 为男，其余为女
+     */
+    public static String genderArea(Student student) {
+        return "M".equals(student.getGender()) ? "男" : "女";
+    }
+
+    public Long sessionId() {
+        return sessionId;
+    }
+
+    public List<Student> students() {
+        return students;
+    }
+
+    public List<Allocation> allocations() {
+        return allocations;
+    }
+
+    /**
+     * 按ID查找学员，不存在时返回null
+     */
+    public Student student(long studentId) {
+        int index = studentIndex.get(studentId);
+        return index >= 0 ? students.get(index) : null;
+    }
+
+    /**
+     * 学员的分配，未分配时返回null
+     */
+    public Allocation allocationOf(long studentId) {
+        int index = allocationIndex.get(studentId);
+        return index >= 0 ? allocations.get(index) : null;
+    }
+
+    /**
+     * 性别区域（男/女）→ 学员，保持原有顺序
+     */
+    public Map<String, List<Student>> studentsByGenderArea() {
+        return studentsByGenderArea;
+    }
+
+    /**
+     * 同伴组ID → 组内学员（按ID升序）
+     */
+    public Map<Integer, List<Student>> fellowGroups() {
+        return fellowGroups;
+    }
+
+    /**
+     * 同伴组内学员，不存在时返回空列表
+     */
+    public List<Student> fellowGroup(Integer fellowGroupId) {
+        return fellowGroupId == null ? List.of() : fellowGroups.getOrDefault(fellowGroupId, List.of());
+    }
+
+    /**
+     * 房间ID → 房间内分配
+     */
+    public Map<Long, List<Allocation>> allocationsByRoom() {
+        return allocationsByRoom;
+    }
+}
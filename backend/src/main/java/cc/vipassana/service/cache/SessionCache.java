@@ -0,0 +1,259 @@
+package cc.vipassana.service.cache;
+
+import cc.vipassana.dto.layout.CompiledLayout;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.MeditationSeat;
+import cc.vipassana.entity.Student;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 期次数据缓存（Redis，读穿透）
+ * 缓存报表页、座位表页轮询的期次级列表：学员、房间分配、禅堂座位，以及编译后的禅堂布局
+ *
+ * 约定：
+ * - 值以 JSON 存储，每次读取都反序列化出新对象，调用方可以随意修改返回结果
+ * - 写路径调用 evictXxx 显式失效；处于事务中时提交后再删除一次
+ * - 每个键有一个代数（{key}:gen），失效时自增；读库回填前记下代数，回填时代数已变则放弃写入，
+ *   避免读到提交前数据的并发读在失效之后把旧值写回
+ * - 设置过期时间兜底，Redis 不可用时直接读库，并在一段时间内不再从 Redis 读取
+ * - 失效不受暂停影响，总是尝试删除；删除失败的键记录下来，恢复后先删除这些键再读缓存
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionCache {
+
+    private static final String KEY_PREFIX = "dhammaflow:";
+
+    /**
+     * Redis 访问失败后暂停使用缓存的时长（毫秒）
+     */
+    private static final long RETRY_AFTER_FAILURE_MILLIS = 30_000L;
+
+    private static final String GENERATION_SUFFIX = ":gen";
+
+    /**
+     * 代数键的过期时间（秒），需远大于数据键的过期时间
+     */
+    private static final long GENERATION_TTL_SECONDS = 86_400L;
+
+    /**
+     * 代数未变时才写入：KEYS[1] 数据键，KEYS[2] 代数键；ARGV[1] 值，ARGV[2] 过期秒数，ARGV[3] 读库前的代数（无则为空串）
+     */
+    private static final RedisScript<Long> SET_IF_GENERATION = new DefaultRedisScript<>(
+            "local gen = redis.call('GET', KEYS[2]) or '' "
+                    + "if gen == ARGV[3] then redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) return 1 end "
+                    + "return 0", Long.class);
+
+    /**
+     * 失效：逐个自增代数键并删除数据键；KEYS 为数据键，ARGV[1] 代数键过期秒数
+     */
+    private static final RedisScript<Long> EVICT = new DefaultRedisScript<>(
+            "for _, key in ipairs(KEYS) do "
+                    + "local gen = key .. '" + GENERATION_SUFFIX + "' "
+                    + "redis.call('INCR', gen) redis.call('EXPIRE', gen, ARGV[1]) redis.call('DEL', key) "
+                    + "end return #KEYS", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${cache.session.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.session.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private volatile long unavailableUntil = 0L;
+
+    /**
+     * Redis 不可用期间未能删除的键，恢复后在首次读取前删除
+     */
+    private final Set<String> pendingEvictions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 期次学员列表
+     */
+    public List<Student> students(Long sessionId, Supplier<List<Student>> loader) {
+        return readThrough(studentsKey(sessionId), listType(Student.class), loader);
+    }
+
+    /**
+     * 期次房间分配列表
+     */
+    public List<Allocation> allocations(Long sessionId, Supplier<List<Allocation>> loader) {
+        return readThrough(allocationsKey(sessionId), listType(Allocation.class), loader);
+    }
+
+    /**
+     * 期次禅堂座位列表
+     */
+    public List<MeditationSeat> seats(Long sessionId, Supplier<List<MeditationSeat>> loader) {
+        return readThrough(seatsKey(sessionId), listType(MeditationSeat.class), loader);
+    }
+
+    /**
+     * 编译后的禅堂布局
+     */
+    public CompiledLayout compiledLayout(Long configId, Supplier<CompiledLayout> loader) {
+        return readThrough(layoutKey(configId),
+                objectMapper.getTypeFactory().constructType(CompiledLayout.class), loader);
+    }
+
+    public void evictStudents(Long sessionId) {
+        evict(studentsKey(sessionId));
+    }
+
+    public void evictAllocations(Long sessionId) {
+        evict(allocationsKey(sessionId));
+    }
+
+    public void evictSeats(Long sessionId) {
+        evict(seatsKey(sessionId));
+    }
+
+    /**
+     * 失效期次全部列表（学员删除会级联删除分配、置空座位）
+     */
+    public void evictSession(Long sessionId) {
+        evict(studentsKey(sessionId), allocationsKey(sessionId), seatsKey(sessionId));
+    }
+
+    public void evictLayout(Long configId) {
+        evict(layoutKey(configId));
+    }
+
+    private <T> T readThrough(String key, JavaType type, Supplier<T> loader) {
+        if (key == null || !available() || !flushPendingEvictions()) {
+            return loader.get();
+        }
+
+        String json;
+        String generation;
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(List.of(key, key + GENERATION_SUFFIX));
+            json = values != null ? values.get(0) : null;
+            generation = values != null && values.get(1) != null ? values.get(1) : "";
+        } catch (Exception e) {
+            markUnavailable(e);
+            return loader.get();
+        }
+
+        if (json != null) {
+            try {
+                return objectMapper.readValue(json, type);
+            } catch (JsonProcessingException e) {
+                log.warn("缓存内容无法解析，重新加载: {}", key);
+            }
+        }
+
+        T value = loader.get();
+        if (value != null) {
+            try {
+                redisTemplate.execute(SET_IF_GENERATION, List.of(key, key + GENERATION_SUFFIX),
+                        objectMapper.writeValueAsString(value), String.valueOf(ttlSeconds), generation);
+            } catch (JsonProcessingException e) {
+                log.warn("缓存内容无法序列化: {}", key, e);
+            } catch (Exception e) {
+                markUnavailable(e);
+            }
+        }
+        return value;
+    }
+
+    private void evict(String... keys) {
+        if (!enabled || Arrays.stream(keys).anyMatch(Objects::isNull)) {
+            return;
+        }
+        List<String> keyList = Arrays.asList(keys);
+        delete(keyList);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete(keyList);
+                }
+            });
+        }
+    }
+
+    /**
+     * 失效键（自增代数并删除，不受读取暂停影响），失败时记录待删除键
+     */
+    private void delete(List<String> keys) {
+        try {
+            redisTemplate.execute(EVICT, keys, String.valueOf(GENERATION_TTL_SECONDS));
+            pendingEvictions.removeAll(keys);
+        } catch (Exception e) {
+            pendingEvictions.addAll(keys);
+            markUnavailable(e);
+        }
+    }
+
+    /**
+     * 删除 Redis 不可用期间积压的待删除键
+     *
+     * @return 是否已无积压（删除失败时返回false，本次读取直接读库）
+     */
+    private boolean flushPendingEvictions() {
+        if (pendingEvictions.isEmpty()) {
+            return true;
+        }
+        List<String> keys = List.copyOf(pendingEvictions);
+        try {
+            redisTemplate.execute(EVICT, keys, String.valueOf(GENERATION_TTL_SECONDS));
+            pendingEvictions.removeAll(keys);
+            log.info("Redis 已恢复，删除积压的失效键: {} 个", keys.size());
+            return true;
+        } catch (Exception e) {
+            markUnavailable(e);
+            return false;
+        }
+    }
+
+    private boolean available() {
+        return enabled && System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    private void markUnavailable(Exception e) {
+        unavailableUntil = System.currentTimeMillis() + RETRY_AFTER_FAILURE_MILLIS;
+        log.warn("Redis 不可用，{} 秒内直接读库: {}", RETRY_AFTER_FAILURE_MILLIS / 1000, e.getMessage());
+    }
+
+    private JavaType listType(Class<?> elementType) {
+        return objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+    }
+
+    private static String studentsKey(Long sessionId) {
+        return sessionId == null ? null : KEY_PREFIX + "session:" + sessionId + ":students";
+    }
+
+    private static String allocationsKey(Long sessionId) {
+        return sessionId == null ? null : KEY_PREFIX + "session:" + sessionId + ":allocations";
+    }
+
+    private static String seatsKey(Long sessionId) {
+        return sessionId == null ? null : KEY_PREFIX + "session:" + sessionId + ":seats";
+    }
+
+    private static String layoutKey(Long configId) {
+        return configId == null ? null : KEY_PREFIX + "layout:" + configId;
+    }
+}
@@ -0,0 +1,92 @@
+package cc.vipassana.service.cache;
+
+import cc.vipassana.entity.SessionStats;
+import cc.vipassana.mapper.SessionStatsMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 期次统计（session_stats 物化表）
+ *
+ * 约定：
+ * - 学员、分配、座位的写路径调用 refresh；处于事务中时先登记期次，在提交前（beforeCommit）于同一事务内重算，
+ *   同一事务多次 refresh 同一期次只重算一次，重算失败则写事务一起回滚；无事务时立即重算
+ * - 读取直接按主键读表；表中没有该期次（尚无写入或期次不存在）时返回全 0 统计，读路径不写库
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionStatsStore {
+
+    private final SessionStatsMapper sessionStatsMapper;
+
+    /**
+     * 当前事务待重算期次的绑定键
+     */
+    private final Object pendingKey = new Object();
+
+    /**
+     * 期次统计
+     */
+    public SessionStats get(Long sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        SessionStats stats = sessionStatsMapper.selectBySessionId(sessionId);
+        return stats != null ? stats : empty(sessionId);
+    }
+
+    /**
+     * 重算期次统计（写路径调用，事务中在提交前执行）
+     */
+    public void refresh(Long sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sessionStatsMapper.refresh(sessionId);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            Set<Long> sessionIds = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(pendingKey, sessionIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    for (Long id : sessionIds) {
+                        sessionStatsMapper.refresh(id);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+            pending = sessionIds;
+        }
+        pending.add(sessionId);
+    }
+
+    private static SessionStats empty(Long sessionId) {
+        return SessionStats.builder()
+                .sessionId(sessionId)
+                .totalStudents(0)
+                .maleStudents(0)
+                .femaleStudents(0)
+                .allocatedStudents(0)
+                .temporaryAllocations(0)
+                .conflictAllocations(0)
+                .usedRooms(0)
+                .totalSeats(0)
+                .occupiedSeats(0)
+                .build();
+    }
+}
@@ -1,17 +1,30 @@
 package cc.vipassana.service.impl;
 
+import cc.vipassana.common.AllocationEngine;
+import cc.vipassana.dto.SessionConfigDTO;
 import cc.vipassana.entity.*;
 import cc.vipassana.mapper.*;
 import cc.vipassana.service.AllocationService;
-import cc.vipassana.service.allocation.CompanionSplitter;
-import cc.vipassana.service.allocation.RoomCursor;
-import cc.vipassana.service.allocation.RoomQueueBuilder;
+import cc.vipassana.service.allocation.AllocationPlan;
+import cc.vipassana.service.allocation.AllocationPlanCommitter;
+import cc.vipassana.service.allocation.AllocationPlanStore;
+import cc.vipassana.service.allocation.AllocationPlanner;
+import cc.vipassana.service.allocation.AllocationSolver;
+import cc.vipassana.service.allocation.BedLedger;
+import cc.vipassana.service.allocation.CompanionSplitOptimizer;
+import cc.vipassana.service.allocation.IncrementalAllocator;
+import cc.vipassana.service.allocation.SessionSnapshot;
+import cc.vipassana.service.allocation.ConflictDetector;
+import cc.vipassana.service.cache.SessionCache;
+import cc.vipassana.service.cache.SessionStatsStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -29,116 +42,216 @@ public class AllocationServiceImpl implements AllocationService {
     private final FellowRelationMapper fellowRelationMapper;
     private final MeditationSeatMapper meditationSeatMapper;
     private final MeditationHallConfigMapper meditationHallConfigMapper;
+    private final SessionMapper sessionMapper;
+    private final AllocationPlanCommitter allocationPlanCommitter;
+    private final AllocationPlanStore allocationPlanStore;
+    private final SessionCache sessionCache;
+    private final SessionStatsStore sessionStatsStore;
+
+    /**
+     * 同伴分离优化时间预算（毫秒），0 表示使用贪心分离
+     */
+    @Value("${allocation.split.time-budget-ms:0}")
+    private long splitTimeBudgetMillis;
+
+    /**
+     * 同伴分离优化起点数，0 表示取CPU核数
+     */
+    @Value("${allocation.split.restarts:0}")
+    private int splitRestarts;
+
+    /**
+     * 约束求解时间预算（毫秒）
+     */
+    @Value("${allocation.solver.time-budget-ms:5000}")
+    private long solverTimeBudgetMillis;
 
     /**
      * 核心分配算法入口
+     * 读库与规划在事务外完成，仅最终写库由 AllocationPlanCommitter 在短事务内提交
      */
     @Override
-    @Transactional
     public AllocationService.AllocationResult autoAllocate(Long sessionId) {
         log.info("开始自动分配，期次ID: {}", sessionId);
-        AllocationService.AllocationResult result = new AllocationService.AllocationResult();
 
         try {
-            // 1. 获取并排序学员
             List<Student> sortedStudents = sortStudents(sessionId);
-            result.totalStudents = sortedStudents.size();
-            log.info("学员总数: {}", result.totalStudents);
-
-            // 2. 清除之前的分配
-            clearAllocations(sessionId);
+            AllocationPlan plan = planAllocation(sessionId, sortedStudents);
+            return commitPlan(plan);
 
-            // 3. 执行床位分配
-            double score = allocateBeds(sessionId, sortedStudents);
-            result.allocatedCount = allocationMapper.countBySessionId(sessionId);
-            log.info("已分配学员: {}", result.allocatedCount);
+        } catch (Exception e) {
+            log.error("分配过程出错", e);
+            throw new RuntimeException("分配失败: " + e.getMessage(), e);
+        }
+    }
 
-            // 4. 检测冲突
-            List<AllocationService.AllocationConflict> conflicts = detectConflicts(sessionId);
-            result.conflictCount = conflicts.size();
-            log.info("检测到冲突: {}", result.conflictCount);
+    /**
+     * 增量分配：在已有分配基础上处理新增与退出的学员
+     * 规划在事务外完成，写库由 AllocationPlanCommitter 在短事务内提交；
+     * 提交时锁定期次分配并校验规划期间未被改动，否则拒绝提交
+     */
+    @Override
+    public AllocationService.AllocationResult allocateIncrementally(Long sessionId) {
+        log.info("开始增量分配，期次ID: {}", sessionId);
 
-            // 5. 生成统计信息
-            result.statistics = generateStatistics(sessionId, sortedStudents);
+        try {
+            List<Student> sortedStudents = sortStudents(sessionId);
+            List<Allocation> existing = allocationMapper.selectBySessionId(sessionId);
+            String plannedVersion = AllocationPlanCommitter.allocationVersion(existing);
+            IncrementalAllocator.Result delta = new IncrementalAllocator()
+                    .allocate(sessionId, sortedStudents, roomMapper.selectAvailable(), existing);
+            if (!delta.isEmpty()) {
+                allocationPlanCommitter.commitIncremental(sessionId, delta, plannedVersion);
+                sessionCache.evictAllocations(sessionId);
+                sessionStatsStore.refresh(sessionId);
+            }
 
-            // 6. 生成禅堂座位
-            generateMeditationSeats(sessionId);
+            Set<Allocation> released = Collections.newSetFromMap(new IdentityHashMap<>());
+            released.addAll(delta.released());
+            List<Allocation> current = new ArrayList<>(delta.inserted());
+            for (Allocation allocation : existing) {
+                if (!released.contains(allocation)) {
+                    current.add(allocation);
+                }
+            }
+            List<AllocationService.AllocationConflict> conflicts = new ConflictDetector()
+                    .detect(SessionSnapshot.of(sessionId, sortedStudents, current));
 
-            // 7. 更新状态
-            result.success = result.allocatedCount == result.totalStudents;
+            AllocationService.AllocationResult result = new AllocationService.AllocationResult();
+            result.totalStudents = sortedStudents.size();
+            result.allocatedCount = sortedStudents.size() - delta.unallocatedStudents().size();
+            result.conflictCount = conflicts.size();
+            result.statistics = new HashMap<>();
+            result.statistics.put("insertedCount", delta.inserted().size());
+            result.statistics.put("movedCount", delta.moved().size());
+            result.statistics.put("releasedCount", delta.released().size());
+            result.success = delta.unallocatedStudents().isEmpty();
             result.message = result.success ?
-                String.format("分配成功！分配学员数: %d, 冲突数: %d", result.allocatedCount, result.conflictCount) :
-                String.format("部分分配失败。已分配: %d/%d", result.allocatedCount, result.totalStudents);
-
-            log.info("分配完成: {}", result.message);
+                String.format("增量分配成功！新增: %d, 移动: %d, 释放: %d",
+                        delta.inserted().size(), delta.moved().size(), delta.released().size()) :
+                String.format("部分学员未分配。已分配: %d/%d", result.allocatedCount, result.totalStudents);
+            log.info("增量分配完成: {}", result.message);
             return result;
 
         } catch (Exception e) {
-            log.error("分配过程出错", e);
-            result.success = false;
-            result.message = "分配失败: " + e.getMessage();
-            throw new RuntimeException(result.message, e);
+            log.error("增量分配出错", e);
+            throw new RuntimeException("增量分配失败: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 生成详细统计信息
+     * 预览自动分配（不写库）
+     * 计划暂存在 AllocationPlanStore 中，凭令牌提交
      */
-    private Map<String, Object> generateStatistics(Long sessionId, List<Student> students) {
-        Map<String, Object> stats = new HashMap<>();
-
-        // 学员类型统计
-        long monkCount = students.stream()
-                .filter(s -> "法师".equals(s.getSpecialNotes()))
-                .count();
-        long oldStudentCount = students.stream()
-                .filter(s -> s.getStudyTimes() != null && s.getStudyTimes() > 0)
-                .filter(s -> !"法师".equals(s.getSpecialNotes()))
-                .count();
-        long newStudentCount = students.stream()
-                .filter(s -> s.getStudyTimes() != null && s.getStudyTimes() == 0)
-                .filter(s -> !"法师".equals(s.getSpecialNotes()))
-                .count();
-
-        stats.put("monkCount", monkCount);
-        stats.put("oldStudentCount", oldStudentCount);
-        stats.put("newStudentCount", newStudentCount);
-
-        // 性别统计
-        long maleCount = students.stream()
-                .filter(s -> "M".equals(s.getGender()))
-                .count();
-        long femaleCount = students.stream()
-                .filter(s -> "F".equals(s.getGender()))
-                .count();
-
-        stats.put("maleCount", maleCount);
-        stats.put("femaleCount", femaleCount);
-
-        // 同伴组统计
-        long companionGroupCount = students.stream()
-                .filter(s -> s.getFellowGroupId() != null)
-                .map(Student::getFellowGroupId)
-                .distinct()
-                .count();
-        long companionStudentCount = students.stream()
-                .filter(s -> s.getFellowGroupId() != null)
-                .count();
-
-        stats.put("companionGroupCount", companionGroupCount);
-        stats.put("companionStudentCount", companionStudentCount);
-
-        // 房间利用统计
-        List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
-        long usedRoomCount = allocations.stream()
-                .map(Allocation::getRoomId)
-                .distinct()
-                .count();
+    @Override
+    public AllocationService.AllocationPreview previewAllocation(Long sessionId) {
+        log.info("预览自动分配，期次ID: {}", sessionId);
+
+        // 先取版本再规划：规划期间数据若有变化，提交时版本必然不一致
+        String inputVersion = allocationPlanCommitter.planInputVersion(sessionId);
+        List<Student> sortedStudents = sortStudents(sessionId);
+        AllocationPlan plan = planAllocation(sessionId, sortedStudents);
+
+        AllocationService.AllocationPreview preview = new AllocationService.AllocationPreview();
+        preview.token = allocationPlanStore.save(plan, inputVersion);
+        preview.expiresAt = allocationPlanStore.expiresAt(preview.token);
+        preview.result = toResult(plan);
+        preview.allocations = plan.allocations();
+        preview.conflicts = plan.conflicts();
+
+        log.info("预览完成，期次ID: {}，令牌: {}，{}", sessionId, preview.token, preview.result.message);
+        return preview;
+    }
 
-        stats.put("usedRoomCount", usedRoomCount);
+    /**
+     * 提交预览过的分配计划
+     * 提交事务内加锁比对学员、可用房间与已有分配，与预览时不一致则拒绝提交，需重新预览
+     * 校验通过后才使令牌失效，期次不匹配的调用不会消耗有效令牌
+     */
+    @Override
+    public AllocationService.AllocationResult commitPreview(Long sessionId, String token) {
+        log.info("提交预览分配，期次ID: {}，令牌: {}", sessionId, token);
+
+        AllocationPlanStore.StoredPlan stored = allocationPlanStore.peek(token);
+        if (stored == null) {
+            throw new RuntimeException("预览计划不存在或已过期");
+        }
+        if (!Objects.equals(stored.plan().sessionId(), sessionId)) {
+            throw new RuntimeException("预览计划与期次不匹配");
+        }
 
-        log.debug("统计信息: {}", stats);
-        return stats;
+        try {
+            return commitPlan(stored.plan(), seats -> allocationPlanCommitter.commitVerified(stored.plan(), seats,
+                    stored.inputVersion(), () -> allocationPlanStore.remove(token, stored)));
+        } catch (IllegalStateException e) {
+            // 版本不一致的计划不可能再提交成功，移除令牌
+            allocationPlanStore.remove(token, stored);
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在内存中规划床位分配（含同伴分离、冲突检测与统计）
+     */
+    private AllocationPlan planAllocation(Long sessionId, List<Student> sortedStudents) {
+        log.info("学员总数: {}", sortedStudents.size());
+        AllocationPlan plan = newPlanner(sessionId).plan(sessionId, sortedStudents, roomMapper.selectAvailable());
+        log.info("已分配学员: {}，检测到冲突: {}", plan.allocatedCount(), plan.conflicts().size());
+        return plan;
+    }
+
+    /**
+     * 按期次课程设置选择分配引擎
+     */
+    private AllocationPlanner newPlanner(Long sessionId) {
+        AllocationPlanner planner = new AllocationPlanner();
+
+        SessionConfigDTO config = sessionMapper.selectConfigById(sessionId);
+        if (config != null && AllocationEngine.SOLVER.equals(config.getAllocationEngine())) {
+            Session session = sessionMapper.selectById(sessionId);
+            int elderlyAgeThreshold = session != null && session.getElderlyAgeThreshold() != null
+                    ? session.getElderlyAgeThreshold() : 60;
+            log.info("期次 {} 使用约束求解引擎，时间预算: {}ms", sessionId, solverTimeBudgetMillis);
+            planner.setSolver(new AllocationSolver(solverTimeBudgetMillis, elderlyAgeThreshold));
+        } else if (splitTimeBudgetMillis > 0) {
+            planner.setSplitOptimizer(new CompanionSplitOptimizer(splitRestarts, splitTimeBudgetMillis));
+        }
+        return planner;
+    }
+
+    /**
+     * 生成禅堂座位并覆盖式提交分配计划
+     */
+    private AllocationService.AllocationResult commitPlan(AllocationPlan plan) {
+        return commitPlan(plan, seats -> allocationPlanCommitter.commit(plan, seats));
+    }
+
+    /**
+     * 生成禅堂座位并交给 writer 写库，随后失效缓存、刷新统计
+     */
+    private AllocationService.AllocationResult commitPlan(AllocationPlan plan, Consumer<List<MeditationSeat>> writer) {
+        List<MeditationSeat> seats = buildMeditationSeats(plan.snapshot());
+        writer.accept(seats);
+        sessionCache.evictAllocations(plan.sessionId());
+        sessionCache.evictSeats(plan.sessionId());
+        sessionStatsStore.refresh(plan.sessionId());
+
+        AllocationService.AllocationResult result = toResult(plan);
+        log.info("分配完成: {}", result.message);
+        return result;
+    }
+
+    private AllocationService.AllocationResult toResult(AllocationPlan plan) {
+        AllocationService.AllocationResult result = new AllocationService.AllocationResult();
+        result.totalStudents = plan.totalStudents();
+        result.allocatedCount = plan.allocatedCount();
+        result.conflictCount = plan.conflicts().size();
+        result.statistics = new HashMap<>(plan.statistics());
+        result.success = plan.isComplete();
+        result.message = result.success ?
+            String.format("分配成功！分配学员数: %d, 冲突数: %d", result.allocatedCount, result.conflictCount) :
+            String.format("部分分配失败。已分配: %d/%d", result.allocatedCount, result.totalStudents);
+        return result;
     }
 
     /**
@@ -158,170 +271,70 @@ public class AllocationServiceImpl implements AllocationService {
      * 分配顺序：法师房 → 旧生房 → 新生房 → 老人房1 → 老人房2
      */
     @Override
-    @Transactional
     public double allocateBeds(Long sessionId, List<Student> students) {
         log.info("开始分配床位，学员数: {}", students.size());
 
-        // 获取可用房间列表
-        List<Room> availableRooms = roomMapper.selectAvailable();
-        if (availableRooms.isEmpty()) {
-            log.warn("没有可用房间！");
-            throw new RuntimeException("没有可用房间");
-        }
-
-        // 按性别分组学员
-        Map<String, List<Student>> genderGroups = students.stream()
-                .collect(Collectors.groupingBy(student ->
-                        "M".equals(student.getGender()) ? "男" : "女"));
-
-        List<Allocation> allAllocations = new ArrayList<>();
-        Map<Long, Integer> roomOccupancy = new HashMap<>();
-
-        // 为男女分别分配房间
-        for (Map.Entry<String, List<Student>> entry : genderGroups.entrySet()) {
-            String genderArea = entry.getKey();
-            List<Student> genderStudents = entry.getValue();
-
-            log.info("开始分配 {} 学员，共 {} 人", genderArea, genderStudents.size());
-
-            // 使用RoomQueueBuilder构建房间队列（按VBA固定顺序）
-            RoomQueueBuilder queueBuilder = new RoomQueueBuilder(availableRooms);
-            Queue<Room> roomQueue = queueBuilder.buildQueue(genderArea);
-
-            if (roomQueue.isEmpty()) {
-                log.warn("没有可用的 {} 房间", genderArea);
-                continue;
-            }
-
-            // 使用RoomCursor管理床位分配
-            RoomCursor cursor = new RoomCursor(roomQueue);
-
-            // 容量溢出检测
-            int availableCapacity = cursor.getRemainingCapacity();
-            if (availableCapacity < genderStudents.size()) {
-                log.warn("床位容量不足！{} 区域需要 {} 个床位，但只有 {} 个可用床位",
-                        genderArea, genderStudents.size(), availableCapacity);
-            }
-
-            int genderAllocated = 0;
-
-            // 按顺序分配学员
-            for (Student student : genderStudents) {
-                if (!cursor.hasNext()) {
-                    log.warn("床位不足，无法分配学员: {}", student.getName());
-                    break;
-                }
-
-                Room room = cursor.nextAvailableRoom();
-                if (room == null) {
-                    log.warn("无可用房间，无法分配学员: {}", student.getName());
-                    break;
-                }
-
-                // O(1)计算床位号
-                int bedNumber = roomOccupancy.merge(room.getId(), 1, Integer::sum);
-
-                // 创建分配记录
-                Allocation allocation = Allocation.builder()
-                        .sessionId(sessionId)
-                        .studentId(student.getId())
-                        .roomId(room.getId())
-                        .bedNumber(bedNumber)
-                        .allocationType("AUTOMATIC")
-                        .allocationReason("按房间类型优先级自动分配")
-                        .isTemporary(true)
-                        .conflictFlag(false)
-                        .build();
-
-                allAllocations.add(allocation);
-                genderAllocated++;
-
-                log.debug("已分配: {} ({}) -> 房间ID: {}, 床位: {}",
-                        student.getName(), genderArea, room.getId(), bedNumber);
-            }
-
-            log.info("{} 学员分配完成，已分配: {} 人", genderArea, genderAllocated);
-        }
-
-        // 批量插入分配记录
-        if (!allAllocations.isEmpty()) {
-            for (Allocation allocation : allAllocations) {
-                allocationMapper.insert(allocation);
-            }
-        }
-
-        // 执行同伴分离（原地修改）
-        log.info("开始执行同伴分离...");
-        CompanionSplitter splitter = new CompanionSplitter();
-        splitter.splitCompanions(allAllocations, students);
-
-        // 批量更新分配记录
-        for (Allocation allocation : allAllocations) {
-            allocationMapper.update(allocation);
-        }
-
-        log.info("同伴分离完成");
+        AllocationPlan plan = newPlanner(sessionId).plan(sessionId, students, roomMapper.selectAvailable());
+        allocationPlanCommitter.insertAllocations(plan);
+        sessionCache.evictAllocations(sessionId);
+        sessionStatsStore.refresh(sessionId);
 
-        // 防止除以零
-        if (students.isEmpty()) {
-            return 0.0;
-        }
-
-        int totalAllocated = allAllocations.size();
-        double allocationScore = (double) totalAllocated / students.size();
-        log.info("分配完成: {}/{} ({}%)", totalAllocated, students.size(),
-                String.format("%.2f", allocationScore * 100));
-
-        return allocationScore;
+        return plan.allocationScore();
     }
 
     /**
      * 检测分配冲突
+     * 仅查询一次期次学员和分配，在内存中完成检测，冲突标记一次批量写回
      */
     @Override
     public List<AllocationService.AllocationConflict> detectConflicts(Long sessionId) {
         log.debug("检测冲突，期次ID: {}", sessionId);
-        List<AllocationService.AllocationConflict> conflicts = new ArrayList<>();
 
         // 获取所有分配
         List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
         List<Student> students = studentMapper.selectBySessionId(sessionId);
-        Map<Long, Student> studentMap = students.stream()
-            .collect(Collectors.toMap(Student::getId, s -> s));
 
         // 检测同伴分离冲突
-        for (Student student : students) {
-            if (student.getFellowGroupId() != null) {
-                List<Student> fellowGroup = studentMapper.selectByFellowGroupId(student.getFellowGroupId());
-                // 检查是否有同伴未分配或分配到不同房间
-                for (Student fellow : fellowGroup) {
-                    if (fellow.getId().equals(student.getId())) continue;
-
-                    Allocation studentAlloc = allocationMapper.selectByStudentId(student.getId());
-                    Allocation fellowAlloc = allocationMapper.selectByStudentId(fellow.getId());
-
-                    if (studentAlloc != null && fellowAlloc != null) {
-                        // Allocation 现在直接包含 roomId，不需要查询 Bed 表
-                        if (!studentAlloc.getRoomId().equals(fellowAlloc.getRoomId())) {
-                            AllocationService.AllocationConflict conflict = new AllocationService.AllocationConflict();
-                            conflict.studentId = student.getId();
-                            conflict.studentName = student.getName();
-                            conflict.conflictType = "SEPARATED";
-                            conflict.conflictReason = "同伴分离：" + fellow.getName() + "分配到不同房间";
-                            conflicts.add(conflict);
-
-                            // 更新冲突标记
-                            allocationMapper.updateConflictFlag(studentAlloc.getId(), true, conflict.conflictReason);
-                        }
-                    }
-                }
-            }
-        }
+        SessionSnapshot snapshot = SessionSnapshot.of(sessionId, students, allocations);
+        List<AllocationService.AllocationConflict> conflicts = new ConflictDetector().detect(snapshot);
+
+        // 批量更新冲突标记
+        markConflicts(snapshot, conflicts);
 
         log.debug("检测到冲突数: {}", conflicts.size());
         return conflicts;
     }
 
+    /**
+     * 将冲突写回分配记录（同一学员多条冲突时以最后一条原因为准）
+     * 快照中的分配对象只读，写回使用仅含 id 与冲突字段的副本
+     */
+    private void markConflicts(SessionSnapshot snapshot,
+                               List<AllocationService.AllocationConflict> conflicts) {
+        if (conflicts.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Allocation> flagged = new LinkedHashMap<>();
+        for (AllocationService.AllocationConflict conflict : conflicts) {
+            Allocation allocation = snapshot.allocationOf(conflict.studentId);
+            if (allocation == null) {
+                continue;
+            }
+            flagged.put(allocation.getId(), Allocation.builder()
+                    .id(allocation.getId())
+                    .conflictFlag(true)
+                    .conflictReason(conflict.conflictReason)
+                    .build());
+        }
+
+        if (!flagged.isEmpty()) {
+            allocationMapper.updateConflictFlagBatch(new ArrayList<>(flagged.values()));
+            sessionCache.evictAllocations(snapshot.sessionId());
+            sessionStatsStore.refresh(snapshot.sessionId());
+        }
+    }
+
     /**
      * 应用打乱床位算法
      * 将房间内的床位顺序打乱以避免规律性分配
@@ -334,6 +347,7 @@ public class AllocationServiceImpl implements AllocationService {
 
     /**
      * 生成禅堂座位分配
+     * 分配与学员各查询一次，座位在内存中生成后批量写入
      */
     @Override
     @Transactional
@@ -341,75 +355,25 @@ public class AllocationServiceImpl implements AllocationService {
         log.debug("生成禅堂座位，期次ID: {}", sessionId);
 
         try {
-            // 获取禅堂配置
-            List<MeditationHallConfig> configs = meditationHallConfigMapper.selectBySessionId(sessionId);
+            // 获取该期次所有学员的分配信息（各禅堂共用）
+            List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
 
-            if (configs.isEmpty()) {
-                log.warn("没有禅堂配置，期次ID: {}", sessionId);
+            if (allocations.isEmpty()) {
+                log.warn("没有分配信息，期次ID: {}", sessionId);
                 return;
             }
 
-            for (MeditationHallConfig config : configs) {
-                // 获取该禅堂所有学员的分配信息
-                List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
-
-                if (allocations.isEmpty()) {
-                    log.warn("没有分配信息，禅堂ID: {}", config.getId());
-                    continue;
-                }
-
-                int row = 0;
-                int col = 0;
-                int seatNum = 1;
-
-                for (Allocation allocation : allocations) {
-                    Student student = studentMapper.selectById(allocation.getStudentId());
-
-                    if (student == null) {
-                        log.warn("学员不存在，学员ID: {}", allocation.getStudentId());
-                        continue;
-                    }
-
-                    // 确定座位类型
-                    String seatType = "STUDENT";
-                    if ("monk".equals(student.getStudentType())) {
-                        seatType = "MONK";
-                    } else if ("old_student".equals(student.getStudentType())) {
-                        seatType = "STUDENT";
-                    }
-
-                    // 创建座位记录
-                    MeditationSeat seat = MeditationSeat.builder()
-                        .sessionId(sessionId)
-                        .centerId(config.getCenterId())
-                        .hallConfigId(config.getId())
-                        .hallId(config.getId())
-                        .seatNumber(config.getSeatPrefix() != null ?
-                            config.getSeatPrefix() + seatNum : "S" + seatNum)
-                        .studentId(student.getId())
-                        .seatType(seatType)
-                        .isOldStudent("old_student".equals(student.getStudentType()))
-                        .gender(student.getGender())
-                        .ageGroup(student.getAgeGroup())
-                        .regionCode(config.getRegionCode())
-                        .rowIndex(row)
-                        .colIndex(col)
-                        .status("allocated")
-                        .build();
-
-                    meditationSeatMapper.insert(seat);
-                    seatNum++;
-
-                    // 更新坐标
-                    col++;
-                    if (col >= (config.getRegionWidth() != null ? config.getRegionWidth() : 10)) {
-                        col = 0;
-                        row++;
-                    }
-                }
+            // 批量加载学员
+            List<Long> studentIds = allocations.stream()
+                    .map(Allocation::getStudentId)
+                    .distinct()
+                    .collect(Collectors.toList());
+            List<Student> students = studentMapper.selectByIds(studentIds);
 
-                log.info("禅堂座位生成完成，禅堂ID: {}，座位数: {}", config.getId(), seatNum - 1);
-            }
+            SessionSnapshot snapshot = SessionSnapshot.of(sessionId, students, allocations);
+            allocationPlanCommitter.insertSeats(buildMeditationSeats(snapshot));
+            sessionCache.evictSeats(sessionId);
+            sessionStatsStore.refresh(sessionId);
 
         } catch (Exception e) {
             log.error("生成禅堂座位失败，期次ID: {}", sessionId, e);
@@ -417,9 +381,95 @@ public class AllocationServiceImpl implements AllocationService {
         }
     }
 
+    /**
+     * 为期次内所有禅堂生成座位（不写库）
+     */
+    private List<MeditationSeat> buildMeditationSeats(SessionSnapshot snapshot) {
+        Long sessionId = snapshot.sessionId();
+        List<Allocation> allocations = snapshot.allocations();
+
+        // 获取禅堂配置
+        List<MeditationHallConfig> configs = meditationHallConfigMapper.selectBySessionId(sessionId);
+
+        if (configs.isEmpty()) {
+            log.warn("没有禅堂配置，期次ID: {}", sessionId);
+            return Collections.emptyList();
+        }
+        if (allocations.isEmpty()) {
+            log.warn("没有分配信息，期次ID: {}", sessionId);
+            return Collections.emptyList();
+        }
+
+        List<MeditationSeat> seats = new ArrayList<>();
+        for (MeditationHallConfig config : configs) {
+            List<MeditationSeat> hallSeats = buildHallSeats(sessionId, config, snapshot);
+            seats.addAll(hallSeats);
+            log.info("禅堂座位生成完成，禅堂ID: {}，座位数: {}", config.getId(), hallSeats.size());
+        }
+        return seats;
+    }
+
+    /**
+     * 按分配顺序为单个禅堂生成座位（行优先排布）
+     */
+    private List<MeditationSeat> buildHallSeats(Long sessionId,
+                                                MeditationHallConfig config,
+                                                SessionSnapshot snapshot) {
+        List<MeditationSeat> seats = new ArrayList<>();
+        int width = config.getRegionWidth() != null ? config.getRegionWidth() : 10;
+        int row = 0;
+        int col = 0;
+        int seatNum = 1;
+
+        for (Allocation allocation : snapshot.allocations()) {
+            Student student = snapshot.student(allocation.getStudentId());
+
+            if (student == null) {
+                log.warn("学员不存在，学员ID: {}", allocation.getStudentId());
+                continue;
+            }
+
+            // 确定座位类型
+            String seatType = "STUDENT";
+            if ("monk".equals(student.getStudentType())) {
+                seatType = "MONK";
+            }
+
+            // 创建座位记录
+            MeditationSeat seat = MeditationSeat.builder()
+                .sessionId(sessionId)
+                .centerId(config.getCenterId())
+                .hallConfigId(config.getId())
+                .hallId(config.getId())
+                .seatNumber(config.getSeatPrefix() != null ?
+                    config.getSeatPrefix() + seatNum : "S" + seatNum)
+                .studentId(student.getId())
+                .seatType(seatType)
+                .isOldStudent("old_student".equals(student.getStudentType()))
+                .gender(student.getGender())
+                .ageGroup(student.getAgeGroup())
+                .regionCode(config.getRegionCode())
+                .rowIndex(row)
+                .colIndex(col)
+                .status("allocated")
+                .build();
+
+            seats.add(seat);
+            seatNum++;
+
+            // 更新坐标
+            col++;
+            if (col >= width) {
+                col = 0;
+                row++;
+            }
+        }
+        return seats;
+    }
+
     @Override
     public List<Allocation> getAllocationsBySession(Long sessionId) {
-        return allocationMapper.selectBySessionId(sessionId);
+        return sessionCache.allocations(sessionId, () -> allocationMapper.selectBySessionId(sessionId));
     }
 
     @Override
@@ -437,19 +487,45 @@ public class AllocationServiceImpl implements AllocationService {
 
         // 删除禅修座位记录
         meditationSeatMapper.deleteBySessionId(sessionId);
+        sessionCache.evictAllocations(sessionId);
+        sessionCache.evictSeats(sessionId);
+        sessionStatsStore.refresh(sessionId);
 
         log.info("清除分配完成，删除 {} 条分配记录", deletedCount);
     }
 
     @Override
     @Transactional
-    public void confirmAllocations(Long sessionId) {
+    public int confirmAllocations(Long sessionId) {
         log.info("确认分配，期次ID: {}", sessionId);
-        List<Allocation> allocations = allocationMapper.selectTemporaryBySessionId(sessionId);
-        for (Allocation allocation : allocations) {
-            allocation.setIsTemporary(false);
-            allocationMapper.update(allocation);
+        int confirmed = allocationMapper.confirmBySessionId(sessionId);
+        sessionCache.evictAllocations(sessionId);
+        sessionStatsStore.refresh(sessionId);
+        log.info("确认分配完成，确认 {} 条分配记录", confirmed);
+        return confirmed;
+    }
+
+    @Override
+    @Transactional
+    public int confirmAllocationsByRoom(Long sessionId, Long roomId) {
+        log.info("确认房间分配，期次ID: {}，房间ID: {}", sessionId, roomId);
+        int confirmed = allocationMapper.confirmByRoomId(sessionId, roomId);
+        sessionCache.evictAllocations(sessionId);
+        sessionStatsStore.refresh(sessionId);
+        return confirmed;
+    }
+
+    @Override
+    @Transactional
+    public int confirmAllocationsByStudents(Long sessionId, List<Long> studentIds) {
+        if (studentIds == null || studentIds.isEmpty()) {
+            return 0;
         }
+        log.info("确认学员分配，期次ID: {}，学员数: {}", sessionId, studentIds.size());
+        int confirmed = allocationMapper.confirmByStudentIds(sessionId, studentIds);
+        sessionCache.evictAllocations(sessionId);
+        sessionStatsStore.refresh(sessionId);
+        return confirmed;
     }
 
     @Override
@@ -486,8 +562,30 @@ public class AllocationServiceImpl implements AllocationService {
             throw new RuntimeException("学员已分配");
         }
 
+        // 按房间现有分配校验容量与床位占用，未指定床位号时取最小空床
+        Room room = roomMapper.selectById(allocation.getRoomId());
+        if (room == null) {
+            throw new RuntimeException("房间不存在");
+        }
+        BedLedger ledger = new BedLedger(List.of(room));
+        ledger.load(allocationMapper.selectByRoomId(allocation.getSessionId(), room.getId()));
+        if (allocation.getBedNumber() == null) {
+            int bedNumber = ledger.occupy(0);
+            if (bedNumber < 0) {
+                throw new RuntimeException("房间已满，房间号: " + room.getRoomNumber());
+            }
+            allocation.setBedNumber(bedNumber);
+        } else if (!ledger.hasBed(0, allocation.getBedNumber())) {
+            throw new RuntimeException("床位号超出房间容量，房间号: " + room.getRoomNumber());
+        } else if (!ledger.occupy(0, allocation.getBedNumber())) {
+            throw new RuntimeException("床位已被占用，房间号: " + room.getRoomNumber()
+                    + "，床位号: " + allocation.getBedNumber());
+        }
+
         // 创建分配记录（不再需要更新床位状态）
         allocationMapper.insert(allocation);
+        sessionCache.evictAllocations(allocation.getSessionId());
+        sessionStatsStore.refresh(allocation.getSessionId());
 
         log.info("分配创建成功，ID: {}", allocation.getId());
         return allocation.getId();
@@ -506,6 +604,8 @@ public class AllocationServiceImpl implements AllocationService {
         // 更新分配记录（不再需要更新床位状态，状态通过 Allocation 表推导）
         allocation.setId(id);
         allocationMapper.update(allocation);
+        sessionCache.evictAllocations(existing.getSessionId());
+        sessionStatsStore.refresh(existing.getSessionId());
 
         log.info("分配更新成功，ID: {}", id);
     }
@@ -522,6 +622,8 @@ public class AllocationServiceImpl implements AllocationService {
 
         // 删除分配记录（不再需要更新床位状态，状态通过 Allocation 表推导）
         allocationMapper.delete(id);
+        sessionCache.evictAllocations(existing.getSessionId());
+        sessionStatsStore.refresh(existing.getSessionId());
 
         log.info("分配删除成功，ID: {}", id);
     }
@@ -555,9 +657,17 @@ public class AllocationServiceImpl implements AllocationService {
             throw new RuntimeException("学员不存在");
         }
 
-        // 获取两个房间（Allocation 直接包含 roomId）
-        Room room1 = roomMapper.selectById(allocation1.getRoomId());
-        Room room2 = roomMapper.selectById(allocation2.getRoomId());
+        // 获取两个房间并加锁（按房间ID顺序加锁，避免并发交换互相等待）
+        Room room1 = null;
+        Room room2 = null;
+        if (allocation1.getRoomId() != null && allocation2.getRoomId() != null) {
+            boolean firstIsRoom1 = allocation1.getRoomId() <= allocation2.getRoomId();
+            Room first = roomMapper.selectByIdForUpdate(firstIsRoom1 ? allocation1.getRoomId() : allocation2.getRoomId());
+            Room second = allocation1.getRoomId().equals(allocation2.getRoomId()) ? first
+                    : roomMapper.selectByIdForUpdate(firstIsRoom1 ? allocation2.getRoomId() : allocation1.getRoomId());
+            room1 = firstIsRoom1 ? first : second;
+            room2 = firstIsRoom1 ? second : first;
+        }
 
         if (room1 == null || room2 == null) {
             throw new RuntimeException("房间不存在");
@@ -577,6 +687,9 @@ public class AllocationServiceImpl implements AllocationService {
             throw new RuntimeException("男生不能分配到女生房间");
         }
 
+        // 校验房间可用、交换后的床位在容量内且只被参与交换的分配占用
+        validateSwapBeds(allocation1, room1, allocation2, room2);
+
         // 交换房间和床位
         Long tempRoomId = allocation1.getRoomId();
         Integer tempBedNumber = allocation1.getBedNumber();
@@ -585,10 +698,63 @@ public class AllocationServiceImpl implements AllocationService {
         allocation2.setRoomId(tempRoomId);
         allocation2.setBedNumber(tempBedNumber);
 
-        // 更新分配记录
-        allocationMapper.update(allocation1);
-        allocationMapper.update(allocation2);
+        // 更新分配记录（仅房间和床位，一条语句完成）
+        allocationMapper.updateBatch(Arrays.asList(allocation1, allocation2));
+        sessionCache.evictAllocations(allocation1.getSessionId());
+        sessionStatsStore.refresh(allocation1.getSessionId());
 
         log.info("分配交换成功，学员1: {}，学员2: {}", student1.getName(), student2.getName());
     }
+
+    /**
+     * 交换床位校验（房间已加锁）：
+     * - 两个房间均为启用且未预留
+     * - 交换后的床位号在对方房间容量内
+     * - 锁定两个房间的分配后，参与交换的分配未被改动，且目标床位没有其他分配占用
+     */
+    private void validateSwapBeds(Allocation allocation1, Room room1, Allocation allocation2, Room room2) {
+        for (Room room : List.of(room1, room2)) {
+            if (!"ENABLED".equals(room.getStatus()) || Boolean.TRUE.equals(room.getIsReserved())) {
+                throw new RuntimeException("房间不可用，房间号: " + room.getRoomNumber());
+            }
+        }
+        checkBedInRoom(room2, allocation2.getBedNumber());
+        checkBedInRoom(room1, allocation1.getBedNumber());
+
+        List<Allocation> locked = new ArrayList<>();
+        for (Long roomId : new TreeSet<>(List.of(room1.getId(), room2.getId()))) {
+            locked.addAll(allocationMapper.selectByRoomIdForUpdate(allocation1.getSessionId(), roomId));
+        }
+
+        Set<Long> swapping = Set.of(allocation1.getId(), allocation2.getId());
+        for (Allocation original : List.of(allocation1, allocation2)) {
+            boolean unchanged = locked.stream().anyMatch(row -> row.getId().equals(original.getId())
+                    && Objects.equals(row.getRoomId(), original.getRoomId())
+                    && Objects.equals(row.getBedNumber(), original.getBedNumber()));
+            if (!unchanged) {
+                throw new RuntimeException("分配已变化，请刷新后重试，ID: " + original.getId());
+            }
+        }
+        for (Allocation row : locked) {
+            if (swapping.contains(row.getId()) || row.getBedNumber() == null) {
+                continue;
+            }
+            if (isSameBed(row, room2, allocation2.getBedNumber()) || isSameBed(row, room1, allocation1.getBedNumber())) {
+                throw new RuntimeException("床位已被其他学员占用，房间号: "
+                        + (row.getRoomId().equals(room1.getId()) ? room1.getRoomNumber() : room2.getRoomNumber())
+                        + "，床位号: " + row.getBedNumber());
+            }
+        }
+    }
+
+    private static void checkBedInRoom(Room room, Integer bedNumber) {
+        int capacity = room.getCapacity() != null ? room.getCapacity() : 0;
+        if (bedNumber != null && (bedNumber < 1 || bedNumber > capacity)) {
+            throw new RuntimeException("床位不可用，房间号: " + room.getRoomNumber() + "，床位号: " + bedNumber);
+        }
+    }
+
+    private static boolean isSameBed(Allocation row, Room room, Integer bedNumber) {
+        return room.getId().equals(row.getRoomId()) && Objects.equals(bedNumber, row.getBedNumber());
+    }
 }
@@ -6,6 +6,7 @@ import cc.vipassana.dto.layout.HallLayout;
 import cc.vipassana.entity.MeditationHallConfig;
 import cc.vipassana.mapper.MeditationHallConfigMapper;
 import cc.vipassana.service.MeditationHallConfigService;
+import cc.vipassana.service.cache.SessionCache;
 import cc.vipassana.service.layout.LayoutCompiler;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -28,6 +29,7 @@ public class MeditationHallConfigServiceImpl implements MeditationHallConfigServ
     private final MeditationHallConfigMapper meditationHallConfigMapper;
     private final LayoutCompiler layoutCompiler;
     private final ObjectMapper objectMapper;
+    private final SessionCache sessionCache;
 
     @Override
     public List<HallConfigResponse> listBySession(Long sessionId) {
@@ -65,6 +67,8 @@ public class MeditationHallConfigServiceImpl implements MeditationHallConfigServ
             throw new RuntimeException("无法序列化禅堂布局", e);
         }
         meditationHallConfigMapper.update(config);
+        layoutCompiler.evict(config.getId());
+        sessionCache.evictLayout(config.getId());
         // 每个会期只保留一条配置，删除其他配置避免重复生成
         meditationHallConfigMapper.deleteOthersInSession(config.getSessionId(), config.getId());
         return toResponse(config);
@@ -76,7 +80,8 @@ public class MeditationHallConfigServiceImpl implements MeditationHallConfigServ
         if (config == null) {
             throw new IllegalArgumentException("禅堂配置不存在: " + id);
         }
-        return layoutCompiler.compile(config);
+        // 配置存在性每次查库确认，编译结果按配置ID缓存
+        return sessionCache.compiledLayout(id, () -> layoutCompiler.compile(config));
     }
 
     @Transactional
@@ -119,6 +124,8 @@ public class MeditationHallConfigServiceImpl implements MeditationHallConfigServ
             meditationHallConfigMapper.insert(target);
         } else {
             meditationHallConfigMapper.update(target);
+            layoutCompiler.evict(target.getId());
+            sessionCache.evictLayout(target.getId());
         }
         meditationHallConfigMapper.deleteOthersInSession(sessionId, target.getId());
         return toResponse(target);
@@ -3,9 +3,16 @@ package cc.vipassana.service.impl;
 import cc.vipassana.entity.*;
 import cc.vipassana.mapper.*;
 import cc.vipassana.service.MeditationSeatService;
+import cc.vipassana.service.allocation.CompanionNameMatcher;
+import cc.vipassana.service.allocation.SessionSnapshot;
+import cc.vipassana.service.cache.SessionCache;
+import cc.vipassana.service.cache.SessionStatsStore;
 import cc.vipassana.service.layout.LayoutCompiler;
 import cc.vipassana.dto.layout.CompiledLayout;
+import cc.vipassana.dto.layout.NumberingConfig;
+import cc.vipassana.dto.layout.RenumberPolicy;
 import cc.vipassana.dto.layout.SeatAllocationContext;
+import cc.vipassana.dto.layout.SeatGrid;
 import cc.vipassana.service.seat.SeatAllocator;
 import cc.vipassana.service.seat.SeatAnnotationService;
 import cc.vipassana.service.seat.SeatNumberingService;
@@ -28,6 +35,11 @@ import java.util.stream.Collectors;
 @Service
 public class MeditationSeatServiceImpl implements MeditationSeatService {
 
+    /**
+     * 单条批量 SQL 的最大行数
+     */
+    private static final int BATCH_SIZE = 500;
+
     @Autowired
     private MeditationSeatMapper meditationSeatMapper;
 
@@ -61,6 +73,12 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
     @Autowired
     private SeatValidationService seatValidationService;
 
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private SessionStatsStore sessionStatsStore;
+
     @Override
     @Transactional
     public List<MeditationSeat> generateSeats(Long sessionId) {
@@ -87,16 +105,11 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
 
             // 2. 获取该期次所有学员的分配信息（批量查询优化）
             List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
-            Map<Long, Allocation> allocationMap = allocations.stream()
-                    .collect(Collectors.toMap(Allocation::getStudentId, a -> a));
             Map<Long, String> roomNumberMap = loadRoomNumberMap(allocations);
 
-            List<Long> studentIds = allocations.stream()
-                    .map(Allocation::getStudentId)
-                    .collect(Collectors.toList());
-
             // 分配算法应覆盖所有学员，即便未做房间分配；房间分配仅用于 bedCode 绑定
             List<Student> students = studentMapper.selectBySessionId(sessionId);
+            SessionSnapshot snapshot = SessionSnapshot.of(sessionId, students, allocations);
 
             log.info("期次 {} 已分配学员 {} 名", sessionId, students.size());
 
@@ -114,7 +127,7 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
                 seatAnnotationService.annotateSpecial(regionSeats,
                         regionStudents,
                         compiledLayout.getSource());
-                bindBedCodes(regionSeats, allocationMap, roomNumberMap);
+                bindBedCodes(regionSeats, snapshot, roomNumberMap);
                 meditationSeatMapper.insertBatch(regionSeats);
                 generatedSeats.addAll(regionSeats);
 
@@ -123,7 +136,7 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
             }
 
             // 处理同伴标记（需要在座位写入后，利用生成的ID更新）
-            processCompanionSeats(generatedSeats, students);
+            processCompanionSeats(generatedSeats, snapshot);
 
             List<String> validationWarnings = seatValidationService.validate(generatedSeats);
             warnings.addAll(validationWarnings);
@@ -131,6 +144,8 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
             if (!warnings.isEmpty()) {
                 warnings.forEach(w -> log.warn("期次 {} 生成警告: {}", sessionId, w));
             }
+            sessionCache.evictSeats(sessionId);
+            sessionStatsStore.refresh(sessionId);
             log.info("禅堂座位生成完成，期次ID: {}，共生成 {} 个座位", sessionId, generatedSeats.size());
             return generatedSeats;
 
@@ -140,6 +155,123 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
         }
     }
 
+    @Override
+    @Transactional
+    public List<MeditationSeat> generateSeatsIncrementally(Long sessionId) {
+        log.info("开始增量更新禅堂座位，期次ID: {}", sessionId);
+
+        List<MeditationSeat> seats = meditationSeatMapper.selectBySessionId(sessionId);
+        if (seats.isEmpty()) {
+            return generateSeats(sessionId);
+        }
+
+        try {
+            List<String> warnings = new ArrayList<>();
+            Session session = sessionMapper.selectById(sessionId);
+            if (session == null) {
+                log.warn("期次 {} 不存在", sessionId);
+                return new ArrayList<>();
+            }
+            List<MeditationHallConfig> hallConfigs = meditationHallConfigMapper.selectBySessionId(sessionId);
+            hallConfigs.removeIf(cfg -> !StringUtils.hasText(cfg.getLayoutConfig()));
+            if (hallConfigs.size() != 1) {
+                log.warn("期次 {} 禅堂配置异常，找到 {} 条有效配置", sessionId, hallConfigs.size());
+                throw new RuntimeException("禅堂配置异常：需要且仅允许一条有效配置");
+            }
+            MeditationHallConfig config = hallConfigs.get(0);
+            CompiledLayout compiledLayout = layoutCompiler.compile(config);
+
+            // 布局变化后已有座位与格子对不上，只能全量重新生成
+            if (!matchesLayout(seats, compiledLayout)) {
+                log.info("期次 {} 的座位与当前禅堂布局不一致，改为全量重新生成", sessionId);
+                meditationSeatMapper.deleteBySessionId(sessionId);
+                return generateSeats(sessionId);
+            }
+
+            List<Allocation> allocations = allocationMapper.selectBySessionId(sessionId);
+            Map<Long, String> roomNumberMap = loadRoomNumberMap(allocations);
+            List<Student> students = studentMapper.selectBySessionId(sessionId);
+            SessionSnapshot snapshot = SessionSnapshot.of(sessionId, students, allocations);
+            List<Student> regionStudents = filterStudentsByRegion(students, config.getGenderType());
+
+            // 1. 调整学员就座（释放、换座、新入座）
+            Set<Long> changed = seatAllocator.reallocate(config, compiledLayout, seats, regionStudents, warnings);
+            List<MeditationSeat> placed = seats.stream()
+                    .filter(seat -> changed.contains(seat.getId()) && seat.getStudentId() != null)
+                    .collect(Collectors.toList());
+            seatAnnotationService.annotateSpecial(placed, regionStudents, compiledLayout.getSource());
+
+            // 2. 床位号随房间分配变化
+            for (MeditationSeat seat : seats) {
+                Allocation allocation = seat.getStudentId() != null ? snapshot.allocationOf(seat.getStudentId()) : null;
+                String bedCode = allocation != null ? buildBedCode(allocation, roomNumberMap) : null;
+                if (!Objects.equals(bedCode, seat.getBedCode())) {
+                    seat.setBedCode(bedCode);
+                    changed.add(seat.getId());
+                }
+            }
+
+            // 3. 座位号：仅 ON_GENERATE 策略在生成时重新编号，其余策略保留已打印的座位号
+            NumberingConfig numbering = compiledLayout.getSource().getNumbering();
+            RenumberPolicy policy = numbering != null && numbering.getRenumberPolicy() != null
+                    ? numbering.getRenumberPolicy()
+                    : RenumberPolicy.ON_GENERATE;
+            if (policy == RenumberPolicy.ON_GENERATE) {
+                Map<Long, String> previousNumbers = new HashMap<>();
+                seats.forEach(seat -> previousNumbers.put(seat.getId(), seat.getSeatNumber()));
+                seatNumberingService.assignInitialNumbers(seats, compiledLayout.getSections(), numbering);
+                for (MeditationSeat seat : seats) {
+                    if (!Objects.equals(previousNumbers.get(seat.getId()), seat.getSeatNumber())) {
+                        changed.add(seat.getId());
+                    }
+                }
+            }
+
+            // 4. 同伴标记全量重算，只记录有变化的座位
+            markCompanionChanges(seats, snapshot).forEach(seat -> changed.add(seat.getId()));
+
+            // 5. 只写回变化的座位
+            for (MeditationSeat seat : seats) {
+                if (changed.contains(seat.getId())) {
+                    meditationSeatMapper.update(seat);
+                }
+            }
+
+            warnings.addAll(seatValidationService.validate(seats));
+            if (!warnings.isEmpty()) {
+                warnings.forEach(w -> log.warn("期次 {} 增量更新警告: {}", sessionId, w));
+            }
+            sessionCache.evictSeats(sessionId);
+            sessionStatsStore.refresh(sessionId);
+            log.info("禅堂座位增量更新完成，期次ID: {}，共 {} 个座位，更新 {} 个", sessionId, seats.size(), changed.size());
+            return seats;
+
+        } catch (Exception e) {
+            log.error("增量更新禅堂座位失败，期次ID: {}", sessionId, e);
+            throw new RuntimeException("增量更新禅堂座位失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 已有座位是否与布局的可坐格子一一对应
+     */
+    private boolean matchesLayout(List<MeditationSeat> seats, CompiledLayout layout) {
+        SeatGrid grid = layout.getGrid();
+        BitSet expected = grid.assignableSeats();
+        BitSet actual = new BitSet(grid.length());
+        for (MeditationSeat seat : seats) {
+            if (seat.getId() == null || seat.getRowIndex() == null || seat.getColIndex() == null) {
+                return false;
+            }
+            int cell = grid.index(seat.getRowIndex(), seat.getColIndex());
+            if (cell < 0 || !expected.get(cell) || actual.get(cell)) {
+                return false;
+            }
+            actual.set(cell);
+        }
+        return actual.equals(expected);
+    }
+
     private List<Student> filterStudentsByRegion(List<Student> students, String genderType) {
         if (genderType == null || "mixed".equalsIgnoreCase(genderType)) {
             return students;
@@ -151,13 +283,13 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
     }
 
     private void bindBedCodes(List<MeditationSeat> seats,
-                              Map<Long, Allocation> allocationMap,
+                              SessionSnapshot snapshot,
                               Map<Long, String> roomNumberMap) {
         for (MeditationSeat seat : seats) {
             if (seat.getStudentId() == null) {
                 continue;
             }
-            Allocation allocation = allocationMap.get(seat.getStudentId());
+            Allocation allocation = snapshot.allocationOf(seat.getStudentId());
             if (allocation == null) {
                 continue;
             }
@@ -210,14 +342,14 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
 
     @Override
     public List<MeditationSeat> getSeats(Long sessionId) {
-        List<MeditationSeat> seats = meditationSeatMapper.selectBySessionId(sessionId);
+        List<MeditationSeat> seats = sessionCache.seats(sessionId, () -> meditationSeatMapper.selectBySessionId(sessionId));
         enrichCompanionNames(sessionId, seats);
         return seats;
     }
 
     @Override
     public List<MeditationSeat> getSeatsByRegion(Long sessionId, String regionCode) {
-        List<MeditationSeat> allSeats = meditationSeatMapper.selectBySessionId(sessionId);
+        List<MeditationSeat> allSeats = sessionCache.seats(sessionId, () -> meditationSeatMapper.selectBySessionId(sessionId));
         enrichCompanionNames(sessionId, allSeats);
         return allSeats.stream()
                 .filter(s -> regionCode.equals(s.getRegionCode()))
@@ -272,6 +404,9 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
         updateCompanionRelations(seat1);
         updateCompanionRelations(seat2);
         recalcCompanionRelations(seat1.getSessionId());
+        sessionCache.evictSeats(seat1.getSessionId());
+        sessionCache.evictSeats(seat2.getSessionId());
+        sessionStatsStore.refresh(seat2.getSessionId());
 
         log.info("座位交换成功: {} <-> {}", seatId1, seatId2);
     }
@@ -317,6 +452,8 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
                 seat.setUpdatedAt(LocalDateTime.now());
                 meditationSeatMapper.update(seat);
                 updateCompanionRelations(seat);
+                sessionCache.evictSeats(seat.getSessionId());
+                sessionStatsStore.refresh(seat.getSessionId());
                 log.info("已取消座位分配，座位 {}", seatId);
                 return;
             }
@@ -365,6 +502,8 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
             updateCompanionRelations(seat);
 
             recalcCompanionRelations(seat.getSessionId());
+            sessionCache.evictSeats(seat.getSessionId());
+            sessionStatsStore.refresh(seat.getSessionId());
 
             log.info("座位分配成功: 学员 {} 分配到座位 {}", studentId, seatId);
 
@@ -379,6 +518,8 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
     public void deleteSessionSeats(Long sessionId) {
         try {
             int deletedCount = meditationSeatMapper.deleteBySessionId(sessionId);
+            sessionCache.evictSeats(sessionId);
+            sessionStatsStore.refresh(sessionId);
             log.info("期次 {} 的座位已删除，共删除 {} 个座位", sessionId, deletedCount);
         } catch (Exception e) {
             log.error("删除座位失败，期次ID: {}", sessionId, e);
@@ -389,13 +530,12 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
     @Override
     public SeatStatistics getStatistics(Long sessionId) {
         try {
-            List<MeditationSeat> seats = meditationSeatMapper.selectBySessionId(sessionId);
+            // 写时维护的期次统计，不再加载全部座位
+            SessionStats sessionStats = sessionStatsStore.get(sessionId);
 
             SeatStatistics stats = new SeatStatistics();
-            stats.totalSeats = seats.size();
-            stats.occupiedSeats = (int) seats.stream()
-                    .filter(s -> s.getStudentId() != null)
-                    .count();
+            stats.totalSeats = sessionStats != null ? sessionStats.getTotalSeats() : 0;
+            stats.occupiedSeats = sessionStats != null ? sessionStats.getOccupiedSeats() : 0;
             stats.availableSeats = stats.totalSeats - stats.occupiedSeats;
             stats.occupancyRate = stats.totalSeats > 0 ?
                     (double) stats.occupiedSeats / stats.totalSeats : 0.0;
@@ -415,91 +555,128 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
      * 识别学员的同伴，检查是否相邻，标记同伴关系
      *
      * @param seats 生成的所有座位列表
-     * @param students 学员列表
+     * @param snapshot 期次快照
      */
-    private void processCompanionSeats(List<MeditationSeat> seats, List<Student> students) {
+    private void processCompanionSeats(List<MeditationSeat> seats, SessionSnapshot snapshot) {
         log.info("开始处理同伴座位标记...");
 
-        try {
-            CompanionContext ctx = buildCompanionContext(students, seats);
+        // 只写同伴字段有变化的座位，与座位写入在同一事务内，失败时整体回滚
+        List<MeditationSeat> changed = markCompanionChanges(seats, snapshot);
+        for (int from = 0; from < changed.size(); from += BATCH_SIZE) {
+            meditationSeatMapper.updateCompanionBatch(changed.subList(from, Math.min(from + BATCH_SIZE, changed.size())));
+        }
+        log.info("同伴标记已写入 {} 个座位", changed.size());
+    }
 
-            // 清空旧标记
-            for (MeditationSeat seat : seats) {
-                seat.setIsWithCompanion(false);
-                seat.setCompanionSeatId(null);
+    /**
+     * 重算同伴标记并返回同伴字段（is_with_companion、companion_seat_id）有变化的座位
+     */
+    private List<MeditationSeat> markCompanionChanges(List<MeditationSeat> seats, SessionSnapshot snapshot) {
+        Map<Long, Long> previousCompanions = new HashMap<>();
+        Set<Long> previouslyFlagged = new HashSet<>();
+        for (MeditationSeat seat : seats) {
+            previousCompanions.put(seat.getId(), seat.getCompanionSeatId());
+            if (Boolean.TRUE.equals(seat.getIsWithCompanion())) {
+                previouslyFlagged.add(seat.getId());
             }
+        }
+        markCompanionSeats(seats, snapshot);
 
-            // 标记同伴关系：有同伴就打标，相邻则指向对方座位
-            for (MeditationSeat seat : seats) {
-                Long studentId = seat.getStudentId();
-                if (studentId == null) {
-                    continue;
-                }
-                
-                // 获取匹配到的同伴ID
-                Set<Long> companions = ctx.fellowMap().getOrDefault(studentId, Collections.emptySet());
-                // 获取未匹配的同伴姓名
-                Set<String> unmatchedNames = ctx.unmatchedCompanionNames().getOrDefault(studentId, Collections.emptySet());
-                
-                if (companions.isEmpty() && unmatchedNames.isEmpty()) {
-                    continue;
-                }
-                
-                seat.setIsWithCompanion(true);
+        List<MeditationSeat> changed = new ArrayList<>();
+        for (MeditationSeat seat : seats) {
+            if (seat.getId() == null) {
+                continue;
+            }
+            boolean flagged = Boolean.TRUE.equals(seat.getIsWithCompanion());
+            if (flagged != previouslyFlagged.contains(seat.getId())
+                    || !Objects.equals(previousCompanions.get(seat.getId()), seat.getCompanionSeatId())) {
+                changed.add(seat);
+            }
+        }
+        return changed;
+    }
 
-                // 同伴姓名优先取匹配到的学生姓名，否则取未匹配的原始姓名
-                for (Long companionId : companions) {
-                    Student companionStudent = ctx.studentMap().get(companionId);
-                    if (companionStudent != null && StringUtils.hasText(companionStudent.getName())) {
-                        seat.setCompanionName(companionStudent.getName());
-                        break;
-                    }
-                }
-                if (!unmatchedNames.isEmpty() && !StringUtils.hasText(seat.getCompanionName())) {
-                    seat.setCompanionName(unmatchedNames.iterator().next());
+    /**
+     * 在内存中重算同伴标记（不写库）
+     *
+     * @return 带同伴标记的座位
+     */
+    private List<MeditationSeat> markCompanionSeats(List<MeditationSeat> seats, SessionSnapshot snapshot) {
+        List<MeditationSeat> marked = new ArrayList<>();
+        CompanionContext ctx = buildCompanionContext(snapshot, seats);
+
+        // 清空旧标记
+        for (MeditationSeat seat : seats) {
+            seat.setIsWithCompanion(false);
+            seat.setCompanionSeatId(null);
+        }
+
+        // 标记同伴关系：有同伴就打标，相邻则指向对方座位
+        for (MeditationSeat seat : seats) {
+            Long studentId = seat.getStudentId();
+            if (studentId == null) {
+                continue;
+            }
+            
+            // 获取匹配到的同伴ID
+            Set<Long> companions = ctx.fellowMap().getOrDefault(studentId, Collections.emptySet());
+            // 获取未匹配的同伴姓名
+            Set<String> unmatchedNames = ctx.unmatchedCompanionNames().getOrDefault(studentId, Collections.emptySet());
+            
+            if (companions.isEmpty() && unmatchedNames.isEmpty()) {
+                continue;
+            }
+            
+            seat.setIsWithCompanion(true);
+
+            // 同伴姓名优先取匹配到的学生姓名，否则取未匹配的原始姓名
+            for (Long companionId : companions) {
+                Student companionStudent = ctx.snapshot().student(companionId);
+                if (companionStudent != null && StringUtils.hasText(companionStudent.getName())) {
+                    seat.setCompanionName(companionStudent.getName());
+                    break;
                 }
+            }
+            if (!unmatchedNames.isEmpty() && !StringUtils.hasText(seat.getCompanionName())) {
+                seat.setCompanionName(unmatchedNames.iterator().next());
+            }
 
-                // 尝试优先相邻的同伴座位，否则取任意有座位的同伴
-                MeditationSeat anyCompanionSeat = null;
-                for (Long companionId : companions) {
-                    MeditationSeat companionSeat = ctx.studentSeatMap().get(companionId);
-                    if (companionSeat == null) {
-                        continue;
-                    }
-                    if (isAdjacentSeats(seat, companionSeat)) {
-                        seat.setCompanionSeatId(companionSeat.getId());
-                        break;
-                    }
-                    if (anyCompanionSeat == null) {
-                        anyCompanionSeat = companionSeat;
-                    }
+            // 尝试优先相邻的同伴座位，否则取任意有座位的同伴
+            MeditationSeat anyCompanionSeat = null;
+            for (Long companionId : companions) {
+                MeditationSeat companionSeat = ctx.studentSeatMap().get(companionId);
+                if (companionSeat == null) {
+                    continue;
                 }
-                if (seat.getCompanionSeatId() == null && anyCompanionSeat != null) {
-                    seat.setCompanionSeatId(anyCompanionSeat.getId());
+                if (isAdjacentSeats(seat, companionSeat)) {
+                    seat.setCompanionSeatId(companionSeat.getId());
+                    break;
+                }
+                if (anyCompanionSeat == null) {
+                    anyCompanionSeat = companionSeat;
                 }
-                seat.setUpdatedAt(LocalDateTime.now());
-                meditationSeatMapper.update(seat);
             }
-
-            log.info("同伴标记完成，涉及 {} 名学员（匹配: {}, 未匹配: {}）", 
-                    ctx.fellowMap().size(), 
-                    ctx.fellowMap().size(),
-                    ctx.unmatchedCompanionNames().size());
-
-        } catch (Exception e) {
-            log.error("处理同伴座位标记失败", e);
-            // 不抛出异常，允许座位生成继续
+            if (seat.getCompanionSeatId() == null && anyCompanionSeat != null) {
+                seat.setCompanionSeatId(anyCompanionSeat.getId());
+            }
+            seat.setUpdatedAt(LocalDateTime.now());
+            marked.add(seat);
         }
+
+        log.info("同伴标记完成，涉及 {} 名学员（匹配: {}, 未匹配: {}）", 
+                ctx.fellowMap().size(), 
+                ctx.fellowMap().size(),
+                ctx.unmatchedCompanionNames().size());
+        return marked;
     }
 
-    private CompanionContext buildCompanionContext(List<Student> students, List<MeditationSeat> seats) {
+    private CompanionContext buildCompanionContext(SessionSnapshot snapshot, List<MeditationSeat> seats) {
+        List<Student> students = snapshot.students();
         Map<String, Long> nameIndex = new HashMap<>();
-        Map<Long, Student> studentMap = new HashMap<>();
         for (Student s : students) {
             if (s.getName() != null) {
                 nameIndex.put(s.getName().trim(), s.getId());
             }
-            studentMap.put(s.getId(), s);
         }
 
         Map<Long, Set<Long>> fellowMap = new HashMap<>();
@@ -507,9 +684,8 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
         int matchedTokens = 0;
         int unmatchedTokens = 0;
         List<String> unmatchedSamples = new ArrayList<>();
-        // 预备一个按长度排序的姓名列表，用于模糊拆分连续姓名
-        List<String> sortedNames = new ArrayList<>(nameIndex.keySet());
-        sortedNames.sort((a, b) -> Integer.compare(b.length(), a.length()));
+        // 预建姓名自动机，用于一次扫描拆分连写的多个姓名
+        CompanionNameMatcher nameMatcher = new CompanionNameMatcher(nameIndex);
 
         for (Student s : students) {
             if (!StringUtils.hasText(s.getFellowList())) {
@@ -549,14 +725,11 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
                     continue;
                 }
                 boolean matchedSub = false;
-                for (String known : sortedNames) {
-                    if (token.contains(known)) {
-                        Long subCid = nameIndex.get(known);
-                        if (subCid != null && !subCid.equals(s.getId())) {
-                            companionsForStudent.add(subCid);
-                            matchedTokens++;
-                            matchedSub = true;
-                        }
+                for (Long subCid : nameMatcher.match(token)) {
+                    if (!subCid.equals(s.getId())) {
+                        companionsForStudent.add(subCid);
+                        matchedTokens++;
+                        matchedSub = true;
                     }
                 }
                 if (!matchedSub) {
@@ -587,11 +760,11 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
             if (mappingSamples.size() >= 5) {
                 break;
             }
-            Student s = studentMap.get(entry.getKey());
+            Student s = snapshot.student(entry.getKey());
             String selfName = s != null ? s.getName() : String.valueOf(entry.getKey());
             List<String> companionNames = entry.getValue().stream()
                     .map(id -> {
-                        Student cs = studentMap.get(id);
+                        Student cs = snapshot.student(id);
                         return cs != null ? cs.getName() : String.valueOf(id);
                     })
                     .toList();
@@ -604,19 +777,19 @@ public class MeditationSeatServiceImpl implements MeditationSeatService {
             if (unmatchedMappingSamples.size() >= 5) {
                 break;
             }
-            Student s = studentMap.get(entry.getKey());
+            Student s = snapshot.student(entry.getKey());
             String selfName = s != null ? s.getName() : String.valueOf(entry.getKey());
             unmatchedMappingSamples.add(selfName + " -> " + entry.getValue());
         }
 
         log.info("同伴解析: matched={}, pairs={}, students={}, unmatched={}, unmatchedSamples={}, mapSamples={}, unmatchedMapSamples={}",
                 matchedTokens, fellowMap.size(), students.size(), unmatchedTokens, unmatchedSamples, mappingSamples, unmatchedMappingSamples);
-        return new CompanionContext(fellowMap, studentSeatMap, studentMap, unmatchedCompanionNames);
+        return new CompanionContext(fellowMap, studentSeatMap, snapshot, unmatchedCompanionNames);
     }
 
 private record CompanionContext(Map<Long, Set<Long>> fellowMap, 
                                     Map<Long, MeditationSeat> studentSeatMap,
-                                    Map<Long, Student> studentMap,
+                                    SessionSnapshot snapshot,
                                     Map<Long, Set<String>> unmatchedCompanionNames) {}
 
     /**
@@ -626,8 +799,8 @@ private record CompanionContext(Map<Long, Set<Long>> fellowMap,
         if (seats == null || seats.isEmpty() || sessionId == null) {
             return;
         }
-        List<Student> students = studentMapper.selectBySessionId(sessionId);
-        CompanionContext ctx = buildCompanionContext(students, seats);
+        List<Student> students = sessionCache.students(sessionId, () -> studentMapper.selectBySessionId(sessionId));
+        CompanionContext ctx = buildCompanionContext(SessionSnapshot.of(sessionId, students, List.of()), seats);
         Map<Long, MeditationSeat> seatById = seats.stream()
                 .collect(Collectors.toMap(MeditationSeat::getId, s -> s, (a, b) -> a));
 
@@ -639,7 +812,7 @@ private record CompanionContext(Map<Long, Set<Long>> fellowMap,
             if (seat.getCompanionSeatId() != null) {
                 MeditationSeat cs = seatById.get(seat.getCompanionSeatId());
                 if (cs != null && cs.getStudentId() != null) {
-                    Student companionStudent = ctx.studentMap().get(cs.getStudentId());
+                    Student companionStudent = ctx.snapshot().student(cs.getStudentId());
                     if (companionStudent != null && StringUtils.hasText(companionStudent.getName())) {
                         seat.setCompanionName(companionStudent.getName());
                         continue;
@@ -650,7 +823,7 @@ private record CompanionContext(Map<Long, Set<Long>> fellowMap,
             if (seat.getStudentId() != null) {
                 Set<Long> companions = ctx.fellowMap().getOrDefault(seat.getStudentId(), Collections.emptySet());
                 for (Long cid : companions) {
-                    Student cst = ctx.studentMap().get(cid);
+                    Student cst = ctx.snapshot().student(cid);
                     if (cst != null && StringUtils.hasText(cst.getName())) {
                         seat.setCompanionName(cst.getName());
                         break;
@@ -767,6 +940,6 @@ private record CompanionContext(Map<Long, Set<Long>> fellowMap,
         List<Student> students = studentIds.isEmpty()
                 ? Collections.emptyList()
                 : studentMapper.selectByIds(studentIds);
-        processCompanionSeats(seats, students);
+        processCompanionSeats(seats, SessionSnapshot.of(sessionId, students, List.of()));
     }
 }
@@ -0,0 +1,314 @@
+package cc.vipassana.service.impl;
+
+import cc.vipassana.dto.report.AllocationExportRow;
+import cc.vipassana.dto.report.GroupCount;
+import cc.vipassana.dto.report.RosterExportRow;
+import cc.vipassana.dto.report.SeatChartCell;
+import cc.vipassana.entity.*;
+import cc.vipassana.mapper.AllocationMapper;
+import cc.vipassana.mapper.MeditationSeatMapper;
+import cc.vipassana.mapper.ReportMapper;
+import cc.vipassana.mapper.StudentMapper;
+import cc.vipassana.service.AllocationService;
+import cc.vipassana.service.MeditationSeatService;
+import cc.vipassana.service.ReportService;
+import cc.vipassana.service.cache.SessionCache;
+import cc.vipassana.service.cache.SessionStatsStore;
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 报告服务实现
+ *
+ * 总数取自期次统计（session_stats），分组计数下推到数据库聚合，不再把学员、座位、分配全量加载到内存分组
+ * 导出由 ReportMapper 在库内联表直接输出导出行，逐块写入 Excel
+ */
+@Slf4j
+@Service
+public class ReportServiceImpl implements ReportService {
+
+    private static final String UNKNOWN = "未知";
+
+    /**
+     * 导出时每次交给 EasyExcel 的行数；EasyExcel 以 SXSSF 流式写出，已写的行按窗口刷到临时文件
+     */
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    @Autowired
+    private AllocationMapper allocationMapper;
+
+    @Autowired
+    private MeditationSeatMapper meditationSeatMapper;
+
+    @Autowired
+    private StudentMapper studentMapper;
+
+    @Autowired
+    private ReportMapper reportMapper;
+
+    @Autowired
+    private AllocationService allocationService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private SessionStatsStore sessionStatsStore;
+
+    @Override
+    public SessionStats getSessionStats(Long sessionId) {
+        return sessionStatsStore.get(sessionId);
+    }
+
+    @Override
+    public Map<String, Object> getAllocationReport(Long sessionId, boolean includeRows) {
+        SessionStats stats = sessionStatsStore.get(sessionId);
+        int totalStudents = stats.getTotalStudents();
+        int allocatedStudents = stats.getAllocatedStudents();
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("totalStudents", totalStudents);
+        statistics.put("allocatedStudents", allocatedStudents);
+        statistics.put("unallocatedStudents", totalStudents - allocatedStudents);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("statistics", statistics);
+        // 按房间统计分配数（Bed 表已删除，按 roomId 分组）
+        report.put("byRoom", toTotals(allocationMapper.countByRoomId(sessionId)));
+        if (includeRows) {
+            report.put("allocations", sessionCache.allocations(sessionId, () -> allocationMapper.selectBySessionId(sessionId)));
+        }
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> getMeditationSeatReport(Long sessionId, boolean includeRows) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("statistics", toSeatStatistics(sessionStatsStore.get(sessionId)));
+        report.put("byRegion", toTotals(meditationSeatMapper.countByRegionCode(sessionId)));
+        report.put("byGender", toTotals(meditationSeatMapper.countByGender(sessionId)));
+        if (includeRows) {
+            report.put("seats", sessionCache.seats(sessionId, () -> meditationSeatMapper.selectBySessionId(sessionId)));
+        }
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> getStudentStatisticsReport(Long sessionId) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totalStudents", sessionStatsStore.get(sessionId).getTotalStudents());
+        report.put("byGender", toTotals(studentMapper.countByGender(sessionId)));
+        report.put("byStudentType", toTotals(studentMapper.countByStudentType(sessionId)));
+        report.put("byAgeGroup", toTotals(studentMapper.countByAgeGroup(sessionId)));
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> getComprehensiveReport(Long sessionId) {
+        SessionStats stats = sessionStatsStore.get(sessionId);
+        int totalStudents = stats.getTotalStudents();
+        int allocatedStudents = stats.getAllocatedStudents();
+        MeditationSeatService.SeatStatistics seatStats = toSeatStatistics(stats);
+        List<AllocationService.AllocationConflict> conflicts = allocationService.getConflicts(sessionId);
+
+        Map<String, Long> studentsByGender = new LinkedHashMap<>();
+        studentsByGender.put("M", (long) stats.getMaleStudents());
+        studentsByGender.put("F", (long) stats.getFemaleStudents());
+        int otherGender = totalStudents - stats.getMaleStudents() - stats.getFemaleStudents();
+        if (otherGender > 0) {
+            studentsByGender.put(UNKNOWN, (long) otherGender);
+        }
+
+        Map<String, Object> studentSummary = new LinkedHashMap<>();
+        studentSummary.put("total", totalStudents);
+        studentSummary.put("byGender", studentsByGender);
+
+        Map<String, Object> allocationSummary = new LinkedHashMap<>();
+        allocationSummary.put("allocated", allocatedStudents);
+        allocationSummary.put("unallocated", totalStudents - allocatedStudents);
+        allocationSummary.put("allocationRate", totalStudents > 0
+                ? String.format("%.2f%%", allocatedStudents * 100.0 / totalStudents) : "0%");
+
+        Map<String, Object> seatSummary = new LinkedHashMap<>();
+        seatSummary.put("totalSeats", seatStats.totalSeats);
+        seatSummary.put("occupiedSeats", seatStats.occupiedSeats);
+        seatSummary.put("availableSeats", seatStats.availableSeats);
+        seatSummary.put("occupancyRate", String.format("%.2f%%", seatStats.occupancyRate * 100));
+
+        Map<String, Object> conflictSummary = new LinkedHashMap<>();
+        conflictSummary.put("totalConflicts", conflicts != null ? conflicts.size() : 0);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("sessionId", sessionId);
+        report.put("timestamp", new Date());
+        report.put("studentSummary", studentSummary);
+        report.put("allocationSummary", allocationSummary);
+        report.put("seatSummary", seatSummary);
+        report.put("conflictSummary", conflictSummary);
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> getConflictReport(Long sessionId) {
+        List<AllocationService.AllocationConflict> conflicts = allocationService.getConflicts(sessionId);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("sessionId", sessionId);
+        report.put("totalConflicts", conflicts != null ? conflicts.size() : 0);
+        report.put("conflicts", conflicts != null ? conflicts : new ArrayList<>());
+        return report;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllocations(Long sessionId, OutputStream out) {
+        int count;
+        try (ExcelWriter writer = EasyExcel.write(out).autoCloseStream(false).build()) {
+            WriteSheet sheet = EasyExcel.writerSheet(0, "房间分配").head(AllocationExportRow.class).build();
+            count = streamToSheet(reportMapper.streamAllocationRows(sessionId), writer, sheet);
+        }
+        log.info("导出房间分配名单，期次ID: {}，共 {} 行", sessionId, count);
+    }
+
+    @Override
+    public void exportSeatChart(Long sessionId, OutputStream out) {
+        List<SeatChartCell> cells = reportMapper.selectSeatChartCells(sessionId);
+
+        Map<String, List<SeatChartCell>> byGender = new LinkedHashMap<>();
+        byGender.put("M", new ArrayList<>());
+        byGender.put("F", new ArrayList<>());
+        for (SeatChartCell cell : cells) {
+            byGender.computeIfAbsent(cell.getGender() != null ? cell.getGender() : UNKNOWN, k -> new ArrayList<>()).add(cell);
+        }
+
+        try (ExcelWriter writer = EasyExcel.write(out).autoCloseStream(false).build()) {
+            int sheetNo = 0;
+            for (Map.Entry<String, List<SeatChartCell>> entry : byGender.entrySet()) {
+                String sheetName = "M".equals(entry.getKey()) ? "男众" : "F".equals(entry.getKey()) ? "女众" : UNKNOWN;
+                WriteSheet sheet = EasyExcel.writerSheet(sheetNo++, sheetName).needHead(false).build();
+                writeSeatGrid(writer, sheet, entry.getValue());
+            }
+        }
+        log.info("导出禅堂座位图，期次ID: {}，共 {} 个座位", sessionId, cells.size());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportRoster(Long sessionId, OutputStream out) {
+        int count;
+        try (ExcelWriter writer = EasyExcel.write(out).autoCloseStream(false).build()) {
+            WriteSheet sheet = EasyExcel.writerSheet(0, "报到名单").head(RosterExportRow.class).build();
+            count = streamToSheet(reportMapper.streamRosterRows(sessionId), writer, sheet);
+        }
+        log.info("导出报到名单，期次ID: {}，共 {} 行", sessionId, count);
+    }
+
+    /**
+     * 按外接矩形逐行写出座位图，每格为"座位号 姓名"，通道与空位留空
+     *
+     * @param cells 已按行列排序的格子
+     */
+    private void writeSeatGrid(ExcelWriter writer, WriteSheet sheet, List<SeatChartCell> cells) {
+        if (cells.isEmpty()) {
+            writer.write(List.of(), sheet);
+            return;
+        }
+        int minCol = Integer.MAX_VALUE;
+        int maxCol = Integer.MIN_VALUE;
+        for (SeatChartCell cell : cells) {
+            minCol = Math.min(minCol, cell.getColIndex());
+            maxCol = Math.max(maxCol, cell.getColIndex());
+        }
+        int width = maxCol - minCol + 1;
+        int firstRow = cells.get(0).getRowIndex();
+        int lastRow = cells.get(cells.size() - 1).getRowIndex();
+
+        List<List<String>> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        int next = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            List<String> line = new ArrayList<>(Collections.nCopies(width, (String) null));
+            while (next < cells.size() && cells.get(next).getRowIndex() == row) {
+                SeatChartCell cell = cells.get(next++);
+                line.set(cell.getColIndex() - minCol, cell.getLabel() != null ? cell.getLabel() : "");
+            }
+            chunk.add(line);
+            if (chunk.size() >= EXPORT_CHUNK_SIZE) {
+                writer.write(chunk, sheet);
+                chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            }
+        }
+        writer.write(chunk, sheet);
+    }
+
+    /**
+     * 遍历游标，按块写入工作表（游标用完即关闭）
+     *
+     * @return 写出的行数
+     */
+    private <T> int streamToSheet(Cursor<T> cursor, ExcelWriter writer, WriteSheet sheet) {
+        List<T> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        int[] count = {0};
+        forEach(cursor, item -> {
+            chunk.add(item);
+            count[0]++;
+            if (chunk.size() >= EXPORT_CHUNK_SIZE) {
+                writer.write(new ArrayList<>(chunk), sheet);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty() || count[0] == 0) {
+            writer.write(chunk, sheet);
+        }
+        return count[0];
+    }
+
+    private static <T> void forEach(Cursor<T> cursor, Consumer<T> action) {
+        try (cursor) {
+            for (T item : cursor) {
+                action.accept(item);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 分组计数转为 分组值 → 行数（空分组值记为"未知"并合并）
+     */
+    private Map<String, Long> toTotals(List<GroupCount> counts) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (GroupCount count : counts) {
+            String key = count.getGroupKey() != null ? count.getGroupKey() : UNKNOWN;
+            totals.merge(key, count.getTotal(), Long::sum);
+        }
+        return totals;
+    }
+
+    /**
+     * 由期次统计生成座位统计
+     */
+    private MeditationSeatService.SeatStatistics toSeatStatistics(SessionStats sessionStats) {
+        int total = sessionStats.getTotalSeats();
+        int occupied = sessionStats.getOccupiedSeats();
+        MeditationSeatService.SeatStatistics stats = new MeditationSeatService.SeatStatistics();
+        stats.totalSeats = total;
+        stats.occupiedSeats = occupied;
+        stats.availableSeats = total - occupied;
+        stats.occupancyRate = total > 0 ? (double) occupied / total : 0.0;
+        stats.unassignedStudents = 0;
+        stats.warnings = Collections.emptyList();
+        return stats;
+    }
+}
@@ -1,5 +1,6 @@
 package cc.vipassana.service.impl;
 
+import cc.vipassana.common.AllocationEngine;
 import cc.vipassana.dto.SessionConfigDTO;
 import cc.vipassana.mapper.SessionMapper;
 import cc.vipassana.service.SessionConfigService;
@@ -56,6 +57,11 @@ public class SessionConfigServiceImpl implements SessionConfigService {
             log.warn("保存课程设置：参数无效");
             return false;
         }
+        // 分配引擎为空表示不修改；非法取值直接拒绝，避免拼写错误静默退回 GREEDY
+        if (config.getAllocationEngine() != null && !AllocationEngine.isValid(config.getAllocationEngine())) {
+            log.warn("保存课程设置：分配引擎无效，课程ID={}, allocationEngine={}", sessionId, config.getAllocationEngine());
+            return false;
+        }
 
         try {
             int result = sessionMapper.updateConfig(sessionId, config);
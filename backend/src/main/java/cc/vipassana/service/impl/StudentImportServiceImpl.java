@@ -1,17 +1,27 @@
 package cc.vipassana.service.impl;
 
 import cc.vipassana.dto.StudentImportDTO;
+import cc.vipassana.dto.StudentImportProgress;
 import cc.vipassana.entity.Student;
+import cc.vipassana.listener.StudentImportListener;
+import cc.vipassana.listener.StudentImportValidator;
 import cc.vipassana.mapper.StudentMapper;
 import cc.vipassana.service.StudentImportService;
+import cc.vipassana.service.cache.SessionCache;
+import cc.vipassana.service.cache.SessionStatsStore;
+import com.alibaba.excel.EasyExcel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * 学员导入服务实现
@@ -25,6 +35,32 @@ public class StudentImportServiceImpl implements StudentImportService {
     @Autowired
     private StudentMapper studentMapper;
 
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private SessionStatsStore sessionStatsStore;
+
+    @Autowired
+    @Qualifier("studentImportExecutor")
+    private Executor importExecutor;
+
+    /**
+     * 每批写入条数
+     */
+    @Value("${student.import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 导入结束后进度保留时长（毫秒），供前端导入完成后再查询一次
+     */
+    private static final long PROGRESS_RETENTION_MS = 10 * 60 * 1000L;
+
+    /**
+     * 各课程最近一次流式导入的进度（结束超过保留时长的条目在下次导入或查询时清理）
+     */
+    private final Map<Long, StudentImportProgress> importProgress = new ConcurrentHashMap<>();
+
     /**
      * 预检查：识别新学员 vs 重复学员
      * 核心逻辑：基于身份证号的唯一约束 (session_id, id_card)
@@ -45,13 +81,14 @@ public class StudentImportServiceImpl implements StudentImportService {
 
         for (StudentImportDTO student : students) {
             String idCard = student.getIdCard();
+            String error = StudentImportValidator.validate(student, true);
 
-            if (idCard == null || idCard.isEmpty()) {
-                // 身份证号为空，记为错误
+            if (error != null) {
+                // 校验失败（与流式导入规则一致），记为错误
                 Map<String, Object> dup = new HashMap<>();
                 dup.put("studentNumber", student.getNumber());
                 dup.put("name", student.getName());
-                dup.put("reason", "身份证号不能为空");
+                dup.put("reason", error);
                 duplicates.add(dup);
             } else if (existingIdCards.contains(idCard)) {
                 // 这是重复学员 - 同一个身份证号已在本课程中存在
@@ -101,30 +138,52 @@ public class StudentImportServiceImpl implements StudentImportService {
         List<Map<String, Object>> duplicates =
             (List<Map<String, Object>>) precheckResult.get("duplicates");
 
-        // 第二步：导入新学员
+        // 第二步：按批写入新学员（文件内身份证号重复的行以首行为准）
         int importedCount = 0;
         int failedCount = 0;
         List<Map<String, String>> failedList = new ArrayList<>();
 
         long startTime = System.currentTimeMillis();
 
+        Set<String> seenIdCards = new HashSet<>();
+        List<StudentImportDTO> unique = new ArrayList<>(newStudents.size());
         for (StudentImportDTO dto : newStudents) {
+            if (seenIdCards.add(dto.getIdCard())) {
+                unique.add(dto);
+            } else {
+                Map<String, Object> dup = new HashMap<>();
+                dup.put("studentNumber", dto.getNumber());
+                dup.put("name", dto.getName());
+                dup.put("idCard", dto.getIdCard());
+                dup.put("reason", "该身份证号在导入文件中重复");
+                duplicates.add(dup);
+            }
+        }
+
+        for (int from = 0; from < unique.size(); from += batchSize) {
+            List<StudentImportDTO> chunk = unique.subList(from, Math.min(from + batchSize, unique.size()));
+            List<Student> batch = new ArrayList<>(chunk.size());
+            for (StudentImportDTO dto : chunk) {
+                batch.add(convertDtoToEntity(dto, sessionId));
+            }
             try {
-                Student student = convertDtoToEntity(dto, sessionId);
-                studentMapper.insert(student);
-                importedCount++;
+                importedCount += studentMapper.insertBatch(batch);
             } catch (Exception e) {
-                failedCount++;
-                Map<String, String> failed = new HashMap<>();
-                failed.put("studentNumber", dto.getNumber());
-                failed.put("name", dto.getName());
-                failed.put("error", e.getMessage());
-                failedList.add(failed);
-                log.warn("学员导入失败：{}, 原因：{}", dto.getName(), e.getMessage());
+                failedCount += chunk.size();
+                for (StudentImportDTO dto : chunk) {
+                    Map<String, String> failed = new HashMap<>();
+                    failed.put("studentNumber", dto.getNumber());
+                    failed.put("name", dto.getName());
+                    failed.put("error", e.getMessage());
+                    failedList.add(failed);
+                }
+                log.warn("学员批量导入失败：{} 条, 原因：{}", chunk.size(), e.getMessage());
             }
         }
 
         long duration = System.currentTimeMillis() - startTime;
+        sessionCache.evictStudents(sessionId);
+        sessionStatsStore.refresh(sessionId);
 
         // 构造返回结果
         Map<String, Object> result = new HashMap<>();
@@ -142,6 +201,70 @@ public class StudentImportServiceImpl implements StudentImportService {
         return result;
     }
 
+    /**
+     * 流式导入：边读边校验边写入，不在内存中保留整个文件
+     * 校验在工作线程池中进行，去重与写库在读取线程按顺序进行，每批写入单独提交
+     */
+    @Override
+    public Map<String, Object> importStudents(Long sessionId, InputStream inputStream) {
+        if (sessionId == null || inputStream == null) {
+            return buildErrorResponse("课程ID和导入文件不能为空");
+        }
+
+        purgeFinishedProgress();
+        StudentImportProgress progress = new StudentImportProgress(sessionId);
+        importProgress.put(sessionId, progress);
+        long startTime = System.currentTimeMillis();
+
+        try (StudentImportListener listener = new StudentImportListener(studentMapper, sessionId)) {
+            listener.setBatchSize(batchSize);
+            listener.setExecutor(importExecutor);
+            listener.setRequireIdCard(true);
+            listener.setIdCards(getExistingIdCards(sessionId));
+            listener.setConverter(dto -> convertDtoToEntity(dto, sessionId));
+            listener.setProgress(progress);
+
+            EasyExcel.read(inputStream, StudentImportDTO.class, listener)
+                    .headRowNumber(1)  // 第一行是表头
+                    .doReadAll();
+
+            long duration = System.currentTimeMillis() - startTime;
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("imported", listener.getSuccessCount());
+            result.put("rejected", listener.getRejectedList().size());
+            result.put("failed", listener.getFailedList().size());
+            result.put("total", progress.getReadCount());
+            result.put("rejectedList", listener.getRejectedList());
+            result.put("failedList", listener.getFailedList());
+            result.put("durationMs", duration);
+
+            log.info("学员流式导入完成：课程ID={}, 读取={}, 导入={}, 拒绝={}, 失败={}, 耗时={}ms",
+                     sessionId, progress.getReadCount(), listener.getSuccessCount(),
+                     listener.getRejectedList().size(), listener.getFailedList().size(), duration);
+            return result;
+        } finally {
+            sessionCache.evictStudents(sessionId);
+            sessionStatsStore.refresh(sessionId);
+            progress.setFinished(true);
+            progress.setUpdatedAt(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public StudentImportProgress getImportProgress(Long sessionId) {
+        purgeFinishedProgress();
+        return importProgress.get(sessionId);
+    }
+
+    /**
+     * 清理结束超过保留时长的导入进度
+     */
+    private void purgeFinishedProgress() {
+        long expireBefore = System.currentTimeMillis() - PROGRESS_RETENTION_MS;
+        importProgress.values().removeIf(p -> p.isFinished() && p.getUpdatedAt() < expireBefore);
+    }
+
     /**
      * 检查学员是否已存在（基于身份证号）
      * @param sessionId 课程ID
@@ -167,11 +290,7 @@ public class StudentImportServiceImpl implements StudentImportService {
      * 防重复依据：身份证号是真实自然人的唯一标识
      */
     private Set<String> getExistingIdCards(Long sessionId) {
-        List<Student> students = studentMapper.selectBySessionId(sessionId);
-        return students.stream()
-                .map(Student::getIdCard)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        return new HashSet<>(studentMapper.selectIdCardsBySessionId(sessionId));
     }
 
     /**
@@ -1,24 +1,38 @@
 package cc.vipassana.service.impl;
 
+import cc.vipassana.dto.StudentFilter;
 import cc.vipassana.dto.StudentImportDTO;
 import cc.vipassana.dto.StudentImportDTOFemale;
+import cc.vipassana.entity.SessionStats;
 import cc.vipassana.entity.Student;
 import cc.vipassana.listener.StudentImportListener;
 import cc.vipassana.listener.StudentImportListenerFemale;
 import cc.vipassana.mapper.StudentMapper;
 import cc.vipassana.service.StudentService;
+import cc.vipassana.service.cache.SessionCache;
+import cc.vipassana.service.cache.SessionStatsStore;
 import com.alibaba.excel.EasyExcel;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * 学员业务服务实现
@@ -30,9 +44,22 @@ public class StudentServiceImpl implements StudentService {
     @Autowired
     private StudentMapper studentMapper;
 
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private SessionStatsStore sessionStatsStore;
+
+    @Value("${student.import.batch-size:500}")
+    private int importBatchSize;
+
+    @Autowired
+    @Qualifier("studentImportExecutor")
+    private Executor importExecutor;
+
     @Override
     public List<Student> getStudentsBySession(Long sessionId) {
-        return studentMapper.selectBySessionId(sessionId);
+        return sessionCache.students(sessionId, () -> studentMapper.selectBySessionId(sessionId));
     }
 
     @Override
@@ -41,6 +68,101 @@ public class StudentServiceImpl implements StudentService {
         return studentMapper.selectBySessionIdWithPagination(sessionId, offset, size);
     }
 
+    @Override
+    public StudentPage getStudentPage(Long sessionId, String cursor, int limit, StudentFilter filter) {
+        PageCursor position = null;
+        if (cursor != null && !cursor.isBlank()) {
+            position = decodeCursor(sessionId, filter, cursor);
+        }
+
+        // 总数：计数器能覆盖的筛选每页读计数器；其他组合只在首页 COUNT 一次，续页沿用令牌中的总数
+        Integer total = countFromStats(sessionId, filter);
+        if (total == null) {
+            total = position != null ? position.total() : studentMapper.countByFilter(sessionId, filter);
+        }
+
+        // 多取一条判断是否还有下一页
+        List<Student> students = studentMapper.selectPageAfterId(sessionId,
+                position != null ? position.lastId() : null, limit + 1, filter);
+        StudentPage page = new StudentPage();
+        page.total = total;
+        if (students.size() > limit) {
+            students = students.subList(0, limit);
+            page.nextCursor = encodeCursor(sessionId, filter, students.get(limit - 1).getId(), total);
+        }
+        page.students = students;
+        return page;
+    }
+
+    /**
+     * 由期次统计读取总数：无筛选或只按性别筛选时可用，其他组合或统计不可用时返回 null
+     */
+    private Integer countFromStats(Long sessionId, StudentFilter filter) {
+        SessionStats stats = sessionStatsStore.get(sessionId);
+        if (stats == null) {
+            return null;
+        }
+        if (filter == null || filter.isEmpty()) {
+            return stats.getTotalStudents();
+        }
+        boolean genderOnly = filter.getStudentType() == null && filter.getFellowGroupId() == null
+                && filter.getAllocated() == null;
+        if (genderOnly && "M".equals(filter.getGender())) {
+            return stats.getMaleStudents();
+        }
+        if (genderOnly && "F".equals(filter.getGender())) {
+            return stats.getFemaleStudents();
+        }
+        return null;
+    }
+
+    /**
+     * 续页位置：上一页最后一条学员ID、首页统计的总数
+     */
+    private record PageCursor(long lastId, int total) {
+    }
+
+    /**
+     * 续页令牌：期次ID、筛选条件哈希、上一页最后一条学员ID、首页统计的总数，Base64URL 编码，对调用方不透明
+     * 续页时筛选条件必须与签发令牌时一致，否则 ID 位置与总数对应的是另一个结果集
+     */
+    private static String encodeCursor(Long sessionId, StudentFilter filter, Long lastId, int total) {
+        String raw = sessionId + ":" + filterHash(filter) + ":" + lastId + ":" + total;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PageCursor decodeCursor(Long sessionId, StudentFilter filter, String cursor) {
+        String[] parts = null;
+        PageCursor position = null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split(":");
+            if (parts.length == 4 && Long.parseLong(parts[0]) == sessionId) {
+                position = new PageCursor(Long.parseLong(parts[2]), Integer.parseInt(parts[3]));
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException 也是 IllegalArgumentException，落到下面统一报错
+        }
+        if (position == null) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        if (!parts[1].equals(filterHash(filter))) {
+            throw new IllegalArgumentException("筛选条件已变化，请从第一页重新查询");
+        }
+        return position;
+    }
+
+    /**
+     * 筛选条件哈希（无筛选与 null 相同）
+     */
+    private static String filterHash(StudentFilter filter) {
+        if (filter == null) {
+            filter = new StudentFilter();
+        }
+        return Integer.toHexString(Objects.hash(filter.getGender(), filter.getStudentType(),
+                filter.getFellowGroupId(), filter.getAllocated()));
+    }
+
     @Override
     public Student getStudentById(Long id) {
         return studentMapper.selectById(id);
@@ -51,6 +173,8 @@ public class StudentServiceImpl implements StudentService {
         student.setCreatedAt(LocalDateTime.now());
         student.setUpdatedAt(LocalDateTime.now());
         int result = studentMapper.insert(student);
+        sessionCache.evictStudents(student.getSessionId());
+        sessionStatsStore.refresh(student.getSessionId());
         if (result > 0) {
             log.info("创建学员成功: {}", student.getId());
             return student.getId();
@@ -62,7 +186,12 @@ public class StudentServiceImpl implements StudentService {
     @Override
     public boolean updateStudent(Student student) {
         student.setUpdatedAt(LocalDateTime.now());
+        Student existing = studentMapper.selectById(student.getId());
         int result = studentMapper.update(student);
+        if (existing != null) {
+            sessionCache.evictStudents(existing.getSessionId());
+            sessionStatsStore.refresh(existing.getSessionId());
+        }
         if (result > 0) {
             log.info("更新学员成功: {}", student.getId());
             return true;
@@ -73,7 +202,13 @@ public class StudentServiceImpl implements StudentService {
 
     @Override
     public boolean deleteStudent(Long id) {
+        Student existing = studentMapper.selectById(id);
         int result = studentMapper.delete(id);
+        if (existing != null) {
+            // 删除学员会级联删除分配、置空座位
+            sessionCache.evictSession(existing.getSessionId());
+            sessionStatsStore.refresh(existing.getSessionId());
+        }
         if (result > 0) {
             log.info("删除学员成功: {}", id);
             return true;
@@ -97,6 +232,8 @@ public class StudentServiceImpl implements StudentService {
         }
 
         int result = studentMapper.insertBatch(students);
+        sessionCache.evictStudents(sessionId);
+        sessionStatsStore.refresh(sessionId);
         log.info("批量导入学员成功: {} 条", result);
         return result;
     }
@@ -104,6 +241,8 @@ public class StudentServiceImpl implements StudentService {
     @Override
     public boolean deleteBySessionId(Long sessionId) {
         int result = studentMapper.deleteBySessionId(sessionId);
+        sessionCache.evictSession(sessionId);
+        sessionStatsStore.refresh(sessionId);
         if (result > 0) {
             log.info("删除会话学员成功: {} 条 (会话ID: {})", result, sessionId);
             return true;
@@ -123,14 +262,17 @@ public class StudentServiceImpl implements StudentService {
     }
 
     @Override
-    public int importStudentsFromExcel(Long sessionId, MultipartFile file) throws Exception {
+    public ExcelImportResult importStudentsFromExcel(Long sessionId, MultipartFile file) throws Exception {
+        ExcelImportResult result = new ExcelImportResult();
         if (file == null || file.isEmpty()) {
             log.warn("上传文件为空");
-            return 0;
+            return result;
         }
 
         try {
-            int totalSuccessCount = 0;
+
+            // 已有身份证号，各 Sheet 共用以跨 Sheet 去重
+            Set<String> idCards = new HashSet<>(studentMapper.selectIdCardsBySessionId(sessionId));
 
             // 首先使用 POI 读取所有 sheet 的标题以判断性别和列格式
             Workbook workbook = WorkbookFactory.create(file.getInputStream());
@@ -150,22 +292,36 @@ public class StudentServiceImpl implements StudentService {
                 log.info("开始导入 Sheet: {} (标题: {}, 格式: {})", sheetName, sheetTitle, gender);
 
                 // 使用统一的 StudentImportDTO 和 StudentImportListener（格式已统一）
-                StudentImportListener listener = new StudentImportListener(studentMapper, sessionId, isFemaleSheet);
+                // 流式导入：工作线程校验转换，读取线程按身份证号去重后批量写入
+                try (StudentImportListener listener = new StudentImportListener(studentMapper, sessionId, isFemaleSheet)) {
+                    listener.setBatchSize(importBatchSize);
+                    listener.setExecutor(importExecutor);
+                    listener.setIdCards(idCards);
 
-                EasyExcel.read(file.getInputStream(), StudentImportDTO.class, listener)
-                        .sheet(sheetName)
-                        .headRowNumber(5)  // 表头占据前5行（行4主表头，行5副表头），数据从第6行开始
-                        .doRead();
+                    EasyExcel.read(file.getInputStream(), StudentImportDTO.class, listener)
+                            .sheet(sheetName)
+                            .headRowNumber(5)  // 表头占据前5行（行4主表头，行5副表头），数据从第6行开始
+                            .doRead();
 
-                int sheetSuccessCount = listener.getSuccessCount();
-                totalSuccessCount += sheetSuccessCount;
-                log.info("Sheet: {} ({}) 导入完成 - 成功: {}, 失败: {}",
-                        sheetName, gender, sheetSuccessCount, listener.getFailureCount());
+                    int sheetSuccessCount = listener.getSuccessCount();
+                    result.importedCount += sheetSuccessCount;
+                    for (Map<String, Object> rejected : listener.getRejectedList()) {
+                        Map<String, Object> item = new HashMap<>(rejected);
+                        item.put("sheet", sheetName);
+                        result.rejectedList.add(item);
+                    }
+                    result.failedList.addAll(listener.getFailedList());
+                    log.info("Sheet: {} ({}) 导入完成 - 成功: {}, 重复: {}, 失败: {}",
+                            sheetName, gender, sheetSuccessCount, listener.getDuplicateCount(), listener.getFailureCount());
+                }
             }
 
             workbook.close();
-            log.info("Excel 导入完成 - 会话ID: {}, 总成功条数: {}", sessionId, totalSuccessCount);
-            return totalSuccessCount;
+            sessionCache.evictStudents(sessionId);
+            sessionStatsStore.refresh(sessionId);
+            log.info("Excel 导入完成 - 会话ID: {}, 总成功条数: {}, 拒绝: {}, 失败: {}", sessionId,
+                    result.importedCount, result.rejectedList.size(), result.failedList.size());
+            return result;
         } catch (Exception e) {
             log.error("Excel 导入失败: ", e);
             throw new Exception("导入学员失败: " + e.getMessage(), e);
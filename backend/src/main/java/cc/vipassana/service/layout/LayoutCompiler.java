@@ -10,68 +10,132 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * 将持久化配置转换为结构化布局的编译器。
+ *
+ * 按配置编译的结果缓存在进程内（LRU，有上限），键为配置ID + 配置内容指纹：
+ * 内容变化后指纹不同，不会读到旧布局；updateLayout / upsertBySession 时按配置ID主动清理。
+ * 编译结果中的格子列表与区域表不可修改，多个调用方共享同一实例。
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class LayoutCompiler {
 
+    /**
+     * 缓存的编译结果上限
+     */
+    private static final int MAX_CACHED_LAYOUTS = 64;
+
     private final ObjectMapper objectMapper;
 
+    private final Map<LayoutKey, CompiledLayout> compiledCache =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<LayoutKey, CompiledLayout> eldest) {
+                    return size() > MAX_CACHED_LAYOUTS;
+                }
+            };
+
+    /**
+     * 缓存键：配置ID + 影响编译结果的配置字段指纹
+     */
+    private record LayoutKey(Long configId, String fingerprint) {
+    }
+
     public CompiledLayout compile(MeditationHallConfig config) {
-        HallLayout layout = loadLayout(config);
-        return compile(layout);
+        if (config.getId() == null) {
+            return compile(loadLayout(config));
+        }
+
+        LayoutKey key = new LayoutKey(config.getId(), fingerprint(config));
+        synchronized (compiledCache) {
+            CompiledLayout cached = compiledCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        CompiledLayout compiled = compile(loadLayout(config));
+        synchronized (compiledCache) {
+            compiledCache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * 清理某个配置的全部缓存编译结果（布局更新后调用）
+     */
+    public void evict(Long configId) {
+        if (configId == null) {
+            return;
+        }
+        synchronized (compiledCache) {
+            compiledCache.keySet().removeIf(key -> configId.equals(key.configId()));
+        }
     }
 
     public CompiledLayout compile(HallLayout layout) {
         List<SeatCell> cells = new ArrayList<>();
         Map<String, SeatSection> sectionMap = new LinkedHashMap<>();
-        if (layout.getSections() != null) {
-            layout.getSections().forEach(section -> sectionMap.put(section.getName(), section));
-        }
-
-        List<ReservedSlot> reservedSlots = layout.getReservedSlots() != null
-                ? layout.getReservedSlots()
+        List<SeatSection> sections = layout.getSections() != null
+                ? layout.getSections()
                 : Collections.emptyList();
-        Set<String> reservedKey = reservedSlots.stream()
-                .map(slot -> key(slot.getRow(), slot.getCol()))
-                .collect(Collectors.toSet());
+        sections.forEach(section -> sectionMap.put(section.getName(), section));
 
+        // 外接矩形：rowEnd/colEnd 在前端语义上是“结束位置的下一行/列”（半开区间）
+        int minRow = Integer.MAX_VALUE;
+        int minCol = Integer.MAX_VALUE;
         int maxRow = 0;
         int maxCol = 0;
-        if (layout.getSections() != null) {
-            for (SeatSection section : layout.getSections()) {
-                if (section.getRowStart() == null || section.getRowEnd() == null
-                        || section.getColStart() == null || section.getColEnd() == null) {
-                    continue;
+        for (SeatSection section : sections) {
+            if (!hasBounds(section)) {
+                continue;
+            }
+            minRow = Math.min(minRow, section.getRowStart());
+            minCol = Math.min(minCol, section.getColStart());
+            maxRow = Math.max(maxRow, section.getRowEnd());
+            maxCol = Math.max(maxCol, section.getColEnd());
+        }
+        if (minRow == Integer.MAX_VALUE) {
+            minRow = 0;
+            minCol = 0;
+        }
+
+        SeatGrid.Builder grid = SeatGrid.builder(minRow, minCol, maxRow - minRow, maxCol - minCol);
+        if (layout.getReservedSlots() != null) {
+            for (ReservedSlot slot : layout.getReservedSlots()) {
+                if (slot.getRow() != null && slot.getCol() != null) {
+                    grid.reserve(slot.getRow(), slot.getCol());
                 }
+            }
+        }
 
-                int rowStart = section.getRowStart();
-                int rowEndExclusive = section.getRowEnd();
-                int colStart = section.getColStart();
-                int colEndExclusive = section.getColEnd();
-
-                for (int row = rowStart; row < rowEndExclusive; row++) {
-                    for (int col = colStart; col < colEndExclusive; col++) {
-                        SeatCell cell = SeatCell.builder()
-                                .row(row)
-                                .col(col)
-                                .sectionName(section.getName())
-                                .purpose(section.getPurpose())
-                                .reserved(reservedKey.contains(key(row, col)))
-                                .build();
-                        cells.add(cell);
+        for (SeatSection section : sections) {
+            if (!hasBounds(section)) {
+                continue;
+            }
+            int sectionId = grid.section(section.getName());
+            for (int row = section.getRowStart(); row < section.getRowEnd(); row++) {
+                for (int col = section.getColStart(); col < section.getColEnd(); col++) {
+                    // 区域重叠时格子归先声明的区域，避免同一位置生成两个座位
+                    if (!grid.place(row, col, sectionId, section.getPurpose())) {
+                        continue;
                     }
+                    cells.add(SeatCell.builder()
+                            .row(row)
+                            .col(col)
+                            .sectionName(section.getName())
+                            .purpose(section.getPurpose())
+                            .reserved(grid.isReserved(row, col))
+                            .build());
                 }
-
-                // rowEnd/colEnd 在前端语义上是“结束位置的下一行/列”（半开区间）
-                maxRow = Math.max(maxRow, rowEndExclusive);
-                maxCol = Math.max(maxCol, colEndExclusive);
             }
         }
 
@@ -87,9 +151,10 @@ public class LayoutCompiler {
         return CompiledLayout.builder()
                 .totalRows(totalRows)
                 .totalCols(totalCols)
-                .cells(cells)
-                .sections(sectionMap)
+                .cells(Collections.unmodifiableList(cells))
+                .sections(Collections.unmodifiableMap(sectionMap))
                 .source(layout)
+                .grid(grid.build())
                 .build();
     }
 
@@ -207,8 +272,31 @@ public class LayoutCompiler {
         return "SINGLE";
     }
 
-    private String key(Integer row, Integer col) {
-        return row + ":" + col;
+    /**
+     * 配置内容指纹：布局JSON及 legacy 回退、默认值所用字段的 SHA-256
+     */
+    private String fingerprint(MeditationHallConfig config) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Object[] fields = {
+                config.getLayoutConfig(), config.getNumberingType(), config.getSeatPrefix(),
+                config.getSupportedGenders(), config.getGenderType(), config.getHallUsage(),
+                config.getRegionWidth(), config.getRegionRows(), config.getRegionName(), config.getRegionCode()
+        };
+        for (Object field : fields) {
+            digest.update(field == null ? new byte[]{1} : String.valueOf(field).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private boolean hasBounds(SeatSection section) {
+        return section.getRowStart() != null && section.getRowEnd() != null
+                && section.getColStart() != null && section.getColEnd() != null;
     }
 
     private int safeInt(Integer value, int fallback) {
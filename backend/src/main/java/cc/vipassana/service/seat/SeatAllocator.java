@@ -2,7 +2,7 @@ package cc.vipassana.service.seat;
 
 import cc.vipassana.dto.layout.CompiledLayout;
 import cc.vipassana.dto.layout.SeatAllocationContext;
-import cc.vipassana.dto.layout.SeatCell;
+import cc.vipassana.dto.layout.SeatGrid;
 import cc.vipassana.dto.layout.SeatSectionPurpose;
 import cc.vipassana.entity.MeditationHallConfig;
 import cc.vipassana.entity.MeditationSeat;
@@ -80,14 +80,24 @@ public class SeatAllocator {
         List<MeditationSeat> seats = new ArrayList<>();
         List<Student> unassigned = new ArrayList<>();
 
-        // 先按 section 分组，再在每个 section 内按性别拆组
-        Map<String, List<SeatCell>> sectionGroups = new HashMap<>();
-        for (SeatCell cell : context.getLayout().getCells()) {
-            if (cell.isReserved()) {
-                continue;
-            }
-            String key = StringUtils.hasText(cell.getSectionName()) ? cell.getSectionName() : "__DEFAULT__";
-            sectionGroups.computeIfAbsent(key, k -> new ArrayList<>()).add(cell);
+        // 先按 section 分组，再在每个 section 内按性别拆组；同名区域共用一个区域序号，区域的性别与区域代码只需解析一次
+        SeatGrid grid = context.getLayout().getGrid();
+        int sectionCount = grid.sectionCount();
+        String[] groupKeys = new String[sectionCount];
+        String[] sectionGenders = new String[sectionCount];
+        String[] regionCodes = new String[sectionCount];
+        for (int sectionId = 0; sectionId < sectionCount; sectionId++) {
+            String name = grid.sectionName(sectionId);
+            groupKeys[sectionId] = StringUtils.hasText(name) ? name : "__DEFAULT__";
+            sectionGenders[sectionId] = resolveSectionGender(name, config);
+            regionCodes[sectionId] = resolveRegionCode(name, config);
+        }
+
+        Map<String, BitSet> sectionGroups = new HashMap<>();
+        BitSet assignable = grid.assignableSeats();
+        for (int index = assignable.nextSetBit(0); index >= 0; index = assignable.nextSetBit(index + 1)) {
+            sectionGroups.computeIfAbsent(groupKeys[grid.sectionId(index)], k -> new BitSet(grid.length()))
+                    .set(index);
         }
 
         Deque<Student> maleOldQueue = new ArrayDeque<>(context.getMaleOldStudents());
@@ -95,36 +105,31 @@ public class SeatAllocator {
         Deque<Student> maleNewQueue = new ArrayDeque<>(context.getMaleNewStudents());
         Deque<Student> femaleNewQueue = new ArrayDeque<>(context.getFemaleNewStudents());
 
-        for (Map.Entry<String, List<SeatCell>> entry : sectionGroups.entrySet()) {
+        for (Map.Entry<String, BitSet> entry : sectionGroups.entrySet()) {
             String sectionName = entry.getKey();
-            List<SeatCell> cells = entry.getValue();
-
-            List<SeatCell> maleCells = new ArrayList<>();
-            List<SeatCell> femaleCells = new ArrayList<>();
-
-            for (SeatCell cell : cells) {
-                String seatGender = resolveSeatGender(cell, config);
-                if (!StringUtils.hasText(seatGender) && StringUtils.hasText(config.getGenderType())) {
-                    String normalized = config.getGenderType().trim().toUpperCase(Locale.ROOT);
-                    if (normalized.startsWith("F")) {
-                        seatGender = "F";
-                    } else if (normalized.startsWith("M")) {
-                        seatGender = "M";
-                    }
-                }
-                if ("F".equalsIgnoreCase(seatGender)) {
-                    femaleCells.add(cell);
-                } else if ("M".equalsIgnoreCase(seatGender)) {
-                    maleCells.add(cell);
+            BitSet cells = entry.getValue();
+
+            BitSet maleCells = new BitSet(grid.length());
+            BitSet femaleCells = new BitSet(grid.length());
+            boolean unlabeled = false;
+            for (int index = cells.nextSetBit(0); index >= 0; index = cells.nextSetBit(index + 1)) {
+                String seatGender = sectionGenders[grid.sectionId(index)];
+                if ("F".equals(seatGender)) {
+                    femaleCells.set(index);
+                } else if ("M".equals(seatGender)) {
+                    maleCells.set(index);
                 } else {
-                    warnings.add("座位区未标明性别，默认放入女区，section=" + sectionName);
-                    femaleCells.add(cell);
+                    unlabeled = true;
+                    femaleCells.set(index);
                 }
             }
+            if (unlabeled) {
+                warnings.add("座位区未标明性别，默认放入女区，section=" + sectionName);
+            }
 
-            allocateBySection(seats, maleCells, "M", maleOldQueue, femaleOldQueue, maleNewQueue, femaleNewQueue, sessionId, config, warnings,
+            allocateBySection(seats, grid, maleCells, regionCodes, "M", maleOldQueue, femaleOldQueue, maleNewQueue, femaleNewQueue, sessionId, config, warnings,
                     maleOldQueue.size(), maleNewQueue.size());
-            allocateBySection(seats, femaleCells, "F", maleOldQueue, femaleOldQueue, maleNewQueue, femaleNewQueue, sessionId, config, warnings,
+            allocateBySection(seats, grid, femaleCells, regionCodes, "F", maleOldQueue, femaleOldQueue, maleNewQueue, femaleNewQueue, sessionId, config, warnings,
                     femaleOldQueue.size(), femaleNewQueue.size());
         }
 
@@ -140,9 +145,177 @@ public class SeatAllocator {
         return new AllocationResult(seats, unassigned);
     }
 
+    /**
+     * 增量调整已有座位（不重排已就座学员）：
+     * - 已取消的学员释放座位
+     * - 性别或新旧生身份变化的学员释放原座位后重新入座
+     * - 新到学员按空位就座：旧生行优先从前往后，新生从右到左逐列（避开旧生专区）
+     *
+     * @param seats    该禅堂已有座位（会被原地修改）
+     * @param students 该禅堂应就座的学员
+     * @return 发生变化的座位ID
+     */
+    public Set<Long> reallocate(MeditationHallConfig config,
+                                CompiledLayout layout,
+                                List<MeditationSeat> seats,
+                                List<Student> students,
+                                List<String> warnings) {
+        SeatGrid grid = layout.getGrid();
+        Map<Long, Student> studentMap = new HashMap<>();
+        for (Student student : students) {
+            if (student.getId() != null) {
+                studentMap.put(student.getId(), student);
+            }
+        }
+
+        Set<Long> changed = new LinkedHashSet<>();
+        Set<Long> seated = new HashSet<>();
+        int released = 0;
+        int moved = 0;
+        for (MeditationSeat seat : seats) {
+            Long studentId = seat.getStudentId();
+            if (studentId == null) {
+                continue;
+            }
+            Student student = studentMap.get(studentId);
+            if (student == null || !seated.add(studentId)) {
+                releaseSeat(seat, grid, config);
+                changed.add(seat.getId());
+                released++;
+            } else if (!seatFits(seat, student)) {
+                releaseSeat(seat, grid, config);
+                seated.remove(studentId);
+                changed.add(seat.getId());
+                moved++;
+            }
+        }
+
+        List<Student> oldArrivals = new ArrayList<>();
+        List<Student> newArrivals = new ArrayList<>();
+        for (Student student : students) {
+            if (student.getId() == null || seated.contains(student.getId())) {
+                continue;
+            }
+            if (student.isMonk() || student.isOldStudent()) {
+                oldArrivals.add(student);
+            } else {
+                newArrivals.add(student);
+            }
+        }
+        sortOldStudents(oldArrivals);
+        sortNewStudents(newArrivals);
+
+        List<MeditationSeat> oldOrder = new ArrayList<>();
+        for (MeditationSeat seat : seats) {
+            if (seat.getStudentId() == null) {
+                oldOrder.add(seat);
+            }
+        }
+        oldOrder.sort(Comparator.comparingLong(seat -> SeatGrid.positionKey(seat.getRowIndex(), seat.getColIndex())));
+        List<MeditationSeat> newOrder = new ArrayList<>(oldOrder);
+        newOrder.sort(Comparator.comparingLong(seat -> SeatGrid.positionKey(-seat.getColIndex(), seat.getRowIndex())));
+
+        int unassigned = 0;
+        for (Student student : oldArrivals) {
+            MeditationSeat seat = findFreeSeat(oldOrder, student, grid, false);
+            if (seat == null) {
+                unassigned++;
+                continue;
+            }
+            occupySeat(seat, student);
+            changed.add(seat.getId());
+        }
+        for (Student student : newArrivals) {
+            MeditationSeat seat = findFreeSeat(newOrder, student, grid, true);
+            if (seat == null) {
+                seat = findFreeSeat(newOrder, student, grid, false);
+            }
+            if (seat == null) {
+                unassigned++;
+                continue;
+            }
+            occupySeat(seat, student);
+            changed.add(seat.getId());
+        }
+
+        if (unassigned > 0) {
+            warnings.add("禅堂容量不足，未分配" + unassigned + "人");
+        }
+        log.info("座位增量调整: 释放 {}，换座 {}，新入座 {}，未分配 {}",
+                released, moved, oldArrivals.size() + newArrivals.size() - unassigned, unassigned);
+        return changed;
+    }
+
+    private MeditationSeat findFreeSeat(List<MeditationSeat> order,
+                                        Student student,
+                                        SeatGrid grid,
+                                        boolean skipOldStudentArea) {
+        for (MeditationSeat seat : order) {
+            if (seat.getStudentId() != null || !genderFits(seat, student)) {
+                continue;
+            }
+            if (skipOldStudentArea) {
+                int cell = grid.index(seat.getRowIndex(), seat.getColIndex());
+                if (cell >= 0 && grid.purpose(cell) == SeatSectionPurpose.OLD_STUDENT) {
+                    continue;
+                }
+            }
+            return seat;
+        }
+        return null;
+    }
+
+    /**
+     * 已就座学员是否仍适合原座位（性别、新旧生标记与座位一致）
+     */
+    private boolean seatFits(MeditationSeat seat, Student student) {
+        if (!genderFits(seat, student)) {
+            return false;
+        }
+        return seat.getIsOldStudent() == null
+                || seat.getIsOldStudent() == "old_student".equals(inferStudentType(student));
+    }
+
+    private boolean genderFits(MeditationSeat seat, Student student) {
+        return seat.getGender() == null || student.getGender() == null
+                || seat.getGender().equalsIgnoreCase(student.getGender());
+    }
+
+    private void occupySeat(MeditationSeat seat, Student student) {
+        seat.setStudentId(student.getId());
+        seat.setIsOldStudent("old_student".equals(inferStudentType(student)));
+        if (student.getGender() != null) {
+            seat.setGender(student.getGender());
+        }
+        seat.setAgeGroup(student.getAgeGroup());
+        seat.setStatus("allocated");
+        seat.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private void releaseSeat(MeditationSeat seat, SeatGrid grid, MeditationHallConfig config) {
+        seat.setStudentId(null);
+        seat.setBedCode(null);
+        seat.setIsOldStudent(null);
+        seat.setAgeGroup(null);
+        seat.setStatus("available");
+        seat.setIsWithCompanion(false);
+        seat.setCompanionSeatId(null);
+        seat.setCompanionName(null);
+        // 空座的性别恢复为所在区域的性别
+        int cell = seat.getRowIndex() != null && seat.getColIndex() != null
+                ? grid.index(seat.getRowIndex(), seat.getColIndex())
+                : -1;
+        if (cell >= 0 && grid.isSeat(cell)) {
+            String sectionGender = resolveSectionGender(grid.sectionNameAt(cell), config);
+            seat.setGender(sectionGender != null ? sectionGender : "F");
+        }
+        seat.setUpdatedAt(LocalDateTime.now());
+    }
+
     private MeditationSeat buildSeat(Long sessionId,
                                      MeditationHallConfig config,
-                                     SeatCell cell,
+                                     SeatGrid grid,
+                                     int cell,
                                      Student student,
                                      String regionCode,
                                      String seatGender) {
@@ -157,13 +330,13 @@ public class SeatAllocator {
                 .hallConfigId(config.getId())
                 .hallId(config.getId())
                 .studentId(hasStudent ? student.getId() : null)
-                .seatType(resolveSeatType(cell.getPurpose()))
+                .seatType(resolveSeatType(grid.purpose(cell)))
                 .isOldStudent(hasStudent ? "old_student".equals(inferStudentType(student)) : null)
                 .gender(resolvedGender)
                 .ageGroup(hasStudent ? student.getAgeGroup() : null)
                 .regionCode(regionCode)
-                .rowIndex(cell.getRow())
-                .colIndex(cell.getCol())
+                .rowIndex(grid.row(cell))
+                .colIndex(grid.col(cell))
                 .status(hasStudent ? "allocated" : "available")
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
@@ -274,8 +447,29 @@ public class SeatAllocator {
         return nextIfAvailable(maleNewIterator);
     }
 
-    private String resolveSeatGender(SeatCell cell, MeditationHallConfig config) {
-        String sectionName = cell.getSectionName();
+    /**
+     * 区域性别：按区域名称解析，无法判断时回退到禅堂配置的性别类型
+     */
+    private String resolveSectionGender(String sectionName, MeditationHallConfig config) {
+        String seatGender = resolveSeatGender(sectionName, config);
+        if (!StringUtils.hasText(seatGender) && StringUtils.hasText(config.getGenderType())) {
+            String normalized = config.getGenderType().trim().toUpperCase(Locale.ROOT);
+            if (normalized.startsWith("F")) {
+                seatGender = "F";
+            } else if (normalized.startsWith("M")) {
+                seatGender = "M";
+            }
+        }
+        if ("F".equalsIgnoreCase(seatGender)) {
+            return "F";
+        }
+        if ("M".equalsIgnoreCase(seatGender)) {
+            return "M";
+        }
+        return null;
+    }
+
+    private String resolveSeatGender(String sectionName, MeditationHallConfig config) {
         if (StringUtils.hasText(sectionName)) {
             if (sectionName.contains("女")) {
                 return "F";
@@ -305,7 +499,9 @@ public class SeatAllocator {
     }
 
     private void allocateBySection(List<MeditationSeat> seats,
-                                   List<SeatCell> sectionCells,
+                                   SeatGrid grid,
+                                   BitSet sectionCells,
+                                   String[] regionCodes,
                                    String genderCode,
                                    Deque<Student> maleOldIterator,
                                    Deque<Student> femaleOldIterator,
@@ -321,13 +517,19 @@ public class SeatAllocator {
         }
 
         // 计算区域行列范围（矩阵仅用于相对坐标归一化，容量以实际可坐格子数计算，避免通道/洞造成虚假空位）
-        int minRow = sectionCells.stream().mapToInt(SeatCell::getRow).min().orElse(0);
-        int maxRow = sectionCells.stream().mapToInt(SeatCell::getRow).max().orElse(0);
-        int minCol = sectionCells.stream().mapToInt(SeatCell::getCol).min().orElse(0);
-        int maxCol = sectionCells.stream().mapToInt(SeatCell::getCol).max().orElse(0);
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int minCol = Integer.MAX_VALUE;
+        int maxCol = Integer.MIN_VALUE;
+        for (int cell = sectionCells.nextSetBit(0); cell >= 0; cell = sectionCells.nextSetBit(cell + 1)) {
+            minRow = Math.min(minRow, grid.row(cell));
+            maxRow = Math.max(maxRow, grid.row(cell));
+            minCol = Math.min(minCol, grid.col(cell));
+            maxCol = Math.max(maxCol, grid.col(cell));
+        }
         int rows = maxRow - minRow + 1;
         int cols = maxCol - minCol + 1;
-        int capacity = sectionCells.size(); // 按实际可坐的格子数计算容量，避免矩形空洞
+        int capacity = sectionCells.cardinality(); // 按实际可坐的格子数计算容量，避免矩形空洞
 
         // 容量警告
         int totalNeed = oldCount + newCount;
@@ -335,36 +537,25 @@ public class SeatAllocator {
             warnings.add("禅堂区域 " + genderCode + " 超出容量，最多 " + capacity + "，待分配 " + totalNeed);
         }
 
-        // 将 cell 映射为矩阵，按 purpose 分类
-        SeatCell[][] grid = new SeatCell[rows][cols];
-        for (SeatCell cell : sectionCells) {
-            int r = cell.getRow() - minRow;
-            int c = cell.getCol() - minCol;
-            grid[r][c] = cell;
-        }
-
-        Set<String> occupied = new HashSet<>();
+        // 空闲位图：本组可坐且尚未分配的格子（保留位已在分组时排除），分配后清位
+        BitSet free = (BitSet) sectionCells.clone();
         boolean oldExhausted = false;
         int lastOldRow = -1;
         int exhaustRow = -1;
 
-        // 1) 旧生优先放 OLD_STUDENT 专区（若存在）
-        List<SeatCell> oldPreferred = new ArrayList<>();
-        for (SeatCell cell : sectionCells) {
-            if (cell.getPurpose() == SeatSectionPurpose.OLD_STUDENT && !cell.isReserved()) {
-                oldPreferred.add(cell);
+        // 1) 旧生优先放 OLD_STUDENT 专区（若存在），格子下标升序即行优先
+        for (int cell = sectionCells.nextSetBit(0); cell >= 0; cell = sectionCells.nextSetBit(cell + 1)) {
+            if (grid.purpose(cell) != SeatSectionPurpose.OLD_STUDENT) {
+                continue;
             }
-        }
-        oldPreferred.sort(Comparator.comparingInt(SeatCell::getRow).thenComparingInt(SeatCell::getCol));
-        for (SeatCell cell : oldPreferred) {
             Student target = pickOldStudent(genderCode, maleOldIterator, femaleOldIterator);
             if (target == null) {
                 oldExhausted = true;
                 break;
             }
-            seats.add(buildSeat(sessionId, config, cell, target, resolveRegionCode(cell, config), genderCode));
-            occupied.add(seatKey(cell));
-            lastOldRow = Math.max(lastOldRow, cell.getRow() - minRow);
+            seats.add(buildSeat(sessionId, config, grid, cell, target, regionCodes[grid.sectionId(cell)], genderCode));
+            free.clear(cell);
+            lastOldRow = Math.max(lastOldRow, grid.row(cell) - minRow);
         }
 
         // 2) 旧生前两行 row-major（跳过保留/占用）
@@ -373,8 +564,8 @@ public class SeatAllocator {
                 break;
             }
             for (int c = 0; c < cols; c++) {
-                SeatCell cell = grid[r][c];
-                if (cell == null || cell.isReserved() || occupied.contains(seatKey(cell))) {
+                int cell = grid.index(minRow + r, minCol + c);
+                if (cell < 0 || !free.get(cell)) {
                     continue;
                 }
                 Student target = pickOldStudent(genderCode, maleOldIterator, femaleOldIterator);
@@ -383,8 +574,8 @@ public class SeatAllocator {
                     exhaustRow = r;
                     break;
                 }
-                seats.add(buildSeat(sessionId, config, cell, target, resolveRegionCode(cell, config), genderCode));
-                occupied.add(seatKey(cell));
+                seats.add(buildSeat(sessionId, config, grid, cell, target, regionCodes[grid.sectionId(cell)], genderCode));
+                free.clear(cell);
                 lastOldRow = Math.max(lastOldRow, r);
             }
         }
@@ -392,8 +583,8 @@ public class SeatAllocator {
         // 3) 旧生继续填，行优先，从第3行起，但保留最后一行给尾部
         for (int r = 2; r < rows - 1 && !oldExhausted; r++) { // rows-1 为最后一行预留
             for (int c = 0; c < cols; c++) {
-                SeatCell cell = grid[r][c];
-                if (cell == null || cell.isReserved() || occupied.contains(seatKey(cell))) {
+                int cell = grid.index(minRow + r, minCol + c);
+                if (cell < 0 || !free.get(cell)) {
                     continue;
                 }
                 Student target = pickOldStudent(genderCode, maleOldIterator, femaleOldIterator);
@@ -402,8 +593,8 @@ public class SeatAllocator {
                     exhaustRow = r;
                     break;
                 }
-                seats.add(buildSeat(sessionId, config, cell, target, resolveRegionCode(cell, config), genderCode));
-                occupied.add(seatKey(cell));
+                seats.add(buildSeat(sessionId, config, grid, cell, target, regionCodes[grid.sectionId(cell)], genderCode));
+                free.clear(cell);
                 lastOldRow = Math.max(lastOldRow, r);
             }
         }
@@ -415,19 +606,19 @@ public class SeatAllocator {
         // 3.5) 如果旧生在某行中途耗尽，先用新生补这一行的剩余列（从右到左），保证行内不留空
         if (exhaustRow >= 0 && exhaustRow < rows - 1) {
             for (int c = cols - 1; c >= 0; c--) {
-                SeatCell cell = grid[exhaustRow][c];
-                if (cell == null || cell.isReserved() || occupied.contains(seatKey(cell))) {
+                int cell = grid.index(minRow + exhaustRow, minCol + c);
+                if (cell < 0 || !free.get(cell)) {
                     continue;
                 }
-                if (cell.getPurpose() == SeatSectionPurpose.OLD_STUDENT) {
+                if (grid.purpose(cell) == SeatSectionPurpose.OLD_STUDENT) {
                     continue;
                 }
                 Student target = pickNewStudent(genderCode, maleNewIterator, femaleNewIterator);
                 if (target == null) {
                     break;
                 }
-                seats.add(buildSeat(sessionId, config, cell, target, resolveRegionCode(cell, config), genderCode));
-                occupied.add(seatKey(cell));
+                seats.add(buildSeat(sessionId, config, grid, cell, target, regionCodes[grid.sectionId(cell)], genderCode));
+                free.clear(cell);
             }
         }
 
@@ -435,27 +626,27 @@ public class SeatAllocator {
         int startRow = Math.min(rows - 1, Math.max(0, oldRowsFilled));
         for (int c = cols - 1; c >= 0; c--) {
             for (int r = startRow; r < rows - 1; r++) { // 保留最后一行
-                SeatCell cell = grid[r][c];
-                if (cell == null || cell.isReserved() || occupied.contains(seatKey(cell))) {
+                int cell = grid.index(minRow + r, minCol + c);
+                if (cell < 0 || !free.get(cell)) {
                     continue;
                 }
-                if (cell.getPurpose() == SeatSectionPurpose.OLD_STUDENT) {
+                if (grid.purpose(cell) == SeatSectionPurpose.OLD_STUDENT) {
                     continue;
                 }
                 Student target = pickNewStudent(genderCode, maleNewIterator, femaleNewIterator);
                 if (target == null) {
                     break;
                 }
-                seats.add(buildSeat(sessionId, config, cell, target, resolveRegionCode(cell, config), genderCode));
-                occupied.add(seatKey(cell));
+                seats.add(buildSeat(sessionId, config, grid, cell, target, regionCodes[grid.sectionId(cell)], genderCode));
+                free.clear(cell);
             }
         }
 
         // 5) 最后一行按行填剩余的旧/新生（允许留空位）
         int lastRow = rows - 1;
         for (int c = 0; c < cols; c++) {
-            SeatCell cell = grid[lastRow][c];
-            if (cell == null || cell.isReserved() || occupied.contains(seatKey(cell))) {
+            int cell = grid.index(minRow + lastRow, minCol + c);
+            if (cell < 0 || !free.get(cell)) {
                 continue;
             }
             Student target = pickOldStudent(genderCode, maleOldIterator, femaleOldIterator);
@@ -465,35 +656,28 @@ public class SeatAllocator {
             if (target == null) {
                 continue; // 最后一行允许留空
             }
-            seats.add(buildSeat(sessionId, config, cell, target, resolveRegionCode(cell, config), genderCode));
-            occupied.add(seatKey(cell));
+            seats.add(buildSeat(sessionId, config, grid, cell, target, regionCodes[grid.sectionId(cell)], genderCode));
+            free.clear(cell);
         }
 
         // 6) 剩余空位补空座
-        fillEmptySeats(seats, sectionCells, sessionId, config, genderCode, occupied);
+        fillEmptySeats(seats, grid, free, regionCodes, sessionId, config, genderCode);
     }
 
     private void fillEmptySeats(List<MeditationSeat> seats,
-                                List<SeatCell> sectionCells,
+                                SeatGrid grid,
+                                BitSet free,
+                                String[] regionCodes,
                                 Long sessionId,
                                 MeditationHallConfig config,
-                                String genderCode,
-                                Set<String> occupiedKeys) {
-        for (SeatCell cell : sectionCells) {
-            if (cell.isReserved() || occupiedKeys.contains(seatKey(cell))) {
-                continue;
-            }
-            seats.add(buildSeat(sessionId, config, cell, null, resolveRegionCode(cell, config), genderCode));
-            occupiedKeys.add(seatKey(cell));
+                                String genderCode) {
+        for (int cell = free.nextSetBit(0); cell >= 0; cell = free.nextSetBit(cell + 1)) {
+            seats.add(buildSeat(sessionId, config, grid, cell, null, regionCodes[grid.sectionId(cell)], genderCode));
         }
+        free.clear();
     }
 
-    private String seatKey(SeatCell cell) {
-        return cell.getRow() + ":" + cell.getCol();
-    }
-
-    private String resolveRegionCode(SeatCell cell, MeditationHallConfig config) {
-        String sectionName = cell.getSectionName();
+    private String resolveRegionCode(String sectionName, MeditationHallConfig config) {
         if (StringUtils.hasText(sectionName)) {
             String upper = sectionName.trim().toUpperCase(Locale.ROOT);
             if (upper.startsWith("A")) {
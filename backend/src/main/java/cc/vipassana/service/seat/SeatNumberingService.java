@@ -2,33 +2,41 @@ package cc.vipassana.service.seat;
 
 import cc.vipassana.dto.layout.NumberingConfig;
 import cc.vipassana.dto.layout.NumberingMode;
-import cc.vipassana.dto.layout.SeatCell;
+import cc.vipassana.dto.layout.SeatGrid;
 import cc.vipassana.dto.layout.SeatSection;
 import cc.vipassana.dto.layout.SeatSectionPurpose;
 import cc.vipassana.entity.MeditationSeat;
 import cc.vipassana.mapper.MeditationSeatMapper;
+import cc.vipassana.service.cache.SessionCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class SeatNumberingService {
 
+    /**
+     * 单条批量 SQL 的最大行数
+     */
+    private static final int BATCH_SIZE = 500;
+
     private final MeditationSeatMapper meditationSeatMapper;
+    private final SessionCache sessionCache;
 
     public void assignInitialNumbers(List<MeditationSeat> seats,
                                      Map<String, SeatSection> sections,
                                      NumberingConfig defaultConfig) {
-        seats.sort(Comparator
-                .comparing(MeditationSeat::getRowIndex)
-                .thenComparing(MeditationSeat::getColIndex));
+        seats.sort(Comparator.comparingLong(seat -> SeatGrid.positionKey(seat.getRowIndex(), seat.getColIndex())));
 
         NumberingConfig config = defaultConfig != null ? defaultConfig : NumberingConfig.builder().build();
         NumberingMode mode = config.getMode() != null ? config.getMode() : NumberingMode.SEQUENTIAL;
@@ -85,14 +93,35 @@ public class SeatNumberingService {
         return String.valueOf(counter);
     }
 
-    public void renumberFromDatabase(Long sessionId,
-                                     Map<String, SeatSection> sections,
-                                     NumberingConfig defaultConfig) {
+    /**
+     * 按当前布局重新编号，只写回座位号发生变化的座位
+     *
+     * @return 座位号变化的座位数
+     */
+    public int renumberFromDatabase(Long sessionId,
+                                    Map<String, SeatSection> sections,
+                                    NumberingConfig defaultConfig) {
         List<MeditationSeat> seats = meditationSeatMapper.selectBySessionId(sessionId);
+        Map<Long, String> previousNumbers = new HashMap<>();
+        for (MeditationSeat seat : seats) {
+            previousNumbers.put(seat.getId(), seat.getSeatNumber());
+        }
         assignInitialNumbers(seats, sections, defaultConfig);
+
+        List<MeditationSeat> changed = new ArrayList<>();
         for (MeditationSeat seat : seats) {
-            meditationSeatMapper.update(seat);
+            if (!Objects.equals(previousNumbers.get(seat.getId()), seat.getSeatNumber())) {
+                changed.add(seat);
+            }
+        }
+        for (int from = 0; from < changed.size(); from += BATCH_SIZE) {
+            meditationSeatMapper.updateSeatNumberBatch(changed.subList(from, Math.min(from + BATCH_SIZE, changed.size())));
+        }
+        if (!changed.isEmpty()) {
+            sessionCache.evictSeats(sessionId);
         }
+        log.info("期次 {} 重新编号完成，共 {} 个座位，座位号变化 {} 个", sessionId, seats.size(), changed.size());
+        return changed.size();
     }
 
     private NumberingConfig resolveConfig(Map<String, SeatSection> sections,
@@ -10,6 +10,8 @@ import java.util.*;
 @Slf4j
 public class SeatValidationService {
 
+    private static final int POSITION_MASK = (1 << 21) - 1;
+
     public List<String> validate(List<MeditationSeat> seats) {
         List<String> warnings = new ArrayList<>();
         warnings.addAll(checkDuplicateStudents(seats));
@@ -34,15 +36,39 @@ public class SeatValidationService {
         return warnings;
     }
 
+    /**
+     * 区域代码编号后与行列打包为 long（区域 22 位、行列各 21 位），排序后相邻比较，
+     * 只在发现冲突时才拼接提示文本
+     */
     private List<String> checkSeatConflicts(List<MeditationSeat> seats) {
-        Set<String> positions = new HashSet<>();
+        Map<String, Integer> regionIds = new HashMap<>();
+        List<String> regions = new ArrayList<>();
+        long[] keys = new long[seats.size()];
+        for (int i = 0; i < keys.length; i++) {
+            MeditationSeat seat = seats.get(i);
+            int regionId = regionIds.computeIfAbsent(seat.getRegionCode(), code -> {
+                regions.add(code);
+                return regions.size() - 1;
+            });
+            keys[i] = ((long) regionId << 42)
+                    | ((long) (position(seat.getRowIndex()) & POSITION_MASK) << 21)
+                    | (position(seat.getColIndex()) & POSITION_MASK);
+        }
+        Arrays.sort(keys);
+
         List<String> warnings = new ArrayList<>();
-        for (MeditationSeat seat : seats) {
-            String key = seat.getRegionCode() + ":" + seat.getRowIndex() + ":" + seat.getColIndex();
-            if (!positions.add(key)) {
-                warnings.add("座位冲突: " + key);
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i] == keys[i - 1]) {
+                String region = regions.get((int) (keys[i] >>> 42));
+                int row = (int) ((keys[i] >>> 21) & POSITION_MASK);
+                int col = (int) (keys[i] & POSITION_MASK);
+                warnings.add("座位冲突: " + region + ":" + row + ":" + col);
             }
         }
         return warnings;
     }
+
+    private int position(Integer value) {
+        return value == null ? POSITION_MASK : value;
+    }
 }
@@ -0,0 +1,35 @@
+-- Flyway Migration: V10__add_session_stats.sql
+-- 期次统计物化表：学员、房间分配、禅堂座位的计数
+-- 由学员、分配、座位的写路径登记，在写事务提交前（同一事务内）按期次重算，统计页直接按主键读取
+-- 建表后为已有期次回填一次
+
+CREATE TABLE IF NOT EXISTS `session_stats` (
+  `session_id` BIGINT PRIMARY KEY COMMENT '课程期次ID',
+  `total_students` INT NOT NULL DEFAULT 0 COMMENT '学员总数',
+  `male_students` INT NOT NULL DEFAULT 0 COMMENT '男众人数',
+  `female_students` INT NOT NULL DEFAULT 0 COMMENT '女众人数',
+  `allocated_students` INT NOT NULL DEFAULT 0 COMMENT '已分配房间的学员数',
+  `temporary_allocations` INT NOT NULL DEFAULT 0 COMMENT '暂存（未确认）的分配数',
+  `conflict_allocations` INT NOT NULL DEFAULT 0 COMMENT '有冲突的分配数',
+  `used_rooms` INT NOT NULL DEFAULT 0 COMMENT '已使用的房间数',
+  `total_seats` INT NOT NULL DEFAULT 0 COMMENT '禅堂座位总数',
+  `occupied_seats` INT NOT NULL DEFAULT 0 COMMENT '已分配学员的座位数',
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '刷新时间',
+  FOREIGN KEY (`session_id`) REFERENCES `session`(`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='期次统计（写时维护）';
+
+INSERT IGNORE INTO `session_stats` (
+  `session_id`, `total_students`, `male_students`, `female_students`, `allocated_students`,
+  `temporary_allocations`, `conflict_allocations`, `used_rooms`, `total_seats`, `occupied_seats`
+)
+SELECT se.`id`,
+       (SELECT COUNT(*) FROM `student` s WHERE s.`session_id` = se.`id`),
+       (SELECT COUNT(*) FROM `student` s WHERE s.`session_id` = se.`id` AND s.`gender` = 'M'),
+       (SELECT COUNT(*) FROM `student` s WHERE s.`session_id` = se.`id` AND s.`gender` = 'F'),
+       (SELECT COUNT(*) FROM `allocation` a WHERE a.`session_id` = se.`id`),
+       (SELECT COUNT(*) FROM `allocation` a WHERE a.`session_id` = se.`id` AND a.`is_temporary` = TRUE),
+       (SELECT COUNT(*) FROM `allocation` a WHERE a.`session_id` = se.`id` AND a.`conflict_flag` = TRUE),
+       (SELECT COUNT(DISTINCT a.`room_id`) FROM `allocation` a WHERE a.`session_id` = se.`id`),
+       (SELECT COUNT(*) FROM `meditation_seat` m WHERE m.`session_id` = se.`id`),
+       (SELECT COUNT(m.`student_id`) FROM `meditation_seat` m WHERE m.`session_id` = se.`id`)
+FROM `session` se;
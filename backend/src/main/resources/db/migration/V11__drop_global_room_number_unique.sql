@@ -0,0 +1,11 @@
+-- V1 中 room_number 列级 UNIQUE 生成了名为 room_number 的全局唯一索引，
+-- V3 只删除了 uk_room_number，遗留索引导致不同中心无法使用相同房号，
+-- 且导入时 ON DUPLICATE KEY 会命中其他中心的房间。房号唯一性由 uk_room_center_number 保证。
+SET @idx_exists := (
+    SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'room' AND index_name = 'room_number'
+);
+SET @ddl := IF(@idx_exists > 0, 'ALTER TABLE `room` DROP INDEX `room_number`', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
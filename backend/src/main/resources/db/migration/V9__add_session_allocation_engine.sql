@@ -0,0 +1,6 @@
+-- Flyway Migration: V9__add_session_allocation_engine.sql
+-- 课程设置：房间分配引擎（按期次选择）
+-- GREEDY = 按房间类型优先级顺序填充（VBA宏移植）
+-- SOLVER = 约束求解（软目标：老人低楼层、房间均衡、同伴分离、法师同住）
+
+ALTER TABLE `session` ADD COLUMN `allocation_engine` VARCHAR(20) DEFAULT 'GREEDY' COMMENT '房间分配引擎：GREEDY=顺序填充, SOLVER=约束求解' AFTER `seat_numbering_type`;
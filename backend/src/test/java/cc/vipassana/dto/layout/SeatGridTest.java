@@ -0,0 +1,126 @@
+package cc.vipassana.dto.layout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatGridTest {
+
+    @Test
+    void testSectionPurposeAndReservedBits() {
+        SeatGrid.Builder builder = SeatGrid.builder(2, 1, 2, 3);
+        int old = builder.section("旧生区");
+        int monk = builder.section("法师区");
+        assertEquals(old, builder.section("旧生区"), "同名区域共用一个区域序号");
+
+        builder.reserve(2, 2);
+        builder.reserve(9, 9);
+        assertTrue(builder.place(2, 1, old, SeatSectionPurpose.OLD_STUDENT));
+        assertTrue(builder.place(2, 2, old, SeatSectionPurpose.OLD_STUDENT));
+        assertTrue(builder.place(3, 3, monk, null));
+        assertFalse(builder.place(4, 1, old, SeatSectionPurpose.OLD_STUDENT), "超出外接矩形");
+        SeatGrid grid = builder.build();
+
+        assertEquals(6, grid.length());
+        assertEquals(3, grid.seatCount());
+        assertEquals(2, grid.sectionCount());
+
+        int first = grid.index(2, 1);
+        assertEquals(0, first);
+        assertEquals(old, grid.sectionId(first));
+        assertEquals("旧生区", grid.sectionNameAt(first));
+        assertEquals(SeatSectionPurpose.OLD_STUDENT, grid.purpose(first));
+        assertFalse(grid.isReserved(first));
+
+        int reserved = grid.index(2, 2);
+        assertTrue(grid.isSeat(reserved));
+        assertTrue(grid.isReserved(reserved));
+
+        int monkSeat = grid.index(3, 3);
+        assertEquals(5, monkSeat);
+        assertEquals(3, grid.row(monkSeat));
+        assertEquals(3, grid.col(monkSeat));
+        assertEquals("法师区", grid.sectionNameAt(monkSeat));
+        assertNull(grid.purpose(monkSeat), "未设置用途");
+
+        int aisle = grid.index(2, 3);
+        assertFalse(grid.isSeat(aisle));
+        assertEquals(-1, grid.sectionId(aisle));
+        assertNull(grid.sectionNameAt(aisle));
+        assertEquals(-1, grid.index(1, 1));
+
+        BitSet assignable = grid.assignableSeats();
+        assertEquals(2, assignable.cardinality());
+        assertTrue(assignable.get(first));
+        assertFalse(assignable.get(reserved), "保留位不可分配");
+        assertTrue(assignable.get(monkSeat));
+    }
+
+    @Test
+    void testFirstDeclaredSectionWinsOverlap() {
+        SeatGrid.Builder builder = SeatGrid.builder(0, 0, 1, 3);
+        int a = builder.section("A");
+        int b = builder.section("B");
+
+        assertTrue(builder.place(0, 0, a, SeatSectionPurpose.OLD_STUDENT));
+        assertTrue(builder.place(0, 1, a, SeatSectionPurpose.OLD_STUDENT));
+        assertFalse(builder.place(0, 1, b, SeatSectionPurpose.NEW_STUDENT), "已被先声明的区域占有");
+        assertTrue(builder.place(0, 2, b, SeatSectionPurpose.NEW_STUDENT));
+        SeatGrid grid = builder.build();
+
+        assertEquals(3, grid.seatCount());
+        assertEquals("A", grid.sectionNameAt(1));
+        assertEquals(SeatSectionPurpose.OLD_STUDENT, grid.purpose(1));
+        assertEquals("B", grid.sectionNameAt(2));
+    }
+
+    @Test
+    void testPositionKeyOrdersNegativeColumns() {
+        long[] keys = {
+                SeatGrid.positionKey(-1, Integer.MAX_VALUE),
+                SeatGrid.positionKey(0, Integer.MIN_VALUE),
+                SeatGrid.positionKey(0, -3),
+                SeatGrid.positionKey(0, -1),
+                SeatGrid.positionKey(0, 0),
+                SeatGrid.positionKey(0, 2),
+                SeatGrid.positionKey(1, Integer.MIN_VALUE)
+        };
+        for (int i = 1; i < keys.length; i++) {
+            assertTrue(keys[i - 1] < keys[i], "先按行、再按列排序: " + i);
+        }
+        assertEquals(SeatGrid.positionKey(3, -7), SeatGrid.positionKey(3, -7));
+    }
+
+    @Test
+    void testFromCellsRebuildsGrid() {
+        SeatGrid grid = SeatGrid.fromCells(List.of(
+                SeatCell.builder().row(5).col(-2).sectionName("法师区")
+                        .purpose(SeatSectionPurpose.MONK).reserved(true).build(),
+                SeatCell.builder().row(6).col(0).sectionName("旧生区")
+                        .purpose(SeatSectionPurpose.OLD_STUDENT).build(),
+                SeatCell.builder().row(6).col(-1).sectionName("法师区")
+                        .purpose(SeatSectionPurpose.MONK).build()));
+
+        assertEquals(5, grid.originRow());
+        assertEquals(-2, grid.originCol());
+        assertEquals(2, grid.rows());
+        assertEquals(3, grid.cols());
+        assertEquals(3, grid.seatCount());
+        assertEquals(2, grid.sectionCount());
+
+        int monkReserved = grid.index(5, -2);
+        assertTrue(grid.isReserved(monkReserved));
+        assertEquals(SeatSectionPurpose.MONK, grid.purpose(monkReserved));
+        assertEquals(grid.sectionId(monkReserved), grid.sectionId(grid.index(6, -1)));
+        assertEquals("旧生区", grid.sectionNameAt(grid.index(6, 0)));
+        assertFalse(grid.isSeat(grid.index(5, 0)));
+        assertEquals(2, grid.assignableSeats().cardinality());
+
+        SeatGrid empty = SeatGrid.fromCells(List.of());
+        assertEquals(0, empty.length());
+        assertEquals(0, empty.seatCount());
+    }
+}
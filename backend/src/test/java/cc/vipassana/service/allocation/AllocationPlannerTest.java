@@ -0,0 +1,101 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.common.RoomType;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationPlannerTest {
+
+    private final List<Room> rooms = Arrays.asList(
+            createRoom(1L, "201", RoomType.OLD_STUDENT, "男", 2),
+            createRoom(2L, "202", RoomType.OLD_STUDENT, "女", 2));
+
+    @Test
+    void testPlan_AllocatesByGender() {
+        List<Student> students = Arrays.asList(
+                createStudent(1L, "M"), createStudent(2L, "M"),
+                createStudent(3L, "F"), createStudent(4L, "F"));
+
+        AllocationPlan plan = newPlanner().plan(61L, students, rooms);
+
+        assertTrue(plan.isComplete());
+        assertEquals(4, plan.allocatedCount());
+        assertEquals(1.0, plan.allocationScore());
+        Map<Long, Long> roomByStudent = plan.allocations().stream()
+                .collect(Collectors.toMap(Allocation::getStudentId, Allocation::getRoomId));
+        assertEquals(1L, roomByStudent.get(1L));
+        assertEquals(1L, roomByStudent.get(2L));
+        assertEquals(2L, roomByStudent.get(3L));
+        assertEquals(2L, roomByStudent.get(4L));
+        assertEquals(2L, plan.statistics().get("usedRoomCount"));
+        assertNull(plan.allocations().get(0).getId(), "计划不应包含数据库ID");
+    }
+
+    @Test
+    void testPlan_CapacityOverflowRecordsUnallocated() {
+        List<Student> students = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            students.add(createStudent(id, "M"));
+        }
+
+        AllocationPlan plan = newPlanner().plan(61L, students, rooms);
+
+        assertFalse(plan.isComplete());
+        assertEquals(2, plan.allocatedCount());
+        assertEquals(1, plan.unallocatedStudents().size());
+        assertEquals(3L, plan.unallocatedStudents().get(0).getId());
+    }
+
+    @Test
+    void testPlan_IsImmutable() {
+        AllocationPlan plan = newPlanner().plan(61L,
+                Collections.singletonList(createStudent(1L, "M")), rooms);
+
+        assertThrows(UnsupportedOperationException.class, () -> plan.allocations().clear());
+        assertThrows(UnsupportedOperationException.class, () -> plan.statistics().put("x", 1));
+    }
+
+    @Test
+    void testPlan_NoRooms() {
+        assertThrows(RuntimeException.class, () -> newPlanner().plan(61L,
+                Collections.singletonList(createStudent(1L, "M")), Collections.emptyList()));
+    }
+
+    private AllocationPlanner newPlanner() {
+        AllocationPlanner planner = new AllocationPlanner();
+        planner.setSeed(12345L);
+        return planner;
+    }
+
+    private Student createStudent(Long id, String gender) {
+        return Student.builder()
+                .id(id)
+                .name("学员" + id)
+                .gender(gender)
+                .studyTimes(1)
+                .build();
+    }
+
+    private Room createRoom(Long id, String roomNumber, String roomType, String genderArea, int capacity) {
+        return Room.builder()
+                .id(id)
+                .roomNumber(roomNumber)
+                .roomType(roomType)
+                .genderArea(genderArea)
+                .capacity(capacity)
+                .status("ENABLED")
+                .isReserved(false)
+                .build();
+    }
+}
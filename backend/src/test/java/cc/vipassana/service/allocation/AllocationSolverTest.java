@@ -0,0 +1,99 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.common.RoomType;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationSolverTest {
+
+    @Test
+    void testSolve_NotWorseThanGreedyAndRespectsHardConstraints() {
+        List<Room> rooms = new ArrayList<>();
+        long roomId = 1;
+        for (String genderArea : List.of("男", "女")) {
+            rooms.add(createRoom(roomId++, genderArea, RoomType.MONK, 2, 1));
+            for (int k = 0; k < 6; k++) {
+                rooms.add(createRoom(roomId++, genderArea, RoomType.OLD_STUDENT, 4, k % 3 + 1));
+                rooms.add(createRoom(roomId++, genderArea, RoomType.NEW_STUDENT, 4, k % 3 + 1));
+            }
+        }
+
+        Random random = new Random(1);
+        List<Student> students = new ArrayList<>();
+        for (long id = 1; id <= 80; id++) {
+            students.add(Student.builder()
+                    .id(id)
+                    .name("学员" + id)
+                    .gender(id % 2 == 0 ? "M" : "F")
+                    .age(20 + random.nextInt(55))
+                    .studyTimes(random.nextInt(3))
+                    .fellowGroupId(random.nextInt(4) == 0 ? (int) (id / 6) : null)
+                    .build());
+        }
+
+        AllocationPlanner greedy = new AllocationPlanner();
+        greedy.setSeed(12345L);
+        List<Allocation> initial = greedy.plan(61L, students, rooms).allocations();
+
+        AllocationSolver solver = new AllocationSolver(500, 60);
+        solver.setSeed(12345L);
+        AllocationSolver.Result result = solver.solve(61L, students, rooms, initial);
+
+        assertTrue(result.score().total() <= result.baselineScore().total());
+        assertEquals(students.size(), result.allocations().size() + result.unallocatedStudents().size());
+
+        Map<Long, Room> roomMap = new HashMap<>();
+        rooms.forEach(room -> roomMap.put(room.getId(), room));
+        Map<Long, Student> studentMap = new HashMap<>();
+        students.forEach(student -> studentMap.put(student.getId(), student));
+
+        Set<String> beds = new HashSet<>();
+        Map<Long, Integer> occupancy = new HashMap<>();
+        for (Allocation allocation : result.allocations()) {
+            Room room = roomMap.get(allocation.getRoomId());
+            Student student = studentMap.get(allocation.getStudentId());
+            assertEquals("M".equals(student.getGender()) ? "男" : "女", room.getGenderArea());
+            assertTrue(beds.add(allocation.getRoomId() + ":" + allocation.getBedNumber()));
+            occupancy.merge(room.getId(), 1, Integer::sum);
+        }
+        occupancy.forEach((id, count) -> assertTrue(count <= roomMap.get(id).getCapacity()));
+    }
+
+    @Test
+    void testSolve_PrefersGroundFloorForElderly() {
+        List<Room> rooms = List.of(
+                createRoom(1L, "男", RoomType.OLD_STUDENT, 1, 3),
+                createRoom(2L, "男", RoomType.OLD_STUDENT, 1, 1));
+        List<Student> students = List.of(Student.builder()
+                .id(1L).name("老人").gender("M").age(70).studyTimes(2).build());
+        List<Allocation> initial = List.of(Allocation.builder()
+                .studentId(1L).roomId(1L).bedNumber(1).build());
+
+        AllocationSolver solver = new AllocationSolver(200, 60);
+        solver.setSeed(1L);
+        AllocationSolver.Result result = solver.solve(61L, students, rooms, initial);
+
+        assertEquals(1, result.baselineScore().elderlyUpstairs());
+        assertEquals(0, result.score().elderlyUpstairs());
+        assertEquals(2L, result.allocations().get(0).getRoomId());
+    }
+
+    private Room createRoom(Long id, String genderArea, String roomType, int capacity, int floor) {
+        return Room.builder()
+                .id(id)
+                .roomNumber(String.valueOf(100 + id))
+                .roomType(roomType)
+                .genderArea(genderArea)
+                .capacity(capacity)
+                .floor(floor)
+                .status("ENABLED")
+                .isReserved(false)
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.common.RoomType;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BedLedgerTest {
+
+    @Test
+    void testOccupyAndRelease() {
+        BedLedger ledger = new BedLedger(Arrays.asList(
+                createRoom(10L, 2), createRoom(20L, 3)));
+
+        assertEquals(5, ledger.totalRemaining());
+        assertEquals(1, ledger.indexOf(20L));
+        assertEquals(-1, ledger.indexOf(30L));
+
+        assertTrue(ledger.occupy(1, 2));
+        assertFalse(ledger.occupy(1, 2), "同一床位不能重复占用");
+        assertFalse(ledger.occupy(1, 4), "床位号不能超出容量");
+        assertEquals(1, ledger.occupy(1));
+        assertEquals(3, ledger.occupy(1));
+        assertEquals(-1, ledger.occupy(1), "房间已满");
+        assertFalse(ledger.hasFreeBed(1));
+        assertEquals(2, ledger.totalRemaining());
+
+        ledger.release(1, 2);
+        assertTrue(ledger.isBedFree(1, 2));
+        assertEquals(2, ledger.occupy(1));
+    }
+
+    @Test
+    void testRemainingFrom() {
+        BedLedger ledger = new BedLedger(Arrays.asList(
+                createRoom(1L, 2), createRoom(2L, 3), createRoom(3L, 4)));
+
+        ledger.occupy(0);
+        ledger.occupy(1);
+        ledger.occupy(2, 4);
+
+        assertEquals(6, ledger.remainingFrom(0));
+        assertEquals(5, ledger.remainingFrom(1));
+        assertEquals(3, ledger.remainingFrom(2));
+        assertEquals(0, ledger.remainingFrom(3));
+    }
+
+    @Test
+    void testLoadExistingAllocations() {
+        BedLedger ledger = new BedLedger(List.of(createRoom(1L, 3)));
+        ledger.load(Arrays.asList(
+                Allocation.builder().roomId(1L).bedNumber(1).build(),
+                Allocation.builder().roomId(1L).bedNumber(3).build(),
+                Allocation.builder().roomId(9L).bedNumber(1).build()));
+
+        assertEquals(2, ledger.occupied(0));
+        assertEquals(2, ledger.occupy(0));
+    }
+
+    @Test
+    void testCursorSkipsFullRooms() {
+        BedLedger ledger = new BedLedger(new LinkedList<>(Arrays.asList(
+                createRoom(1L, 1), createRoom(2L, 2))));
+        ledger.occupy(0);
+        ledger.occupy(1, 1);
+
+        RoomCursor cursor = new RoomCursor(ledger);
+
+        assertEquals(1, cursor.getRemainingCapacity());
+        assertEquals(2L, cursor.nextAvailableRoom().getId());
+        assertEquals(2, cursor.getCurrentBedNumber());
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    void testDuplicateRoomKeptOnce() {
+        // 未设置 special_tag 的老人房在老人房1/2队列中各出现一次
+        Room elderly = Room.builder()
+                .id(5L)
+                .roomNumber("501")
+                .roomType(RoomType.ELDERLY)
+                .capacity(2)
+                .genderArea("男")
+                .status("ENABLED")
+                .build();
+        BedLedger ledger = new BedLedger(new LinkedList<>(Arrays.asList(
+                createRoom(1L, 1), elderly, elderly)));
+
+        assertEquals(2, ledger.size());
+        assertEquals(1, ledger.indexOf(5L));
+        assertEquals(3, ledger.totalRemaining());
+
+        ledger.load(List.of(Allocation.builder().roomId(5L).bedNumber(1).build()));
+        RoomCursor cursor = new RoomCursor(ledger);
+        assertEquals(1L, cursor.nextAvailableRoom().getId());
+        assertEquals(5L, cursor.nextAvailableRoom().getId());
+        assertEquals(2, cursor.getCurrentBedNumber(), "已占用的床位不会在重复房间中再次分配");
+        assertFalse(cursor.hasNext());
+    }
+
+    private Room createRoom(Long id, int capacity) {
+        return Room.builder()
+                .id(id)
+                .roomNumber(String.valueOf(100 + id))
+                .roomType(RoomType.OLD_STUDENT)
+                .capacity(capacity)
+                .genderArea("男")
+                .status("ENABLED")
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package cc.vipassana.service.allocation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompanionNameMatcherTest {
+
+    @Test
+    void testSplitsConcatenatedNames() {
+        CompanionNameMatcher matcher = new CompanionNameMatcher(Map.of("张三", 1L, "李四", 2L, "王五", 3L));
+
+        assertEquals(List.of(1L, 2L), matcher.match("张三李四"));
+        assertEquals(List.of(3L), matcher.match("朋友王五(同事)"));
+        assertTrue(matcher.match("赵六").isEmpty());
+    }
+
+    @Test
+    void testPrefersLongestNameAtSameStart() {
+        CompanionNameMatcher matcher = new CompanionNameMatcher(Map.of("张三", 1L, "张三丰", 2L, "丰华", 3L));
+
+        assertEquals(List.of(2L), matcher.match("张三丰"), "同一起点取较长姓名");
+        assertEquals(List.of(2L), matcher.match("张三丰华"), "已选中的姓名不再与后面的姓名重叠匹配");
+        assertEquals(List.of(1L, 3L), matcher.match("张三与丰华"));
+    }
+
+    @Test
+    void testMatchesNameInsideFailureChain() {
+        CompanionNameMatcher matcher = new CompanionNameMatcher(Map.of("欧阳娜娜", 1L, "阳娜", 2L));
+
+        assertEquals(List.of(2L), matcher.match("欧阳娜"));
+        assertEquals(List.of(1L), matcher.match("欧阳娜娜"));
+    }
+}
@@ -0,0 +1,100 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.common.RoomType;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompanionSplitOptimizerTest {
+
+    @Test
+    void testOptimize_SeparatesCompanionsWithinGender() {
+        List<Room> rooms = new ArrayList<>();
+        List<Student> students = new ArrayList<>();
+        List<Allocation> allocations = new ArrayList<>();
+
+        // 男女各 5 间房，每间 4 床；每间房的前两人是同一同伴组
+        long studentId = 1;
+        for (long roomId = 1; roomId <= 10; roomId++) {
+            boolean male = roomId <= 5;
+            rooms.add(createRoom(roomId, male ? "男" : "女"));
+            for (int bed = 1; bed <= 4; bed++) {
+                Integer fellowGroupId = bed <= 2 ? (int) roomId : null;
+                students.add(createStudent(studentId, male ? "M" : "F", fellowGroupId));
+                allocations.add(createAllocation(studentId, roomId, bed));
+                studentId++;
+            }
+        }
+
+        CompanionSplitOptimizer optimizer = new CompanionSplitOptimizer(2, 2000);
+        optimizer.setSeed(12345L);
+        CompanionSplitOptimizer.Score score = optimizer.optimize(allocations, students, rooms);
+
+        assertEquals(0, score.companionPairs());
+        assertEquals(0, score.genderViolations());
+
+        // 床位不重复，且男生仍在男区房间
+        Set<String> beds = new HashSet<>();
+        for (Allocation allocation : allocations) {
+            assertTrue(beds.add(allocation.getRoomId() + ":" + allocation.getBedNumber()));
+            boolean maleStudent = allocation.getStudentId() <= 20;
+            assertEquals(maleStudent, allocation.getRoomId() <= 5);
+        }
+    }
+
+    @Test
+    void testOptimize_NoConflictKeepsAllocations() {
+        List<Room> rooms = List.of(createRoom(1L, "男"), createRoom(2L, "男"));
+        List<Student> students = List.of(
+                createStudent(1L, "M", 7),
+                createStudent(2L, "M", 7));
+        List<Allocation> allocations = List.of(
+                createAllocation(1L, 1L, 1),
+                createAllocation(2L, 2L, 1));
+
+        CompanionSplitOptimizer.Score score =
+                new CompanionSplitOptimizer(1, 100).optimize(allocations, students, rooms);
+
+        assertEquals(0, score.total());
+        assertEquals(1L, allocations.get(0).getRoomId());
+        assertEquals(2L, allocations.get(1).getRoomId());
+    }
+
+    private Room createRoom(Long id, String genderArea) {
+        return Room.builder()
+                .id(id)
+                .roomNumber(String.valueOf(100 + id))
+                .roomType(RoomType.OLD_STUDENT)
+                .genderArea(genderArea)
+                .capacity(4)
+                .status("ENABLED")
+                .isReserved(false)
+                .build();
+    }
+
+    private Student createStudent(Long id, String gender, Integer fellowGroupId) {
+        return Student.builder()
+                .id(id)
+                .name("学员" + id)
+                .gender(gender)
+                .studyTimes(1)
+                .fellowGroupId(fellowGroupId)
+                .build();
+    }
+
+    private Allocation createAllocation(Long studentId, Long roomId, int bedNumber) {
+        return Allocation.builder()
+                .studentId(studentId)
+                .roomId(roomId)
+                .bedNumber(bedNumber)
+                .build();
+    }
+}
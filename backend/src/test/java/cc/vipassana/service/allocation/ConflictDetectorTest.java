@@ -0,0 +1,76 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Student;
+import cc.vipassana.service.AllocationService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConflictDetectorTest {
+
+    @Test
+    void testDetect_SeparatedCompanions() {
+        List<Student> students = Arrays.asList(
+                createStudent(1L, "张三", 7),
+                createStudent(2L, "李四", 7),
+                createStudent(3L, "王五", null));
+        List<Allocation> allocations = Arrays.asList(
+                createAllocation(1L, 10L),
+                createAllocation(2L, 20L),
+                createAllocation(3L, 10L));
+
+        List<AllocationService.AllocationConflict> conflicts =
+                new ConflictDetector().detect(students, allocations);
+
+        // 双向各报告一次
+        assertEquals(2, conflicts.size());
+        assertEquals(1L, conflicts.get(0).studentId);
+        assertEquals("SEPARATED", conflicts.get(0).conflictType);
+        assertTrue(conflicts.get(0).conflictReason.contains("李四"));
+        assertEquals(2L, conflicts.get(1).studentId);
+    }
+
+    @Test
+    void testDetect_SameRoomNoConflict() {
+        List<Student> students = Arrays.asList(
+                createStudent(1L, "张三", 7),
+                createStudent(2L, "李四", 7));
+        List<Allocation> allocations = Arrays.asList(
+                createAllocation(1L, 10L),
+                createAllocation(2L, 10L));
+
+        assertTrue(new ConflictDetector().detect(students, allocations).isEmpty());
+    }
+
+    @Test
+    void testDetect_UnallocatedFellowIgnored() {
+        List<Student> students = Arrays.asList(
+                createStudent(1L, "张三", 7),
+                createStudent(2L, "李四", 7));
+        List<Allocation> allocations = Collections.singletonList(createAllocation(1L, 10L));
+
+        assertTrue(new ConflictDetector().detect(students, allocations).isEmpty());
+    }
+
+    private Student createStudent(Long id, String name, Integer fellowGroupId) {
+        return Student.builder()
+                .id(id)
+                .name(name)
+                .fellowGroupId(fellowGroupId)
+                .build();
+    }
+
+    private Allocation createAllocation(Long studentId, Long roomId) {
+        return Allocation.builder()
+                .id(studentId * 100)
+                .studentId(studentId)
+                .roomId(roomId)
+                .bedNumber(1)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.common.RoomType;
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Room;
+import cc.vipassana.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalAllocatorTest {
+
+    @Test
+    void testLateArrivalFillsFreeBedWithoutMovingOthers() {
+        List<Room> rooms = List.of(createRoom(1L, 2), createRoom(2L, 2));
+        List<Student> students = Arrays.asList(
+                createStudent(1L), createStudent(2L), createStudent(3L), createStudent(4L));
+        List<Allocation> existing = new ArrayList<>(Arrays.asList(
+                createAllocation(10L, 1L, 1L, 1, false),
+                createAllocation(11L, 2L, 1L, 2, false),
+                createAllocation(12L, 3L, 2L, 1, true)));
+
+        IncrementalAllocator.Result result = new IncrementalAllocator().allocate(1L, students, rooms, existing);
+
+        assertTrue(result.moved().isEmpty());
+        assertTrue(result.released().isEmpty());
+        assertEquals(1, result.inserted().size());
+        Allocation inserted = result.inserted().get(0);
+        assertEquals(4L, inserted.getStudentId());
+        assertEquals(2L, inserted.getRoomId());
+        assertEquals(2, inserted.getBedNumber());
+    }
+
+    @Test
+    void testWithdrawnStudentReleasesBed() {
+        List<Room> rooms = List.of(createRoom(1L, 2));
+        List<Student> students = Arrays.asList(createStudent(1L), createStudent(3L));
+        List<Allocation> existing = new ArrayList<>(Arrays.asList(
+                createAllocation(10L, 1L, 1L, 1, false),
+                createAllocation(11L, 2L, 1L, 2, false)));
+
+        IncrementalAllocator.Result result = new IncrementalAllocator().allocate(1L, students, rooms, existing);
+
+        assertEquals(1, result.released().size());
+        assertEquals(11L, result.released().get(0).getId());
+        assertEquals(1, result.inserted().size());
+        assertEquals(2, result.inserted().get(0).getBedNumber(), "退出学员的床位可被新学员使用");
+        assertTrue(result.unallocatedStudents().isEmpty());
+    }
+
+    @Test
+    void testConflictingTemporaryAllocationIsMoved() {
+        List<Room> rooms = List.of(createRoom(1L, 1), createRoom(2L, 1));
+        List<Student> students = Arrays.asList(createStudent(1L), createStudent(2L));
+        Allocation temporary = createAllocation(11L, 2L, 1L, 1, true);
+        List<Allocation> existing = new ArrayList<>(Arrays.asList(
+                createAllocation(10L, 1L, 1L, 1, false),
+                temporary));
+
+        IncrementalAllocator.Result result = new IncrementalAllocator().allocate(1L, students, rooms, existing);
+
+        assertTrue(result.inserted().isEmpty());
+        assertEquals(1, result.moved().size());
+        assertEquals(2L, temporary.getRoomId());
+        assertEquals(1, temporary.getBedNumber());
+    }
+
+    @Test
+    void testUntaggedElderlyRoomBedsNotAssignedTwice() {
+        // 未设置 special_tag 的老人房同时匹配老人房1/2，只能按一个房间记床位
+        Room elderly = createRoom(1L, 2);
+        elderly.setRoomType(RoomType.ELDERLY);
+        List<Student> students = Arrays.asList(createStudent(1L), createStudent(2L), createStudent(3L));
+        List<Allocation> existing = new ArrayList<>(List.of(createAllocation(10L, 1L, 1L, 1, false)));
+
+        IncrementalAllocator.Result result = new IncrementalAllocator().allocate(1L, students, List.of(elderly), existing);
+
+        assertEquals(1, result.inserted().size());
+        assertEquals(2L, result.inserted().get(0).getStudentId());
+        assertEquals(2, result.inserted().get(0).getBedNumber());
+        assertEquals(1, result.unallocatedStudents().size(), "房间已满，不会重复使用已占用的床位");
+    }
+
+    private Room createRoom(Long id, int capacity) {
+        return Room.builder()
+                .id(id)
+                .roomNumber(String.valueOf(100 + id))
+                .roomType(RoomType.OLD_STUDENT)
+                .capacity(capacity)
+                .genderArea("男")
+                .status("ENABLED")
+                .build();
+    }
+
+    private Student createStudent(Long id) {
+        return Student.builder()
+                .id(id)
+                .name("学员" + id)
+                .gender("M")
+                .studyTimes(1)
+                .build();
+    }
+
+    private Allocation createAllocation(Long id, Long studentId, Long roomId, int bedNumber, boolean temporary) {
+        return Allocation.builder()
+                .id(id)
+                .sessionId(1L)
+                .studentId(studentId)
+                .roomId(roomId)
+                .bedNumber(bedNumber)
+                .isTemporary(temporary)
+                .build();
+    }
+}
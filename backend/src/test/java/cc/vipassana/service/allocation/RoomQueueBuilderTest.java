@@ -103,6 +103,18 @@ class RoomQueueBuilderTest {
         assertEquals(5, queue.size());
     }
 
+    @Test
+    void testBuildQueue_UntaggedElderlyRoomQueuedOnce() {
+        // 未设置 special_tag 的老人房同时匹配老人房1/2
+        testRooms.add(createRoom(13L, "601", RoomType.ELDERLY, null, "男"));
+
+        RoomQueueBuilder builder = new RoomQueueBuilder(testRooms);
+        Queue<Room> queue = builder.buildQueue("男");
+
+        assertEquals(6, queue.size());
+        assertEquals(1, queue.stream().filter(room -> room.getId() == 13L).count());
+    }
+
     private Room createRoom(Long id, String roomNumber, String roomType, String specialTag, String genderArea) {
         return createRoom(id, roomNumber, roomType, specialTag, genderArea, "ENABLED");
     }
@@ -0,0 +1,61 @@
+package cc.vipassana.service.allocation;
+
+import cc.vipassana.entity.Allocation;
+import cc.vipassana.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionSnapshotTest {
+
+    @Test
+    void testIndexes() {
+        List<Student> students = new ArrayList<>();
+        List<Allocation> allocations = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            students.add(Student.builder()
+                    .id(id * 1024)
+                    .name("学员" + id)
+                    .gender(id % 2 == 0 ? "M" : "F")
+                    .fellowGroupId(id <= 6 ? (int) ((id + 1) / 2) : null)
+                    .build());
+            if (id % 3 != 0) {
+                allocations.add(Allocation.builder()
+                        .studentId(id * 1024)
+                        .roomId(id % 10)
+                        .bedNumber(1)
+                        .build());
+            }
+        }
+
+        SessionSnapshot snapshot = SessionSnapshot.of(61L, students, allocations);
+
+        assertEquals("学员7", snapshot.student(7 * 1024L).getName());
+        assertNull(snapshot.student(7L));
+        assertNotNull(snapshot.allocationOf(1024L));
+        assertNull(snapshot.allocationOf(3 * 1024L));
+        assertEquals(3, snapshot.fellowGroups().size());
+        assertEquals(2, snapshot.fellowGroup(1).size());
+        assertTrue(snapshot.fellowGroup(99).isEmpty());
+        assertEquals(100, snapshot.studentsByGenderArea().get("男").size());
+        assertEquals(10, snapshot.allocationsByRoom().size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.students().clear());
+    }
+
+    @Test
+    void testWithAllocationsReusesStudents() {
+        List<Student> students = List.of(Student.builder().id(1L).name("张三").gender("M").build());
+        SessionSnapshot snapshot = SessionSnapshot.of(61L, students, List.of());
+        assertNull(snapshot.allocationOf(1L));
+
+        SessionSnapshot planned = snapshot.withAllocations(List.of(
+                Allocation.builder().studentId(1L).roomId(5L).bedNumber(1).build()));
+
+        assertSame(snapshot.students(), planned.students());
+        assertEquals(5L, planned.allocationOf(1L).getRoomId());
+        assertNull(snapshot.allocationOf(1L));
+    }
+}
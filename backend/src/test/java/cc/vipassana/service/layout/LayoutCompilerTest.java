@@ -0,0 +1,111 @@
+package cc.vipassana.service.layout;
+
+import cc.vipassana.dto.layout.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayoutCompilerTest {
+
+    private final LayoutCompiler compiler = new LayoutCompiler(new ObjectMapper());
+
+    @Test
+    void testOverlappingSectionsKeepFirstDeclared() {
+        HallLayout layout = HallLayout.builder()
+                .sections(List.of(
+                        section("旧生区", SeatSectionPurpose.OLD_STUDENT, 0, 2, 0, 2),
+                        section("新生区", SeatSectionPurpose.NEW_STUDENT, 1, 3, 1, 3)))
+                .build();
+
+        CompiledLayout compiled = compiler.compile(layout);
+        SeatGrid grid = compiled.getGrid();
+
+        // 2x2 + 2x2 - 重叠的 (1,1)
+        assertEquals(7, compiled.getCells().size());
+        assertEquals(7, grid.seatCount());
+        assertEquals(1, compiled.getCells().stream()
+                .filter(cell -> cell.getRow() == 1 && cell.getCol() == 1).count(), "同一位置只生成一个座位");
+        assertEquals("旧生区", grid.sectionNameAt(grid.index(1, 1)));
+        assertEquals(SeatSectionPurpose.OLD_STUDENT, grid.purpose(grid.index(1, 1)));
+        assertEquals("新生区", grid.sectionNameAt(grid.index(2, 2)));
+        assertFalse(grid.isSeat(grid.index(0, 2)), "外接矩形内未被区域覆盖的位置不是座位");
+    }
+
+    @Test
+    void testReservedSlots() {
+        HallLayout layout = HallLayout.builder()
+                .sections(List.of(section("旧生区", SeatSectionPurpose.OLD_STUDENT, 0, 2, 0, 3)))
+                .reservedSlots(List.of(
+                        ReservedSlot.builder().row(0).col(1).build(),
+                        ReservedSlot.builder().row(5).col(5).build(),
+                        ReservedSlot.builder().row(1).build()))
+                .build();
+
+        CompiledLayout compiled = compiler.compile(layout);
+        SeatGrid grid = compiled.getGrid();
+
+        assertEquals(6, compiled.getCells().size());
+        List<SeatCell> reserved = compiled.getCells().stream().filter(SeatCell::isReserved).toList();
+        assertEquals(1, reserved.size());
+        assertEquals(0, reserved.get(0).getRow());
+        assertEquals(1, reserved.get(0).getCol());
+        assertTrue(grid.isReserved(grid.index(0, 1)));
+        assertEquals(5, grid.assignableSeats().cardinality(), "保留位不参与分配，区域外的保留位忽略");
+    }
+
+    @Test
+    void testNonZeroOrigin() {
+        HallLayout layout = HallLayout.builder()
+                .sections(List.of(
+                        section("法师区", SeatSectionPurpose.MONK, 2, 3, 3, 5),
+                        section("旧生区", SeatSectionPurpose.OLD_STUDENT, 4, 6, 3, 6)))
+                .reservedSlots(List.of(ReservedSlot.builder().row(5).col(5).build()))
+                .build();
+
+        CompiledLayout compiled = compiler.compile(layout);
+        SeatGrid grid = compiled.getGrid();
+
+        assertEquals(2, grid.originRow());
+        assertEquals(3, grid.originCol());
+        assertEquals(4, grid.rows());
+        assertEquals(3, grid.cols());
+        assertEquals(8, grid.seatCount());
+        assertEquals(-1, grid.index(0, 0));
+        assertEquals(0, grid.index(2, 3));
+        assertEquals("法师区", grid.sectionNameAt(grid.index(2, 4)));
+        assertFalse(grid.isSeat(grid.index(3, 3)), "两个区域之间的空行");
+        assertTrue(grid.isReserved(grid.index(5, 5)));
+
+        // 未设置总行列数时取区域的结束行列
+        assertEquals(6, compiled.getTotalRows());
+        assertEquals(6, compiled.getTotalCols());
+
+        // 格子按行列升序生成，与网格下标顺序一致
+        List<SeatCell> cells = compiled.getCells();
+        for (int i = 1; i < cells.size(); i++) {
+            assertTrue(grid.index(cells.get(i - 1).getRow(), cells.get(i - 1).getCol())
+                    < grid.index(cells.get(i).getRow(), cells.get(i).getCol()));
+        }
+
+        // 由格子重建的网格与编译时的网格一致
+        SeatGrid rebuilt = SeatGrid.fromCells(cells);
+        assertEquals(grid.originRow(), rebuilt.originRow());
+        assertEquals(grid.originCol(), rebuilt.originCol());
+        assertEquals(grid.assignableSeats(), rebuilt.assignableSeats());
+    }
+
+    private SeatSection section(String name, SeatSectionPurpose purpose,
+                                int rowStart, int rowEnd, int colStart, int colEnd) {
+        return SeatSection.builder()
+                .name(name)
+                .purpose(purpose)
+                .rowStart(rowStart)
+                .rowEnd(rowEnd)
+                .colStart(colStart)
+                .colEnd(colEnd)
+                .build();
+    }
+}
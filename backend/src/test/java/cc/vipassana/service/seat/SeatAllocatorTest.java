@@ -0,0 +1,192 @@
+package cc.vipassana.service.seat;
+
+import cc.vipassana.dto.layout.CompiledLayout;
+import cc.vipassana.dto.layout.HallLayout;
+import cc.vipassana.dto.layout.SeatSection;
+import cc.vipassana.dto.layout.SeatSectionPurpose;
+import cc.vipassana.entity.MeditationHallConfig;
+import cc.vipassana.entity.MeditationSeat;
+import cc.vipassana.entity.Student;
+import cc.vipassana.service.layout.LayoutCompiler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SeatAllocator.reallocate 增量调整测试
+ *
+ * 禅堂布局（4行2列，座位ID = 行*2 + 列 + 1）：
+ * 第0行 男众旧生区（OLD_STUDENT） 1 2
+ * 第1行 男众新生区                3 4
+ * 第2行 女众区                    5 6
+ * 第3行 女众区                    7 8
+ */
+class SeatAllocatorTest {
+
+    private final LayoutCompiler layoutCompiler = new LayoutCompiler(new ObjectMapper());
+    private final SeatAllocator seatAllocator = new SeatAllocator(layoutCompiler);
+
+    private MeditationHallConfig config;
+    private CompiledLayout layout;
+    private List<MeditationSeat> seats;
+    private List<String> warnings;
+
+    @BeforeEach
+    void setUp() {
+        config = new MeditationHallConfig();
+        config.setId(1L);
+        layout = layoutCompiler.compile(HallLayout.builder()
+                .sections(List.of(
+                        section("男众旧生区", SeatSectionPurpose.OLD_STUDENT, 0, 1),
+                        section("男众新生区", SeatSectionPurpose.NEW_STUDENT, 1, 2),
+                        section("女众区", SeatSectionPurpose.NEW_STUDENT, 2, 4)))
+                .build());
+        seats = new ArrayList<>();
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 2; col++) {
+                seats.add(MeditationSeat.builder()
+                        .id((long) (row * 2 + col + 1))
+                        .rowIndex(row)
+                        .colIndex(col)
+                        .gender(row < 2 ? "M" : "F")
+                        .status("available")
+                        .build());
+            }
+        }
+        warnings = new ArrayList<>();
+    }
+
+    @Test
+    void testCancelledStudentSeatIsFreedOthersKeepSeats() {
+        Student old = createStudent(10L, "M", 3, 40);
+        Student fresh = createStudent(11L, "M", 0, 30);
+        Student female = createStudent(12L, "F", 0, 25);
+        seat(1L).setStudentId(old.getId());
+        seat(1L).setIsOldStudent(true);
+        seat(2L).setStudentId(99L);
+        seat(2L).setIsOldStudent(true);
+        seat(3L).setStudentId(fresh.getId());
+        seat(3L).setIsOldStudent(false);
+        seat(8L).setStudentId(female.getId());
+        seat(8L).setIsOldStudent(false);
+
+        Set<Long> changed = seatAllocator.reallocate(config, layout, seats,
+                Arrays.asList(old, fresh, female), warnings);
+
+        assertEquals(Set.of(2L), changed);
+        assertNull(seat(2L).getStudentId(), "已取消学员的座位被释放");
+        assertEquals("available", seat(2L).getStatus());
+        assertNull(seat(2L).getIsOldStudent());
+        assertEquals("M", seat(2L).getGender(), "空座性别恢复为所在区域的性别");
+        assertEquals(10L, seat(1L).getStudentId());
+        assertEquals(11L, seat(3L).getStudentId());
+        assertEquals(12L, seat(8L).getStudentId(), "其他学员保持原座位");
+        assertTrue(warnings.isEmpty());
+    }
+
+    @Test
+    void testGenderChangeReseatsStudent() {
+        Student student = createStudent(11L, "F", 0, 30);
+        Student neighbour = createStudent(12L, "M", 0, 50);
+        seat(3L).setStudentId(student.getId());
+        seat(3L).setIsOldStudent(false);
+        seat(4L).setStudentId(neighbour.getId());
+        seat(4L).setIsOldStudent(false);
+
+        Set<Long> changed = seatAllocator.reallocate(config, layout, seats,
+                Arrays.asList(student, neighbour), warnings);
+
+        assertEquals(Set.of(3L, 6L), changed);
+        assertNull(seat(3L).getStudentId());
+        assertEquals("M", seat(3L).getGender());
+        assertEquals(11L, seat(6L).getStudentId(), "新生从右到左逐列入座女众区");
+        assertEquals("F", seat(6L).getGender());
+        assertEquals("allocated", seat(6L).getStatus());
+        assertEquals(12L, seat(4L).getStudentId());
+    }
+
+    @Test
+    void testOldStudentChangeReseatsStudent() {
+        Student student = createStudent(11L, "M", 2, 30);
+        seat(4L).setStudentId(student.getId());
+        seat(4L).setIsOldStudent(false);
+
+        Set<Long> changed = seatAllocator.reallocate(config, layout, seats, List.of(student), warnings);
+
+        assertEquals(Set.of(4L, 1L), changed);
+        assertNull(seat(4L).getStudentId());
+        assertEquals(11L, seat(1L).getStudentId(), "旧生按行从前往后入座");
+        assertTrue(seat(1L).getIsOldStudent());
+    }
+
+    @Test
+    void testNewArrivalsFillInAllocatorOrderAndSkipOldStudentCells() {
+        Student old = createStudent(20L, "M", 5, 30);
+        Student younger = createStudent(21L, "M", 0, 20);
+        Student elder = createStudent(22L, "M", 0, 40);
+        Student youngest = createStudent(23L, "M", 0, 10);
+        Student female = createStudent(24L, "F", 0, 35);
+
+        Set<Long> changed = seatAllocator.reallocate(config, layout, seats,
+                Arrays.asList(younger, youngest, female, elder, old), warnings);
+
+        assertEquals(5, changed.size());
+        assertEquals(20L, seat(1L).getStudentId());
+        // 新生按年龄从大到小，列从右到左、行从上到下，旧生专区的空位（座位2）最后才使用
+        assertEquals(22L, seat(4L).getStudentId());
+        assertEquals(21L, seat(3L).getStudentId());
+        assertEquals(23L, seat(2L).getStudentId(), "非旧生专区坐满后才使用旧生专区");
+        assertFalse(seat(2L).getIsOldStudent());
+        assertEquals(24L, seat(6L).getStudentId());
+        assertTrue(warnings.isEmpty());
+    }
+
+    @Test
+    void testUnassignedStudentsProduceWarning() {
+        List<Student> students = new ArrayList<>();
+        for (long id = 30; id < 35; id++) {
+            students.add(createStudent(id, "M", 0, (int) id));
+        }
+
+        Set<Long> changed = seatAllocator.reallocate(config, layout, seats, students, warnings);
+
+        assertEquals(Set.of(1L, 2L, 3L, 4L), changed);
+        assertEquals(List.of("禅堂容量不足，未分配1人"), warnings);
+        assertTrue(seats.stream().noneMatch(seat -> Long.valueOf(30L).equals(seat.getStudentId())),
+                "年龄最小的新生未分配");
+        assertTrue(seats.stream().filter(seat -> "F".equals(seat.getGender()))
+                .allMatch(seat -> seat.getStudentId() == null), "男众不会坐到女众区");
+    }
+
+    private MeditationSeat seat(Long id) {
+        return seats.get((int) (id - 1));
+    }
+
+    private SeatSection section(String name, SeatSectionPurpose purpose, int rowStart, int rowEnd) {
+        return SeatSection.builder()
+                .name(name)
+                .purpose(purpose)
+                .rowStart(rowStart)
+                .rowEnd(rowEnd)
+                .colStart(0)
+                .colEnd(2)
+                .build();
+    }
+
+    private Student createStudent(Long id, String gender, int studyTimes, int age) {
+        return Student.builder()
+                .id(id)
+                .name("学员" + id)
+                .gender(gender)
+                .studyTimes(studyTimes)
+                .age(age)
+                .build();
+    }
+}